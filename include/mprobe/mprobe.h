@@ -303,6 +303,113 @@ enum FunctionType {
 MPROBE_API_FUNC(int) mp_functionType(MPHandle, int type, int function);
 /** @} */
 
+/** @defgroup bulk Bulk problem instance functions
+ * These fill caller provided arrays for a whole range of variables or functions in one call.
+ * @{
+ */
+
+/** Get the types of a range of variables.
+ * @param first			Index of the first variable.
+ * @param count			Number of variables.
+ * @param[out] types	pointer to array with at least count elements, see mp_variableType.
+ * @return Number of elements written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_variableTypesBulk(MPHandle, int first, int count, char* types);
+
+/** Get the bounds of a range of variables.
+ * @param first			Index of the first variable.
+ * @param count			Number of variables.
+ * @param[out] bounds	pointer to array with at least 2*count elements,
+ * lower and upper bounds are interleaved.
+ * @return Number of variables written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_variableBoundsBulk(MPHandle, int first, int count, Real* bounds);
+
+/** Get the types of a range of objectives.
+ * @param first			Index of the first objective.
+ * @param count			Number of objectives.
+ * @param[out] types	pointer to array with at least count elements, see mp_objectiveType.
+ * @return Number of elements written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_objectiveTypesBulk(MPHandle, int first, int count, char* types);
+
+/** Get the types of a range of constraints.
+ * @param first			Index of the first constraint.
+ * @param count			Number of constraints.
+ * @param[out] types	pointer to array with at least count elements, see mp_constraintType.
+ * @return Number of elements written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_constraintTypesBulk(MPHandle, int first, int count, char* types);
+
+/** Get the bounds of a range of constraints.
+ * @param first			Index of the first constraint.
+ * @param count			Number of constraints.
+ * @param[out] bounds	pointer to array with at least 2*count elements,
+ * lower and upper bounds are interleaved.
+ * @return Number of constraints written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_constraintBoundsBulk(MPHandle, int first, int count, Real* bounds);
+
+/** Get the algebraic types of a range of functions.
+ * @param type			'c' for constraints, 'o' for objectives
+ * @param first			Index of the first function.
+ * @param count			Number of functions.
+ * @param[out] types	pointer to array with at least count elements, see mp_functionType.
+ * @return Number of elements written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_functionTypesBulk(MPHandle, int type, int first, int count, char* types);
+
+/** Get the names of all variables, constraints or objectives packed in one buffer.
+ * Names are utf-8 encoded and concatenated without terminators, name i
+ * occupies the bytes from offsets[i] up to (but not including) offsets[i+1].
+ * The names are requested from the plugin once per instance and then kept.
+ * @param type			'v' for variables, 'c' for constraints, 'o' for objectives
+ * @param[out] offsets	pointer to array with at least count+1 elements (or null)
+ * @param maxLen		size of buf
+ * @param[out] buf		buffer receiving the packed names (or null to only query the size)
+ * @return Total size in bytes of the packed names, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_namesToBuf(MPHandle, int type, int* offsets, int maxLen, char* buf);
+
+/** Get the number of variable occurrences over all constraints or objectives.
+ * @param type			'c' for constraints, 'o' for objectives
+ * @return Number of nonzeros, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_nonzeros(MPHandle, int type);
+
+/** Get the function by variable incidence of all constraints or objectives in
+ * compressed sparse row form.
+ * The variables of function i are columns[rowStarts[i]] up to (but not including) columns[rowStarts[i+1]].
+ * @param type			'c' for constraints, 'o' for objectives
+ * @param[out] rowStarts	pointer to array with at least (number of functions)+1 elements
+ * @param maxLen		size of columns, see mp_nonzeros
+ * @param[out] columns	pointer to array receiving the variable indices
+ * @return Number of nonzeros written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_sparsityPattern(MPHandle, int type, int* rowStarts, int maxLen, int* columns);
+
+/** Evaluate several functions at several points in one call.
+ * @param type			'c' for constraints, 'o' for objectives
+ * @param numFuncs		Number of functions.
+ * @param funcs			Indices of the functions.
+ * @param numPoints		Number of points.
+ * @param points		numPoints*variables values, point k starts at points[k*variables].
+ * @param[out] results	pointer to array with at least numFuncs*numPoints elements,
+ * the value of function i at point k is stored at results[i*numPoints+k].
+ * @param[out] errors	pointer to array with at least numFuncs*numPoints elements (or null),
+ * set to non-zero where the evaluation failed and zero otherwise.
+ * @return Number of failed evaluations, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_evaluateFunctionsVal(MPHandle, int type, int numFuncs, const int* funcs, int numPoints, Real* points, Real* results, char* errors);
+
+/** Evaluate the gradients of several functions at several points in one call.
+ * Same as mp_evaluateFunctionsVal except that each result is a dense gradient,
+ * the gradient of function i at point k starts at results[(i*numPoints+k)*variables].
+ * @return Number of failed evaluations, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_evaluateFunctionsGrad(MPHandle, int type, int numFuncs, const int* funcs, int numPoints, Real* points, Real* results, char* errors);
+/** @} */
+
 enum ErrorType
 {
 	NoError = 0,
@@ -314,6 +421,10 @@ enum ErrorType
 
 
 /** @defgroup pierror Problem instance specific error detection and reporting functions.
+ * Errors are kept per calling thread, a thread only retrieves the errors raised
+ * by its own calls on the instance (or on analyses created from it).
+ * Retrieving the error clears it, as does releasing the instance or the analysis
+ * with mp_unload or mp_releaseAnalysis.
  * @{
  */
 MPROBE_API_FUNC(int) mp_GetLastError(MPHandle, const char**); /**< Outputs error type and sets pointer to string (or null)*/
@@ -329,6 +440,29 @@ MPROBE_API_FUNC(void) mp_releaseAnalysis(MPHandle);
 
 MPROBE_API_FUNC(void) mp_aVariableBoundLineSample(MPHandle, int funcType, int func, int extraHists);
 
+/** Called by mp_aAnalyzeFunctions as each function is done.
+ * Calls come from the analysing threads, but never two at a time.
+ * @param funcType	'c' for constraints, 'o' for objectives
+ * @param func		Function whose results were just stored.
+ * @return Non-zero to leave the remaining functions unanalysed.
+ */
+typedef int (MPROBE_API_CC *MPAnalyzeCallback)(int funcType, int func);
+
+/** Analyse several functions as mp_aVariableBoundLineSample does, without the extra histograms.
+ * If the reader plugin is thread-safe (see RP_THREADSAFE) the functions are
+ * shared out to a pool of worker threads, each with its own scratch buffers and
+ * random number stream. Otherwise they are analysed one after the other on the
+ * calling thread.
+ * The first error raised while analysing stops the remaining functions and is
+ * reported to the calling thread, see mp_GetLastError.
+ * @param funcType	'c' for constraints, 'o' for objectives
+ * @param funcs		numFuncs function indexes, repeated functions are analysed once.
+ * @param threads	Maximum number of threads, 0 or less for one per core.
+ * @param callback	Optional, see MPAnalyzeCallback.
+ * @return Number of functions analysed, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_aAnalyzeFunctions(MPHandle, int funcType, const int* funcs, int numFuncs, int threads, MPAnalyzeCallback callback);
+
 MPROBE_API_FUNC(void) mp_aBounds(MPHandle, int var, Real* lower, Real* upper);
 MPROBE_API_FUNC(void) mp_aResetBounds(MPHandle);
 MPROBE_API_FUNC(void) mp_aClampBounds(MPHandle, Real maxMagnitude);
@@ -390,6 +524,19 @@ MPROBE_API_FUNC(Real)     mp_aGetHistogramMinimum(MPHandle, int histType);
 
 MPROBE_API_FUNC(void) mp_aSetHistogramBins(MPHandle, int histType, int bins, Real firstBinWidth, Real* upperBounds);
 
+/** Copy all four extra histograms in one call.
+ * The histograms are copied in the order Shape, Slope, FunctionValue, LineLength.
+ * For each histogram counts receives 4+maxBins values: number of bins, data points,
+ * points below range, points above range followed by the bins.
+ * stats receives 6 values per histogram: mean, standard deviation, variance,
+ * population variance, maximum and minimum.
+ * @param maxBins		Number of bins reserved per histogram in counts.
+ * @param[out] counts	pointer to array with at least 4*(4+maxBins) elements (or null)
+ * @param[out] stats	pointer to array with at least 4*6 elements (or null)
+ * @return Largest number of bins of the histograms, nothing is copied if this exceeds maxBins.
+ */
+MPROBE_API_FUNC(int) mp_aGetHistogramSnapshot(MPHandle, int maxBins, uint64_t* counts, Real* stats);
+
 enum EmpiricalShape {
 	ESShapeError = InsufficientDataPoints,
 	ESTooManyMathErrors = TooManyErrors,
@@ -428,6 +575,46 @@ enum RegionEffect {
 };
 MPROBE_API_FUNC(uint8_t) mp_aGetRegionEffect(MPHandle, int constraint);
 
+enum ResultArray {
+	RAShapes = 's', /**< uint8_t per constraint followed by objectives, see EmpiricalShape */
+	RAEffectivenessStatus = 't', /**< uint8_t per constraint, see ResultStatus */
+	RAEffectiveness = 'e', /**< Real pair (lower, upper bound effectiveness) per constraint */
+	RARegionEffects = 'r', /**< uint8_t per constraint, see RegionEffect */
+	RAExtremumStatus = 'x', /**< uint8_t per objective, see ResultStatus */
+	RAExtrema = 'm', /**< Real per objective */
+	RAExtremumPoints = 'p', /**< Real point (one value per variable) per objective */
+	RAOptimumEffects = 'o' /**< uint8_t per objective, see OptimumEffect */
+};
+
+/** Get a pointer to one of the result arrays of the analysis.
+ * The array is owned by the analysis, stays valid until mp_releaseAnalysis and
+ * is updated in place by later analyses, see mp_aResultsVersion.
+ * @param which			One of ResultArray
+ * @param[out] length	Number of elements in the array (or null)
+ * @return Pointer to the first element, null if which is unknown.
+ */
+MPROBE_API_FUNC(const void*) mp_aResultArray(MPHandle, int which, int* length);
+
+/** Copy the results of a range of constraints or objectives in one call.
+ * Every output may be null if not needed.
+ * @param funcType		'c' for constraints, 'o' for objectives
+ * @param first			Index of the first function.
+ * @param count			Number of functions.
+ * @param[out] status	count elements, effectiveness status for constraints,
+ * extremum status for objectives, see ResultStatus.
+ * @param[out] shapes	count elements, see EmpiricalShape.
+ * @param[out] effects	count elements, RegionEffect for constraints, OptimumEffect for objectives.
+ * @param[out] values	2*count elements for constraints (interleaved lower and
+ * upper bound effectiveness), count elements for objectives (extremum).
+ * @return Number of functions written, negative on error.
+ */
+MPROBE_API_FUNC(int) mp_aResultsRange(MPHandle, int funcType, int first, int count, uint8_t* status, uint8_t* shapes, uint8_t* effects, Real* values);
+
+/** Get the version of the analysis results.
+ * @return Counter incremented each time an analysis updates the result arrays.
+ */
+MPROBE_API_FUNC(uint64_t) mp_aResultsVersion(MPHandle);
+
 /** @} */
 
 #ifdef __cplusplus
@@ -0,0 +1,1271 @@
+package model;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.lang.foreign.ValueLayout.JAVA_DOUBLE;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+import java.io.File;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.DoubleByReference;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * Binding of the mprobe library built on the Foreign Function & Memory API
+ * (java.lang.foreign) instead of JNA. Every function is a downcall handle
+ * looked up once, arrays and out parameters are passed through segments
+ * allocated from a confined arena that lives for the duration of the call.
+ *
+ * Handles keep the JNA Pointer type so this is interchangeable with the other
+ * bindings, see MProbeBinding. Needs Java 22 (or 21 with --enable-preview), and
+ * --enable-native-access=ALL-UNNAMED to avoid the restricted method warnings.
+ * It is kept in its own source root, src/javagui-foreign, compiled together
+ * with src/javagui only when building with such a Java. The class is only
+ * loaded reflectively, so the rest of the GUI builds and runs without it.
+ */
+public class ForeignMProbeLib implements MProbeLib {
+	private static final Linker linker = Linker.nativeLinker();
+	private static final SymbolLookup library = SymbolLookup.libraryLookup(libraryName(), Arena.global());
+
+	private static final MethodHandle mprobe_init = downcall("mprobe_init", FunctionDescriptor.ofVoid());
+	private static final MethodHandle mprobe_deinit = downcall("mprobe_deinit", FunctionDescriptor.ofVoid());
+	private static final MethodHandle mp_loadPlugins = downcall("mp_loadPlugins", FunctionDescriptor.ofVoid(ADDRESS));
+	private static final MethodHandle mp_unloadPlugins = downcall("mp_unloadPlugins", FunctionDescriptor.ofVoid(ADDRESS));
+	private static final MethodHandle mp_load = downcall("mp_load", FunctionDescriptor.of(ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_unload = downcall("mp_unload", FunctionDescriptor.ofVoid(ADDRESS));
+	private static final MethodHandle mp_compatibleFiles = downcall("mp_compatibleFiles", FunctionDescriptor.of(JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_releaseName = downcall("mp_releaseName", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
+	private static final MethodHandle mp_instanceName = downcall("mp_instanceName", FunctionDescriptor.of(ADDRESS, ADDRESS));
+	private static final MethodHandle mp_instanceNameToBuf = downcall("mp_instanceNameToBuf", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_variables = downcall("mp_variables", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_variableName = downcall("mp_variableName", FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_variableNameToBuf = downcall("mp_variableNameToBuf", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_variablePresence = downcall("mp_variablePresence", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_variableType = downcall("mp_variableType", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_variableBounds = downcall("mp_variableBounds", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_objectives = downcall("mp_objectives", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_objectiveName = downcall("mp_objectiveName", FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_objectiveNameToBuf = downcall("mp_objectiveNameToBuf", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_objectiveType = downcall("mp_objectiveType", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_objectiveVariables = downcall("mp_objectiveVariables", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_constraints = downcall("mp_constraints", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_constraintName = downcall("mp_constraintName", FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_constraintNameToBuf = downcall("mp_constraintNameToBuf", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_constraintType = downcall("mp_constraintType", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_constraintBounds = downcall("mp_constraintBounds", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_constraintVariables = downcall("mp_constraintVariables", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_functionType = downcall("mp_functionType", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT));
+	private static final MethodHandle mp_variableTypesBulk = downcall("mp_variableTypesBulk", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_variableBoundsBulk = downcall("mp_variableBoundsBulk", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_objectiveTypesBulk = downcall("mp_objectiveTypesBulk", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_constraintTypesBulk = downcall("mp_constraintTypesBulk", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_constraintBoundsBulk = downcall("mp_constraintBoundsBulk", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_functionTypesBulk = downcall("mp_functionTypesBulk", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_namesToBuf = downcall("mp_namesToBuf", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_nonzeros = downcall("mp_nonzeros", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_sparsityPattern = downcall("mp_sparsityPattern", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_evaluateFunctionsVal = downcall("mp_evaluateFunctionsVal", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_evaluateFunctionsGrad = downcall("mp_evaluateFunctionsGrad", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_GetLastError = downcall("mp_GetLastError", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_ReleaseErrorStr = downcall("mp_ReleaseErrorStr", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS));
+	private static final MethodHandle mp_createAnalysis = downcall("mp_createAnalysis", FunctionDescriptor.of(ADDRESS, ADDRESS));
+	private static final MethodHandle mp_releaseAnalysis = downcall("mp_releaseAnalysis", FunctionDescriptor.ofVoid(ADDRESS));
+	private static final MethodHandle mp_aVariableBoundLineSample = downcall("mp_aVariableBoundLineSample", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, JAVA_INT, JAVA_INT));
+	private static final MethodHandle mp_aAnalyzeFunctions = downcall("mp_aAnalyzeFunctions", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, ADDRESS));
+	private static final MethodHandle analyzeCallback = callbackHandle();
+	private static final MethodHandle mp_aBounds = downcall("mp_aBounds", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_aResetBounds = downcall("mp_aResetBounds", FunctionDescriptor.ofVoid(ADDRESS));
+	private static final MethodHandle mp_aClampBounds = downcall("mp_aClampBounds", FunctionDescriptor.ofVoid(ADDRESS, JAVA_DOUBLE));
+	private static final MethodHandle mp_aSetBounds = downcall("mp_aSetBounds", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, JAVA_DOUBLE, JAVA_DOUBLE));
+	private static final MethodHandle mp_aUpperBound = downcall("mp_aUpperBound", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aSetUpperBound = downcall("mp_aSetUpperBound", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, JAVA_DOUBLE));
+	private static final MethodHandle mp_aLowerBound = downcall("mp_aLowerBound", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aSetLowerBound = downcall("mp_aSetLowerBound", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, JAVA_DOUBLE));
+	private static final MethodHandle mp_aLineLengthMax = downcall("mp_aLineLengthMax", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS));
+	private static final MethodHandle mp_aLineLengthMin = downcall("mp_aLineLengthMin", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS));
+	private static final MethodHandle mp_aLineLengthBounds = downcall("mp_aLineLengthBounds", FunctionDescriptor.ofVoid(ADDRESS, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_aSetLineLengthBounds = downcall("mp_aSetLineLengthBounds", FunctionDescriptor.ofVoid(ADDRESS, JAVA_DOUBLE, JAVA_DOUBLE));
+	private static final MethodHandle mp_aSnapDiscreteComponents = downcall("mp_aSnapDiscreteComponents", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_aSetSnapDiscreteComponents = downcall("mp_aSetSnapDiscreteComponents", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aNumLineSegments = downcall("mp_aNumLineSegments", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_aSetNumLineSegments = downcall("mp_aSetNumLineSegments", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aInteriorLinePoints = downcall("mp_aInteriorLinePoints", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_aSetNumInteriorLinePoints = downcall("mp_aSetNumInteriorLinePoints", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aMinimumPointsNeeded = downcall("mp_aMinimumPointsNeeded", FunctionDescriptor.of(JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_aSetMinimumPointsNeeded = downcall("mp_aSetMinimumPointsNeeded", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aEvalErrorTolerance = downcall("mp_aEvalErrorTolerance", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS));
+	private static final MethodHandle mp_aSetEvalErrorTolerance = downcall("mp_aSetEvalErrorTolerance", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_DOUBLE));
+	private static final MethodHandle mp_aInfinity = downcall("mp_aInfinity", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS));
+	private static final MethodHandle mp_aSetInfinity = downcall("mp_aSetInfinity", FunctionDescriptor.ofVoid(ADDRESS, JAVA_DOUBLE));
+	private static final MethodHandle mp_aEqualityTolerance = downcall("mp_aEqualityTolerance", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS));
+	private static final MethodHandle mp_aSetEqualityTolerance = downcall("mp_aSetEqualityTolerance", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_DOUBLE));
+	private static final MethodHandle mp_aAlmostEqualTolerance = downcall("mp_aAlmostEqualTolerance", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS));
+	private static final MethodHandle mp_aSetAlmostEqualTolerance = downcall("mp_aSetAlmostEqualTolerance", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_DOUBLE));
+	private static final MethodHandle mp_aEffectiveness = downcall("mp_aEffectiveness", FunctionDescriptor.of(JAVA_BYTE, ADDRESS, JAVA_INT, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_aExtremum = downcall("mp_aExtremum", FunctionDescriptor.of(JAVA_BYTE, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_aExtremumPoint = downcall("mp_aExtremumPoint", FunctionDescriptor.of(JAVA_BYTE, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_aGetHistogramBin = downcall("mp_aGetHistogramBin", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramNumBins = downcall("mp_aGetHistogramNumBins", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramNumOutside = downcall("mp_aGetHistogramNumOutside", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramNumAboveRange = downcall("mp_aGetHistogramNumAboveRange", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramNumBelowRange = downcall("mp_aGetHistogramNumBelowRange", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramDataPoints = downcall("mp_aGetHistogramDataPoints", FunctionDescriptor.of(JAVA_LONG, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramMean = downcall("mp_aGetHistogramMean", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramStdDev = downcall("mp_aGetHistogramStdDev", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramVariance = downcall("mp_aGetHistogramVariance", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramPopVariance = downcall("mp_aGetHistogramPopVariance", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramMaximum = downcall("mp_aGetHistogramMaximum", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetHistogramMinimum = downcall("mp_aGetHistogramMinimum", FunctionDescriptor.of(JAVA_DOUBLE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aSetHistogramBins = downcall("mp_aSetHistogramBins", FunctionDescriptor.ofVoid(ADDRESS, JAVA_INT, JAVA_INT, JAVA_DOUBLE, ADDRESS));
+	private static final MethodHandle mp_aGetHistogramSnapshot = downcall("mp_aGetHistogramSnapshot", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_aGetEmpiricalShape = downcall("mp_aGetEmpiricalShape", FunctionDescriptor.of(JAVA_BYTE, ADDRESS, JAVA_INT, JAVA_INT));
+	private static final MethodHandle mp_aGetOptimumEffect = downcall("mp_aGetOptimumEffect", FunctionDescriptor.of(JAVA_BYTE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aGetRegionEffect = downcall("mp_aGetRegionEffect", FunctionDescriptor.of(JAVA_BYTE, ADDRESS, JAVA_INT));
+	private static final MethodHandle mp_aResultArray = downcall("mp_aResultArray", FunctionDescriptor.of(ADDRESS, ADDRESS, JAVA_INT, ADDRESS));
+	private static final MethodHandle mp_aResultsRange = downcall("mp_aResultsRange", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT, JAVA_INT, JAVA_INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+	private static final MethodHandle mp_aResultsVersion = downcall("mp_aResultsVersion", FunctionDescriptor.of(JAVA_LONG, ADDRESS));
+
+	/**
+	 * Looks for the library on jna.library.path first, so both bindings load
+	 * the same file, then leaves it to the system search path.
+	 */
+	private static String libraryName() {
+		String name = System.mapLibraryName("mprobe");
+		String paths = System.getProperty("jna.library.path");
+		if (paths != null) {
+			for (String path : paths.split(File.pathSeparator)) {
+				File file = new File(path, name);
+				if (file.isFile())
+					return file.getAbsolutePath();
+			}
+		}
+		return name;
+	}
+
+	private static MethodHandle downcall(String name, FunctionDescriptor descriptor) {
+		MemorySegment symbol = library.find(name).orElseThrow(
+				() -> new UnsatisfiedLinkError("Missing symbol " + name + " in mprobe library."));
+		return linker.downcallHandle(symbol, descriptor);
+	}
+
+	private static MethodHandle callbackHandle() {
+		try {
+			return MethodHandles.publicLookup().findVirtual(AnalyzeCallback.class, "invoke",
+					MethodType.methodType(int.class, int.class, int.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static RuntimeException unchecked(Throwable t) {
+		if (t instanceof RuntimeException)
+			return (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		return new RuntimeException(t);
+	}
+
+	private static MemorySegment address(Pointer ptr) {
+		return ptr == null ? MemorySegment.NULL : MemorySegment.ofAddress(Pointer.nativeValue(ptr));
+	}
+
+	private static Pointer pointer(MemorySegment segment) {
+		return segment.address() == 0 ? null : new Pointer(segment.address());
+	}
+
+	private static MemorySegment cString(Arena arena, String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		MemorySegment segment = arena.allocate(bytes.length + 1, 1);
+		MemorySegment.copy(bytes, 0, segment, JAVA_BYTE, 0, bytes.length);
+		segment.set(JAVA_BYTE, bytes.length, (byte) 0);
+		return segment;
+	}
+
+	private static MemorySegment cStrings(Arena arena, String[] strs) {
+		MemorySegment array = arena.allocate(Math.max(strs.length, 1) * ADDRESS.byteSize(), ADDRESS.byteAlignment());
+		for (int i = 0; i < strs.length; ++i)
+			array.setAtIndex(ADDRESS, i, cString(arena, strs[i]));
+		return array;
+	}
+
+	private static String javaString(MemorySegment cstr) {
+		if (cstr.address() == 0)
+			return null;
+		MemorySegment str = cstr.reinterpret(Long.MAX_VALUE);
+		int length = 0;
+		while (str.get(JAVA_BYTE, length) != 0)
+			++length;
+		byte[] bytes = new byte[length];
+		MemorySegment.copy(str, JAVA_BYTE, 0, bytes, 0, length);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	// Arrays are copied in and out, a null array is passed as a null pointer
+	private static MemorySegment allocate(Arena arena, int[] array) {
+		return array == null ? MemorySegment.NULL : arena.allocate(Math.max(array.length, 1) * JAVA_INT.byteSize(), JAVA_INT.byteAlignment());
+	}
+
+	private static MemorySegment allocate(Arena arena, double[] array) {
+		return array == null ? MemorySegment.NULL : copyIn(arena, array);
+	}
+
+	private static MemorySegment allocate(Arena arena, long[] array) {
+		return array == null ? MemorySegment.NULL : arena.allocate(Math.max(array.length, 1) * JAVA_LONG.byteSize(), JAVA_LONG.byteAlignment());
+	}
+
+	private static MemorySegment allocate(Arena arena, byte[] array) {
+		return array == null ? MemorySegment.NULL : arena.allocate(Math.max(array.length, 1), 1);
+	}
+
+	private static MemorySegment copyIn(Arena arena, int[] array) {
+		if (array == null)
+			return MemorySegment.NULL;
+		MemorySegment segment = arena.allocate(Math.max(array.length, 1) * JAVA_INT.byteSize(), JAVA_INT.byteAlignment());
+		MemorySegment.copy(array, 0, segment, JAVA_INT, 0, array.length);
+		return segment;
+	}
+
+	private static MemorySegment copyIn(Arena arena, double[] array) {
+		if (array == null)
+			return MemorySegment.NULL;
+		MemorySegment segment = arena.allocate(Math.max(array.length, 1) * JAVA_DOUBLE.byteSize(), JAVA_DOUBLE.byteAlignment());
+		MemorySegment.copy(array, 0, segment, JAVA_DOUBLE, 0, array.length);
+		return segment;
+	}
+
+	private static void copyOut(MemorySegment segment, int[] array) {
+		if (array != null)
+			MemorySegment.copy(segment, JAVA_INT, 0, array, 0, array.length);
+	}
+
+	private static void copyOut(MemorySegment segment, double[] array) {
+		if (array != null)
+			MemorySegment.copy(segment, JAVA_DOUBLE, 0, array, 0, array.length);
+	}
+
+	private static void copyOut(MemorySegment segment, long[] array) {
+		if (array != null)
+			MemorySegment.copy(segment, JAVA_LONG, 0, array, 0, array.length);
+	}
+
+	private static void copyOut(MemorySegment segment, byte[] array) {
+		if (array != null)
+			MemorySegment.copy(segment, JAVA_BYTE, 0, array, 0, array.length);
+	}
+
+	// Names are written as utf-8, decode them up to the terminator
+	private static void copyOut(MemorySegment segment, char[] buf) {
+		if (buf == null)
+			return;
+		int length = 0;
+		while (length < segment.byteSize() && segment.get(JAVA_BYTE, length) != 0)
+			++length;
+		byte[] bytes = new byte[length];
+		MemorySegment.copy(segment, JAVA_BYTE, 0, bytes, 0, length);
+		char[] chars = new String(bytes, StandardCharsets.UTF_8).toCharArray();
+		int copied = Math.min(chars.length, buf.length - 1);
+		System.arraycopy(chars, 0, buf, 0, Math.max(copied, 0));
+		if (copied >= 0)
+			buf[copied] = 0;
+	}
+
+	@Override
+	public void mprobe_init() {
+		try {
+			mprobe_init.invokeExact();
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mprobe_deinit() {
+		try {
+			mprobe_deinit.invokeExact();
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_loadPlugins(String path) {
+		try (Arena arena = Arena.ofConfined()) {
+			mp_loadPlugins.invokeExact(cString(arena, path));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_unloadPlugins(String path) {
+		try (Arena arena = Arena.ofConfined()) {
+			mp_unloadPlugins.invokeExact(cString(arena, path));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public Pointer mp_load(int numFile, String[] files) {
+		try (Arena arena = Arena.ofConfined()) {
+			return pointer((MemorySegment) mp_load.invokeExact(numFile, cStrings(arena, files)));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_unload(Pointer pHandle) {
+		try {
+			mp_unload.invokeExact(address(pHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	/**
+	 * The native function only takes the file names, compatibility is left untouched.
+	 */
+	@Override
+	public int mp_compatibleFiles(int numFiles, String[] filenames, int[] compatibility) {
+		try (Arena arena = Arena.ofConfined()) {
+			return (int) mp_compatibleFiles.invokeExact(numFiles, cStrings(arena, filenames));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_releaseName(Pointer pHandle, Pointer name) {
+		try {
+			mp_releaseName.invokeExact(address(pHandle), address(name));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public String mp_instanceName(Pointer pHandle) {
+		try {
+			return javaString((MemorySegment) mp_instanceName.invokeExact(address(pHandle)));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_instanceNameToBuf(Pointer pHandle, int maxLen, char[] buf) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment tmp = arena.allocate(Math.max(maxLen, 1), 1);
+			int ret = (int) mp_instanceNameToBuf.invokeExact(address(pHandle), maxLen, tmp);
+			copyOut(tmp, buf);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_variables(Pointer pHandle) {
+		try {
+			return (int) mp_variables.invokeExact(address(pHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public Pointer mp_variableName(Pointer pHandle, int variable) {
+		try {
+			return pointer((MemorySegment) mp_variableName.invokeExact(address(pHandle), variable));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_variableNameToBuf(Pointer pHandle, int variable, int maxLen, char[] buf) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment tmp = arena.allocate(Math.max(maxLen, 1), 1);
+			int ret = (int) mp_variableNameToBuf.invokeExact(address(pHandle), variable, maxLen, tmp);
+			copyOut(tmp, buf);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_variablePresence(Pointer pHandle, int variable, int[] constraints, int[] objectives) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment cons = allocate(arena, constraints);
+			MemorySegment objs = allocate(arena, objectives);
+			mp_variablePresence.invokeExact(address(pHandle), variable, cons, objs);
+			copyOut(cons, constraints);
+			copyOut(objs, objectives);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_variableType(Pointer pHandle, int variable) {
+		try {
+			return (int) mp_variableType.invokeExact(address(pHandle), variable);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_variableBounds(Pointer pHandle, int variable, DoubleByReference lower, DoubleByReference upper) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment bounds = arena.allocate(2 * Double.BYTES, Double.BYTES);
+			mp_variableBounds.invokeExact(address(pHandle), variable, bounds, bounds.asSlice(Double.BYTES));
+			lower.setValue(bounds.getAtIndex(JAVA_DOUBLE, 0));
+			upper.setValue(bounds.getAtIndex(JAVA_DOUBLE, 1));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_objectives(Pointer pHandle) {
+		try {
+			return (int) mp_objectives.invokeExact(address(pHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public Pointer mp_objectiveName(Pointer pHandle, int objective) {
+		try {
+			return pointer((MemorySegment) mp_objectiveName.invokeExact(address(pHandle), objective));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_objectiveNameToBuf(Pointer pHandle, int objective, int maxLen, char[] buf) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment tmp = arena.allocate(Math.max(maxLen, 1), 1);
+			int ret = (int) mp_objectiveNameToBuf.invokeExact(address(pHandle), objective, maxLen, tmp);
+			copyOut(tmp, buf);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_objectiveType(Pointer pHandle, int objective) {
+		try {
+			return (int) mp_objectiveType.invokeExact(address(pHandle), objective);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_objectiveVariables(Pointer pHandle, int objective, int[] variables) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment vars = allocate(arena, variables);
+			int ret = (int) mp_objectiveVariables.invokeExact(address(pHandle), objective, vars);
+			copyOut(vars, variables);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_constraints(Pointer pHandle) {
+		try {
+			return (int) mp_constraints.invokeExact(address(pHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public Pointer mp_constraintName(Pointer pHandle, int constraint) {
+		try {
+			return pointer((MemorySegment) mp_constraintName.invokeExact(address(pHandle), constraint));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_constraintNameToBuf(Pointer pHandle, int constraint, int maxLen, char[] buf) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment tmp = arena.allocate(Math.max(maxLen, 1), 1);
+			int ret = (int) mp_constraintNameToBuf.invokeExact(address(pHandle), constraint, maxLen, tmp);
+			copyOut(tmp, buf);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_constraintType(Pointer pHandle, int constraint) {
+		try {
+			return (int) mp_constraintType.invokeExact(address(pHandle), constraint);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_constraintBounds(Pointer pHandle, int constraint, DoubleByReference lower, DoubleByReference upper) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment bounds = arena.allocate(2 * Double.BYTES, Double.BYTES);
+			mp_constraintBounds.invokeExact(address(pHandle), constraint, bounds, bounds.asSlice(Double.BYTES));
+			lower.setValue(bounds.getAtIndex(JAVA_DOUBLE, 0));
+			upper.setValue(bounds.getAtIndex(JAVA_DOUBLE, 1));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_constraintVariables(Pointer pHandle, int constraint, int[] variables) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment vars = allocate(arena, variables);
+			int ret = (int) mp_constraintVariables.invokeExact(address(pHandle), constraint, vars);
+			copyOut(vars, variables);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_functionType(Pointer pHandle, int type, int function) {
+		try {
+			return (int) mp_functionType.invokeExact(address(pHandle), type, function);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_variableTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment out = allocate(arena, types);
+			int ret = (int) mp_variableTypesBulk.invokeExact(address(pHandle), first, count, out);
+			copyOut(out, types);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_variableBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment out = allocate(arena, bounds);
+			int ret = (int) mp_variableBoundsBulk.invokeExact(address(pHandle), first, count, out);
+			copyOut(out, bounds);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_objectiveTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment out = allocate(arena, types);
+			int ret = (int) mp_objectiveTypesBulk.invokeExact(address(pHandle), first, count, out);
+			copyOut(out, types);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_constraintTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment out = allocate(arena, types);
+			int ret = (int) mp_constraintTypesBulk.invokeExact(address(pHandle), first, count, out);
+			copyOut(out, types);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_constraintBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment out = allocate(arena, bounds);
+			int ret = (int) mp_constraintBoundsBulk.invokeExact(address(pHandle), first, count, out);
+			copyOut(out, bounds);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_functionTypesBulk(Pointer pHandle, int type, int first, int count, byte[] types) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment out = allocate(arena, types);
+			int ret = (int) mp_functionTypesBulk.invokeExact(address(pHandle), type, first, count, out);
+			copyOut(out, types);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_namesToBuf(Pointer pHandle, int type, int[] offsets, int maxLen, byte[] buf) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment offs = allocate(arena, offsets);
+			MemorySegment names = allocate(arena, buf);
+			int ret = (int) mp_namesToBuf.invokeExact(address(pHandle), type, offs, maxLen, names);
+			copyOut(offs, offsets);
+			copyOut(names, buf);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_nonzeros(Pointer pHandle, int type) {
+		try {
+			return (int) mp_nonzeros.invokeExact(address(pHandle), type);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_sparsityPattern(Pointer pHandle, int type, int[] rowStarts, int maxLen, int[] columns) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment starts = allocate(arena, rowStarts);
+			MemorySegment cols = allocate(arena, columns);
+			int ret = (int) mp_sparsityPattern.invokeExact(address(pHandle), type, starts, maxLen, cols);
+			copyOut(starts, rowStarts);
+			copyOut(cols, columns);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_evaluateFunctionsVal(Pointer pHandle, int type, int numFuncs, int[] funcs,
+			int numPoints, double[] points, double[] results, byte[] errors) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment res = allocate(arena, results);
+			MemorySegment errs = allocate(arena, errors);
+			int ret = (int) mp_evaluateFunctionsVal.invokeExact(address(pHandle), type, numFuncs,
+					copyIn(arena, funcs), numPoints, copyIn(arena, points), res, errs);
+			copyOut(res, results);
+			copyOut(errs, errors);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_evaluateFunctionsGrad(Pointer pHandle, int type, int numFuncs, int[] funcs,
+			int numPoints, double[] points, double[] results, byte[] errors) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment res = allocate(arena, results);
+			MemorySegment errs = allocate(arena, errors);
+			int ret = (int) mp_evaluateFunctionsGrad.invokeExact(address(pHandle), type, numFuncs,
+					copyIn(arena, funcs), numPoints, copyIn(arena, points), res, errs);
+			copyOut(res, results);
+			copyOut(errs, errors);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_GetLastError(Pointer pHandle, PointerByReference error) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment str = arena.allocate(ADDRESS);
+			int ret = (int) mp_GetLastError.invokeExact(address(pHandle), str);
+			if (error != null)
+				error.setValue(pointer(str.get(ADDRESS, 0)));
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_ReleaseErrorStr(Pointer pHandle, Pointer error) {
+		try {
+			mp_ReleaseErrorStr.invokeExact(address(pHandle), address(error));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public Pointer mp_createAnalysis(Pointer pHandle) {
+		try {
+			return pointer((MemorySegment) mp_createAnalysis.invokeExact(address(pHandle)));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_releaseAnalysis(Pointer pHandle) {
+		try {
+			mp_releaseAnalysis.invokeExact(address(pHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aVariableBoundLineSample(Pointer pHandle, int funcType, int func, int extraHistsBool) {
+		try {
+			mp_aVariableBoundLineSample.invokeExact(address(pHandle), funcType, func, extraHistsBool);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aAnalyzeFunctions(Pointer aHandle, int funcType, int[] funcs, int numFuncs,
+			int threads, AnalyzeCallback callback) {
+		// Shared as the callback stub is called from the native analysis threads
+		try (Arena arena = Arena.ofShared()) {
+			MemorySegment stub = callback == null ? MemorySegment.NULL
+					: linker.upcallStub(analyzeCallback.bindTo(callback),
+							FunctionDescriptor.of(JAVA_INT, JAVA_INT, JAVA_INT), arena);
+			return (int) mp_aAnalyzeFunctions.invokeExact(address(aHandle), funcType,
+					copyIn(arena, funcs), numFuncs, threads, stub);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aBounds(Pointer aHandle, int var, DoubleByReference lower, DoubleByReference upper) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment bounds = arena.allocate(2 * Double.BYTES, Double.BYTES);
+			mp_aBounds.invokeExact(address(aHandle), var, bounds, bounds.asSlice(Double.BYTES));
+			lower.setValue(bounds.getAtIndex(JAVA_DOUBLE, 0));
+			upper.setValue(bounds.getAtIndex(JAVA_DOUBLE, 1));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aResetBounds(Pointer aHandle) {
+		try {
+			mp_aResetBounds.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aClampBounds(Pointer aHandle, double maxMagnitude) {
+		try {
+			mp_aClampBounds.invokeExact(address(aHandle), maxMagnitude);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetBounds(Pointer aHandle, int var, double lower, double upper) {
+		try {
+			mp_aSetBounds.invokeExact(address(aHandle), var, lower, upper);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aUpperBound(Pointer aHandle, int var) {
+		try {
+			return (double) mp_aUpperBound.invokeExact(address(aHandle), var);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetUpperBound(Pointer aHandle, int var, double upper) {
+		try {
+			mp_aSetUpperBound.invokeExact(address(aHandle), var, upper);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aLowerBound(Pointer aHandle, int var) {
+		try {
+			return (double) mp_aLowerBound.invokeExact(address(aHandle), var);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetLowerBound(Pointer aHandle, int var, double upper) {
+		try {
+			mp_aSetLowerBound.invokeExact(address(aHandle), var, upper);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aLineLengthMax(Pointer aHandle) {
+		try {
+			return (double) mp_aLineLengthMax.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aLineLengthMin(Pointer aHandle) {
+		try {
+			return (double) mp_aLineLengthMin.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aLineLengthBounds(Pointer aHandle, DoubleByReference min, DoubleByReference max) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment bounds = arena.allocate(2 * Double.BYTES, Double.BYTES);
+			mp_aLineLengthBounds.invokeExact(address(aHandle), bounds, bounds.asSlice(Double.BYTES));
+			min.setValue(bounds.getAtIndex(JAVA_DOUBLE, 0));
+			max.setValue(bounds.getAtIndex(JAVA_DOUBLE, 1));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetLineLengthBounds(Pointer aHandle, double min, double max) {
+		try {
+			mp_aSetLineLengthBounds.invokeExact(address(aHandle), min, max);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aSnapDiscreteComponents(Pointer aHandle) {
+		try {
+			return (int) mp_aSnapDiscreteComponents.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetSnapDiscreteComponents(Pointer aHandle, int snapBool) {
+		try {
+			mp_aSetSnapDiscreteComponents.invokeExact(address(aHandle), snapBool);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aNumLineSegments(Pointer aHandle) {
+		try {
+			return (int) mp_aNumLineSegments.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetNumLineSegments(Pointer aHandle, int numSegments) {
+		try {
+			mp_aSetNumLineSegments.invokeExact(address(aHandle), numSegments);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aInteriorLinePoints(Pointer aHandle) {
+		try {
+			return (int) mp_aInteriorLinePoints.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetNumInteriorLinePoints(Pointer aHandle, int numIntPoints) {
+		try {
+			mp_aSetNumInteriorLinePoints.invokeExact(address(aHandle), numIntPoints);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aMinimumPointsNeeded(Pointer aHandle) {
+		try {
+			return (int) mp_aMinimumPointsNeeded.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetMinimumPointsNeeded(Pointer aHandle, int minPts) {
+		try {
+			mp_aSetMinimumPointsNeeded.invokeExact(address(aHandle), minPts);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aEvalErrorTolerance(Pointer aHandle) {
+		try {
+			return (double) mp_aEvalErrorTolerance.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	/**
+	 * The native function returns an int, it is widened to match MProbeLib.
+	 */
+	@Override
+	public double mp_aSetEvalErrorTolerance(Pointer aHandle, double tolerance) {
+		try {
+			return (int) mp_aSetEvalErrorTolerance.invokeExact(address(aHandle), tolerance);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aInfinity(Pointer aHandle) {
+		try {
+			return (double) mp_aInfinity.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetInfinity(Pointer aHandle, double infinity) {
+		try {
+			mp_aSetInfinity.invokeExact(address(aHandle), infinity);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aEqualityTolerance(Pointer aHandle) {
+		try {
+			return (double) mp_aEqualityTolerance.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	/**
+	 * The native function returns an int, it is widened to match MProbeLib.
+	 */
+	@Override
+	public double mp_aSetEqualityTolerance(Pointer aHandle, double equalityTol) {
+		try {
+			return (int) mp_aSetEqualityTolerance.invokeExact(address(aHandle), equalityTol);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aAlmostEqualTolerance(Pointer aHandle) {
+		try {
+			return (double) mp_aAlmostEqualTolerance.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aSetAlmostEqualTolerance(Pointer aHandle, double almostEqualTol) {
+		try {
+			return (int) mp_aSetAlmostEqualTolerance.invokeExact(address(aHandle), almostEqualTol);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public byte mp_aEffectiveness(Pointer aHandle, int constraint, DoubleByReference efflb, DoubleByReference effub) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment eff = arena.allocate(2 * Double.BYTES, Double.BYTES);
+			byte ret = (byte) mp_aEffectiveness.invokeExact(address(aHandle), constraint, eff, eff.asSlice(Double.BYTES));
+			efflb.setValue(eff.getAtIndex(JAVA_DOUBLE, 0));
+			effub.setValue(eff.getAtIndex(JAVA_DOUBLE, 1));
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public byte mp_aExtremum(Pointer aHandle, int objective, DoubleByReference extremeVal) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment val = arena.allocate(Double.BYTES, Double.BYTES);
+			byte ret = (byte) mp_aExtremum.invokeExact(address(aHandle), objective, val);
+			extremeVal.setValue(val.get(JAVA_DOUBLE, 0));
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public byte mp_aExtremumPoint(Pointer aHandle, int objective, double[] point) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment pt = allocate(arena, point);
+			byte ret = (byte) mp_aExtremumPoint.invokeExact(address(aHandle), objective, pt);
+			copyOut(pt, point);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public long mp_aGetHistogramBin(Pointer aHandle, int histType, int bin) {
+		try {
+			return (long) mp_aGetHistogramBin.invokeExact(address(aHandle), histType, bin);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aGetHistogramNumBins(Pointer aHandle, int histType) {
+		try {
+			return (int) mp_aGetHistogramNumBins.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public long mp_aGetHistogramNumOutside(Pointer aHandle, int histType) {
+		try {
+			return (long) mp_aGetHistogramNumOutside.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public long mp_aGetHistogramNumAboveRange(Pointer aHandle, int histType) {
+		try {
+			return (long) mp_aGetHistogramNumAboveRange.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public long mp_aGetHistogramNumBelowRange(Pointer aHandle, int histType) {
+		try {
+			return (long) mp_aGetHistogramNumBelowRange.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public long mp_aGetHistogramDataPoints(Pointer aHandle, int histType) {
+		try {
+			return (long) mp_aGetHistogramDataPoints.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aGetHistogramMean(Pointer aHandle, int histType) {
+		try {
+			return (double) mp_aGetHistogramMean.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aGetHistogramStdDev(Pointer aHandle, int histType) {
+		try {
+			return (double) mp_aGetHistogramStdDev.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aGetHistogramVariance(Pointer aHandle, int histType) {
+		try {
+			return (double) mp_aGetHistogramVariance.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aGetHistogramPopVariance(Pointer aHandle, int histType) {
+		try {
+			return (double) mp_aGetHistogramPopVariance.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aGetHistogramMaximum(Pointer aHandle, int histType) {
+		try {
+			return (double) mp_aGetHistogramMaximum.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public double mp_aGetHistogramMinimum(Pointer aHandle, int histType) {
+		try {
+			return (double) mp_aGetHistogramMinimum.invokeExact(address(aHandle), histType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public void mp_aSetHistogramBins(Pointer aHandle, int hist, int bins, double firstBinWidth, double[] upperBounds) {
+		try (Arena arena = Arena.ofConfined()) {
+			mp_aSetHistogramBins.invokeExact(address(aHandle), hist, bins, firstBinWidth, copyIn(arena, upperBounds));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aGetHistogramSnapshot(Pointer aHandle, int maxBins, long[] counts, double[] stats) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment cnts = allocate(arena, counts);
+			MemorySegment sts = allocate(arena, stats);
+			int ret = (int) mp_aGetHistogramSnapshot.invokeExact(address(aHandle), maxBins, cnts, sts);
+			copyOut(cnts, counts);
+			copyOut(sts, stats);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public byte mp_aGetEmpiricalShape(Pointer aHandle, int func, int funcType) {
+		try {
+			return (byte) mp_aGetEmpiricalShape.invokeExact(address(aHandle), func, funcType);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public byte mp_aGetOptimumEffect(Pointer aHandle, int objective) {
+		try {
+			return (byte) mp_aGetOptimumEffect.invokeExact(address(aHandle), objective);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public byte mp_aGetRegionEffect(Pointer aHandle, int constraint) {
+		try {
+			return (byte) mp_aGetRegionEffect.invokeExact(address(aHandle), constraint);
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public Pointer mp_aResultArray(Pointer aHandle, int which, IntByReference length) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment len = arena.allocate(Integer.BYTES, Integer.BYTES);
+			Pointer ret = pointer((MemorySegment) mp_aResultArray.invokeExact(address(aHandle), which, len));
+			if (length != null)
+				length.setValue(len.get(JAVA_INT, 0));
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public long mp_aResultsVersion(Pointer aHandle) {
+		try {
+			return (long) mp_aResultsVersion.invokeExact(address(aHandle));
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+
+	@Override
+	public int mp_aResultsRange(Pointer aHandle, int funcType, int first, int count,
+			byte[] status, byte[] shapes, byte[] effects, double[] values) {
+		try (Arena arena = Arena.ofConfined()) {
+			MemorySegment stat = allocate(arena, status);
+			MemorySegment shp = allocate(arena, shapes);
+			MemorySegment eff = allocate(arena, effects);
+			MemorySegment vals = allocate(arena, values);
+			int ret = (int) mp_aResultsRange.invokeExact(address(aHandle), funcType, first, count, stat, shp, eff, vals);
+			copyOut(stat, status);
+			copyOut(shp, shapes);
+			copyOut(eff, effects);
+			copyOut(vals, values);
+			return ret;
+		} catch (Throwable t) {
+			throw unchecked(t);
+		}
+	}
+}
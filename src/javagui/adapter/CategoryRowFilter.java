@@ -0,0 +1,36 @@
+package adapter;
+
+import misc.BitSetRowFilter;
+import model.CategoryIndex;
+
+/**
+ * Rows in one category of a model's CategoryIndex. The filter follows the
+ * index: refreshed rows move in or out as their category changed, so rows
+ * analysed while the filter is on enter or leave the view.
+ */
+abstract class CategoryRowFilter<M> extends BitSetRowFilter<M> {
+	private final int category;
+
+	CategoryRowFilter(CategoryIndex index, Enum<?> category) {
+		super(index.rows(category));
+		this.category = category.ordinal();
+	}
+
+	/**
+	 * @return The model's current index, it is replaced when the instance or
+	 * the analysis is.
+	 */
+	abstract CategoryIndex index();
+
+	@Override
+	public boolean refresh(int firstRow, int endRow) {
+		CategoryIndex index = index();
+		boolean moved = false;
+		synchronized (index) {
+			int last = Math.min(endRow, index.size() - 1);
+			for (int row = firstRow; row <= last; ++row)
+				moved |= setRow(row, index.category(row) == category);
+		}
+		return moved;
+	}
+}
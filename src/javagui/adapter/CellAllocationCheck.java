@@ -0,0 +1,258 @@
+package adapter;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javax.swing.SwingUtilities;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+import model.AnalysisInstance;
+import model.ForwardingMProbeLib;
+import model.MProbeBinding;
+import model.ProblemInstance;
+
+/**
+ * Checks that repainting rows already on screen allocates nothing, see
+ * RowCellCache. A made up instance with 100k constraints is loaded through a
+ * stand-in for the native library. The constraint table is then scrolled
+ * over all of it a viewport at a time on the event dispatch thread, reading
+ * the cells as JTable does. Each viewport is painted once to box its cells
+ * and then repainted, and the bytes the thread allocated around the
+ * repaints are compared.
+ *
+ *   java -Xint -cp classes:jna.jar adapter.CellAllocationCheck [rows]
+ *
+ * -Xint keeps the compiler's escape analysis from removing allocations that
+ * the code makes until it is compiled. Exits with status 1 if a repaint
+ * allocated.
+ */
+public final class CellAllocationCheck {
+	static final int defaultRows = 100000;
+	static final int viewportRows = 40;
+	static final int repaints = 3;
+
+	private final com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private final ConstraintTableModel model;
+	private int seen;
+
+	private CellAllocationCheck(ConstraintTableModel model) {
+		this.model = model;
+	}
+
+	public static void main(String[] args) throws Exception {
+		int rows = args.length > 0 ? Integer.parseInt(args[0]) : defaultRows;
+		MProbeBinding.install(new StandIn(rows));
+		ProblemInstance pInst = new ProblemInstance();
+		AnalysisInstance aInst = new AnalysisInstance();
+		final ConstraintTableModel model = new ConstraintTableModel(pInst, aInst);
+		pInst.load(new String[] { "standin.nl" });
+		aInst.load(pInst);
+		// The analysis is installed on the executor, its notifications on the EDT
+		while (!aInst.loaded())
+			Thread.sleep(10);
+		final long[] bytes = new long[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				CellAllocationCheck check = new CellAllocationCheck(model);
+				// The first scroll loads and compiles the code paths
+				check.scroll();
+				bytes[0] = check.scroll();
+			}
+		});
+		System.out.println(rows + " rows scrolled, " + bytes[0] + " bytes allocated by repaints.");
+		System.exit(bytes[0] == 0 ? 0 : 1);
+	}
+
+	// On the EDT, bytes allocated by the repaints of every viewport
+	private long scroll() {
+		long overhead = overhead();
+		int rows = model.getRowCount();
+		long total = 0;
+		for (int first = 0; first < rows; first += viewportRows) {
+			int end = Math.min(first + viewportRows, rows);
+			paint(first, end);
+			long before = allocated();
+			for (int i = 0; i < repaints; ++i)
+				paint(first, end);
+			total += Math.max(allocated() - before - overhead, 0);
+		}
+		return total;
+	}
+
+	private void paint(int first, int end) {
+		int columns = model.getColumnCount();
+		for (int row = first; row < end; ++row)
+			for (int column = 0; column < columns; ++column)
+				if (model.getColumnClass(column) != null && model.getValueAt(row, column) != null)
+					++seen;
+	}
+
+	private long allocated() {
+		return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	// Bytes counted by reading the counter itself
+	private long overhead() {
+		long least = Long.MAX_VALUE;
+		for (int i = 0; i < 100; ++i) {
+			long before = allocated();
+			least = Math.min(least, allocated() - before);
+		}
+		return least;
+	}
+
+	/**
+	 * Library holding an instance of rows linear constraints over rows real
+	 * variables, three per constraint, and one objective. Analysis results
+	 * are all zero.
+	 */
+	static final class StandIn extends ForwardingMProbeLib {
+		private static final int perRow = 3;
+		private final int rows;
+
+		StandIn(int rows) {
+			super(null);
+			this.rows = rows;
+		}
+
+		@Override
+		public Pointer mp_load(int numFile, String[] files) {
+			return new Pointer(1);
+		}
+
+		@Override
+		public void mp_unload(Pointer pHandle) {
+		}
+
+		@Override
+		public String mp_instanceName(Pointer pHandle) {
+			return "standin";
+		}
+
+		@Override
+		public int mp_variables(Pointer pHandle) {
+			return rows;
+		}
+
+		@Override
+		public int mp_constraints(Pointer pHandle) {
+			return rows;
+		}
+
+		@Override
+		public int mp_objectives(Pointer pHandle) {
+			return 1;
+		}
+
+		@Override
+		public int mp_GetLastError(Pointer pHandle, PointerByReference error) {
+			return 0;
+		}
+
+		@Override
+		public int mp_namesToBuf(Pointer pHandle, int type, int[] offsets, int maxLen, byte[] buf) {
+			int count = type == 'o' ? 1 : rows;
+			StringBuilder names = new StringBuilder();
+			for (int i = 0; i < count; ++i) {
+				if (offsets != null)
+					offsets[i] = names.length();
+				names.append((char) type).append(i);
+			}
+			if (offsets != null)
+				offsets[count] = names.length();
+			byte[] packed = names.toString().getBytes(StandardCharsets.UTF_8);
+			if (buf != null)
+				System.arraycopy(packed, 0, buf, 0, Math.min(maxLen, packed.length));
+			return packed.length;
+		}
+
+		@Override
+		public int mp_nonzeros(Pointer pHandle, int type) {
+			return perRow * (type == 'o' ? 1 : rows);
+		}
+
+		@Override
+		public int mp_sparsityPattern(Pointer pHandle, int type, int[] rowStarts, int maxLen, int[] columns) {
+			int count = type == 'o' ? 1 : rows;
+			for (int i = 0; i <= count; ++i)
+				rowStarts[i] = perRow * i;
+			for (int i = 0; i < perRow * count; ++i)
+				columns[i] = (i / perRow + i % perRow) % rows;
+			return perRow * count;
+		}
+
+		@Override
+		public int mp_variableTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+			Arrays.fill(types, 0, count, (byte) 'r');
+			return count;
+		}
+
+		@Override
+		public int mp_variableBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+			for (int i = 0; i < count; ++i) {
+				bounds[2 * i] = -(first + i);
+				bounds[2 * i + 1] = first + i;
+			}
+			return count;
+		}
+
+		@Override
+		public int mp_constraintTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+			Arrays.fill(types, 0, count, (byte) 'l');
+			return count;
+		}
+
+		@Override
+		public int mp_constraintBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+			return mp_variableBoundsBulk(pHandle, first, count, bounds);
+		}
+
+		@Override
+		public int mp_objectiveTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+			Arrays.fill(types, 0, count, (byte) 'm');
+			return count;
+		}
+
+		@Override
+		public int mp_functionTypesBulk(Pointer pHandle, int type, int first, int count, byte[] types) {
+			Arrays.fill(types, 0, count, (byte) 'l');
+			return count;
+		}
+
+		@Override
+		public Pointer mp_createAnalysis(Pointer pHandle) {
+			return new Pointer(2);
+		}
+
+		@Override
+		public void mp_releaseAnalysis(Pointer pHandle) {
+		}
+
+		@Override
+		public Pointer mp_aResultArray(Pointer aHandle, int which, IntByReference length) {
+			return null;
+		}
+
+		@Override
+		public long mp_aResultsVersion(Pointer aHandle) {
+			return 0;
+		}
+
+		@Override
+		public void mp_aSetHistogramBins(Pointer aHandle, int hist, int bins,
+				double firstBinWidth, double[] upperBounds) {
+		}
+
+		@Override
+		public int mp_aResultsRange(Pointer aHandle, int funcType, int first, int count,
+				byte[] status, byte[] shapes, byte[] effects, double[] values) {
+			return count;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package adapter;
+
+import misc.BitSetRowFilter;
+import model.FilterExpression;
+
+/**
+ * Rows of a table matching a FilterExpression. The filter follows the table:
+ * refreshed rows are tested again on the live indexes, so rows analysed
+ * while the filter is on enter or leave the view. A refresh of every row
+ * compiles the expression again, the table may have replaced its indexes.
+ */
+abstract class CompiledRowFilter<M> extends BitSetRowFilter<M> {
+	private final FilterExpression expression;
+	private final FilterExpression.Columns columns;
+	private FilterExpression.Compiled compiled;
+
+	CompiledRowFilter(FilterExpression expression, FilterExpression.Columns columns) throws Exception {
+		this(expression, columns, expression.compile(columns));
+	}
+
+	private CompiledRowFilter(FilterExpression expression, FilterExpression.Columns columns,
+			FilterExpression.Compiled compiled) {
+		super(compiled.rows());
+		this.expression = expression;
+		this.columns = columns;
+		this.compiled = compiled;
+	}
+
+	@Override
+	public boolean refresh(int firstRow, int endRow) {
+		if (firstRow == 0 && endRow >= columns.filterRows() - 1) {
+			try {
+				compiled = expression.compile(columns);
+			} catch (Exception e) {
+				// Keeps testing on the indexes compiled last
+				e.printStackTrace();
+			}
+		}
+		boolean moved = false;
+		int last = Math.min(endRow, compiled.size() - 1);
+		for (int row = firstRow; row <= last; ++row)
+			moved |= setRow(row, compiled.test(row));
+		return moved;
+	}
+}
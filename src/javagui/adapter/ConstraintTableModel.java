@@ -1,26 +1,64 @@
 package adapter;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Observable;
 import java.util.Observer;
 
-import javax.swing.RowFilter;
 import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
+import misc.BitSetRowFilter;
+import misc.PrimitiveSortKeys;
+import misc.ViewportPrefetch;
 import model.AnalysisInstance;
+import model.CategoryIndex;
+import model.ColumnIndex;
+import model.FilterExpression;
+import model.FunctionResults;
 import model.MProbeLib.EmpiricalShape;
 import model.MProbeLib.RegionEffect;
+import model.NameDictionary;
 import model.ProblemInstance;
 import model.ProblemInstance.ConstraintType;
 import model.ProblemInstance.FunctionShape;
 import model.ProblemInstance.FunctionType;
+import model.ProblemSnapshot;
+import model.ResultChange;
+import model.RowPages;
+import model.SparsityPattern;
 
-public class ConstraintTableModel extends AbstractTableModel implements Observer {
+public class ConstraintTableModel extends AbstractTableModel implements Observer, PrimitiveSortKeys,
+		ViewportPrefetch.Target, FilterExpression.Columns, RowPages.Listener {
 	
 	ProblemInstance pModel; // parts of adapted model
 	AnalysisInstance aModel;
 
+	// Analysis results are fetched a page of rows at a time
+	static final int resultsPageSize = 256;
+	private FunctionResults results;
+	// Cells of the rows shown lately
+	private volatile boolean cellsStale;
+	private final RowCellCache cells = new RowCellCache(ConstrTableColumn.values().length);
+	static final String inProgress = "Analysis in progress";
+	// Sorted values of the numeric columns for range filters, built on first
+	// use and kept up to date as functions are analysed
+	private final ColumnIndex[] columnIndexes = new ColumnIndex[ConstrTableColumn.values().length];
+
+	// Rows of each category for the row filters, built on first use. The
+	// result categories are kept up to date as functions are analysed.
+	private CategoryIndex algebraicShapes;
+	private CategoryIndex empiricalShapes;
+	private CategoryIndex regionEffects;
+	// Sort keys of the type column, built on first use
+	private int[] typeKeys;
+	private volatile boolean categoriesStale;
+	private volatile boolean resultCategoriesStale;
+
+	// Column names in filter expressions, in column order
+	static final String[] filterColumnNames = { "name", "id", "type", "lb", "ub", "algShape", "empShape", "regEff",
+			"totalEff", "lbEff", "ubEff", "sat", "totalVars", "realVars", "binVars" };
+
 	// Defines the column ordering
 	static final int nameIdx = 0;
 	static final int idIdx = nameIdx+1;
@@ -63,17 +101,28 @@ public class ConstraintTableModel extends AbstractTableModel implements Observer
 			columnIdx = col;
 			headerStr = header;
 		}
+		private static final ConstrTableColumn[] byColumn = new ConstrTableColumn[values().length];
+		static {
+			for (ConstrTableColumn cCol : values())
+				byColumn[cCol.columnIdx] = cCol;
+		}
+
+		// values() hands out a new array, JTable asks for the count on every paint
+		static int count() {
+			return byColumn.length;
+		}
+
 		static ConstrTableColumn fromColumn(int col) {
-			for (ConstrTableColumn cCol : ConstrTableColumn.values())
-				if (cCol.columnIdx == col)
-					return cCol;
-			return null;
+			if (col < 0 || col >= byColumn.length)
+				return null;
+			return byColumn[col];
 		}
 	}
 
 	public ConstraintTableModel(ProblemInstance pInst, AnalysisInstance aInst) {
 		pModel = pInst;
 		pModel.addObserver(this);
+		pModel.addRowsListener(this);
 
 		aModel = aInst;
 		aModel.addObserver(this);
@@ -97,7 +146,7 @@ public class ConstraintTableModel extends AbstractTableModel implements Observer
 		
 		switch (ConstrTableColumn.fromColumn(column)) {
 		case Name:
-			return String.class;
+			return NameDictionary.Name.class;
 		case Identifier:
 		case TotVars:
 		case RealVars:
@@ -125,7 +174,7 @@ public class ConstraintTableModel extends AbstractTableModel implements Observer
 
 	@Override
 	public int getColumnCount() {
-		return ConstrTableColumn.values().length;
+		return ConstrTableColumn.count();
 	}
 
 	@Override
@@ -135,9 +184,10 @@ public class ConstraintTableModel extends AbstractTableModel implements Observer
 
 	@Override
 	public int getRowCount() {
-		if (!pModel.loaded())
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null)
 			return 0;
-		return pModel.constraints();
+		return snapshot.constraints();
 	}
 
 	private enum VarCount {
@@ -146,53 +196,464 @@ public class ConstraintTableModel extends AbstractTableModel implements Observer
 
 	@Override
 	public Object getValueAt(int row, int column) {
-		if (!pModel.loaded() || !aModel.loaded())
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
 			return "";
 		
+		if (isResultColumn(column) && aModel.isAnalysing(FunctionType.Constraint, row))
+			return inProgress;
+		long generation = aModel.generation(FunctionType.Constraint, row);
+		synchronized (cells) {
+			if (cellsStale) {
+				cellsStale = false;
+				cells.clear();
+			}
+			Object[] values = cells.get(row, generation);
+			if (values == null)
+				values = cells.put(row, generation);
+			Object value = values[column];
+			if (value == null) {
+				try {
+					value = loadCell(snapshot, row, column);
+				} catch (Exception e1) {
+					e1.printStackTrace();
+					cells.invalidate(row);
+					return "Error";
+				}
+				values[column] = value;
+			}
+			return value;
+		}
+	}
+
+	private static boolean isResultColumn(int column) {
+		switch (column) {
+		case empShapeIdx:
+		case regEffIdx:
+		case totEffIdx:
+		case lbEffIdx:
+		case ubEffIdx:
+		case satIdx:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	// Boxes one cell, handed out from the cache until the row's results change
+	private Object loadCell(ProblemSnapshot snapshot, int row, int column) throws Exception {
+		switch (column) {
+		case nameIdx:
+			return pModel.constraintNames().name(row);
+		case idIdx:
+			return Integer.valueOf(row);
+		case typeIdx:
+			return snapshot.constraintType(row);
+		case lbIdx:
+			return RowCellCache.bound(snapshot, snapshot.constraintLowerBound(row));
+		case ubIdx:
+			return RowCellCache.bound(snapshot, snapshot.constraintUpperBound(row));
+		case algShapeIdx:
+			return snapshot.functionShape(FunctionType.Constraint, row);
+		case empShapeIdx:
+			return results(row).getEmpiricalShape(row);
+		case regEffIdx:
+			return results(row).getRegionEffect(row);
+		case totEffIdx:
+			return Double.valueOf(results(row).getTotalEffectiveness(row));
+		case lbEffIdx:
+			return Double.valueOf(results(row).getLowerBoundEffectiveness(row));
+		case ubEffIdx:
+			return Double.valueOf(results(row).getUpperBoundEffectiveness(row));
+		case satIdx:
+			return Double.valueOf(results(row).getIneffectiveness(row));
+		case totVarsIdx:
+			return Integer.valueOf(countVariables(row, VarCount.Total));
+		case realVarsIdx:
+			return Integer.valueOf(countVariables(row, VarCount.Real));
+		case binVarsIdx:
+			return Integer.valueOf(countVariables(row, VarCount.Binary));
+		default:
+			return null;
+		}
+	}
+
+	// Refreshes the cached results of one constraint and repaints its row only
+	private void resultsChanged(int row) {
+		try {
+			FunctionResults update = aModel.getResults(FunctionType.Constraint, row, 1);
+			FunctionResults page = results;
+			if (page != null && page.contains(row))
+				results = page.merge(update);
+			categorize(update, row, 1);
+			reindex(update, row);
+		} catch (Exception e) {
+			e.printStackTrace();
+			results = null;
+			dropResultCategories();
+		}
+		// May have been cached from the page before the merge
+		synchronized (cells) {
+			cells.invalidate(row);
+		}
+		fireTableRowsUpdated(row, row);
+	}
+
+	private FunctionResults results(int row) throws Exception {
+		FunctionResults page = results;
+		if (page == null || !page.contains(row)) {
+			int first = row - row % resultsPageSize;
+			page = aModel.getResults(FunctionType.Constraint, first,
+					Math.min(resultsPageSize, pModel.constraints() - first));
+			results = page;
+		}
+		return page;
+	}
+
+	@Override
+	public void prefetchRows(int[] rows) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot != null)
+			snapshot.prefetch(RowPages.Kind.Constraints, rows);
+	}
+
+	@Override
+	public void rowsLoaded(RowPages.Kind kind, int first, int last) {
+		if (kind != RowPages.Kind.Constraints)
+			return;
+		int n = getRowCount();
+		if (first >= n)
+			return;
+		// Only the bound cells of the page were placeholders, they aren't
+		// cached. Columns read whole are updated at once, see columnLoaded.
+		ProblemSnapshot snapshot = pModel.snapshot();
+		for (int column : new int[] { lbIdx, ubIdx }) {
+			if (snapshot != null && !snapshot.boundColumnRequested(kind, column == ubIdx))
+				fireTableChanged(new TableModelEvent(this, first, Math.min(last, n - 1), column));
+		}
+	}
+
+	@Override
+	public void columnLoaded(RowPages.Kind kind, boolean upper) {
+		int n = getRowCount();
+		if (kind != RowPages.Kind.Constraints || n == 0)
+			return;
+		fireTableChanged(new TableModelEvent(this, 0, n - 1, upper ? ubIdx : lbIdx));
+	}
+
+	@Override
+	public int[] intSortKeys(int column) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
+			return null;
+		int count = snapshot.constraints();
+		int[] keys;
 		try {
 			switch (ConstrTableColumn.fromColumn(column)) {
 			case Name:
-				return pModel.constraintName(row);
+				return pModel.constraintNames().ranks();
 			case Identifier:
-				return new Integer(row);
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = i;
+				return keys;
 			case Type:
-				return pModel.constraintType(row);
-			case LowerBound:
-				return new Double(pModel.constraintBounds(row)[0]);
-			case UpperBound:
-				return new Double(pModel.constraintBounds(row)[1]);
+				return typeKeys(snapshot);
 			case AlgebraicShape:
-				return pModel.functionType(FunctionType.Constraint, row);
+				return categories(algebraicShapes(), count);
 			case EmpricalShape:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getEmpiricalShape(FunctionType.Constraint, row));
+				return categories(empiricalShapes(), count);
 			case RegionEffect:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getRegionEffect(row));
+				return categories(regionEffects(), count);
+			case TotVars:
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = countVariables(i, VarCount.Total);
+				return keys;
+			case RealVars:
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = countVariables(i, VarCount.Real);
+				return keys;
+			case BinVars:
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = countVariables(i, VarCount.Binary);
+				return keys;
+			default:
+				return null;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private synchronized int[] typeKeys(ProblemSnapshot snapshot) throws Exception {
+		applyDrops();
+		if (typeKeys == null) {
+			byte[] types = snapshot.types(RowPages.Kind.Constraints);
+			int[] keys = new int[types.length];
+			for (int i = 0; i < keys.length; ++i)
+				keys[i] = ProblemInstance.toConstraintType(types[i]).ordinal();
+			typeKeys = keys;
+		}
+		return typeKeys;
+	}
+
+	private static int[] categories(CategoryIndex index, int count) {
+		if (index.size() != count)
+			return null;
+		return index.categories();
+	}
+
+	@Override
+	public double[] doubleSortKeys(int column) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
+			return null;
+		int count = snapshot.constraints();
+		double[] keys;
+		try {
+			switch (ConstrTableColumn.fromColumn(column)) {
+			case LowerBound:
+			case UpperBound:
+				keys = snapshot.boundColumn(RowPages.Kind.Constraints, column == ubIdx);
+				// Model order until the column is read, see columnLoaded
+				return keys != null ? keys : new double[count];
 			case TotEffectiveness:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getEffectiveness(row).getTotalEffectiveness());
+				keys = new double[count];
+				FunctionResults all = allResults(count);
+				for (int i = 0; i < count; ++i)
+					keys[i] = all.getTotalEffectiveness(i);
+				return keys;
 			case LBEffectiveness:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getEffectiveness(row).getLowerBoundEffectiveness());
+				keys = new double[count];
+				all = allResults(count);
+				for (int i = 0; i < count; ++i)
+					keys[i] = all.getLowerBoundEffectiveness(i);
+				return keys;
 			case UBEffectiveness:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getEffectiveness(row).getUpperBoundEffectiveness());
+				keys = new double[count];
+				all = allResults(count);
+				for (int i = 0; i < count; ++i)
+					keys[i] = all.getUpperBoundEffectiveness(i);
+				return keys;
 			case Satisfied:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getEffectiveness(row).getIneffectiveness());
-			case TotVars:
-				return new Integer(countVariables(row, VarCount.Total));
-			case RealVars:
-				return new Integer(countVariables(row, VarCount.Real));
-			case BinVars:
-				return new Integer(countVariables(row, VarCount.Binary));
+				keys = new double[count];
+				all = allResults(count);
+				for (int i = 0; i < count; ++i)
+					keys[i] = all.getIneffectiveness(i);
+				return keys;
 			default:
-				return "";
+				return null;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	// Results of all constraints with a single call
+	private FunctionResults allResults(int count) throws Exception {
+		if (count == 0)
+			return null;
+		return aModel.getResults(FunctionType.Constraint, 0, count);
+	}
+
+	synchronized CategoryIndex algebraicShapes() {
+		applyDrops();
+		if (algebraicShapes == null) {
+			ProblemSnapshot snapshot = pModel.snapshot();
+			int count = snapshot == null ? 0 : snapshot.constraints();
+			CategoryIndex index = new CategoryIndex(count);
+			try {
+				byte[] shapes = count == 0 ? null : snapshot.shapes(FunctionType.Constraint);
+				for (int i = 0; i < count; ++i)
+					index.set(i, ProblemInstance.toFunctionShape(shapes[i]));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			algebraicShapes = index;
+		}
+		return algebraicShapes;
+	}
+
+	synchronized CategoryIndex empiricalShapes() {
+		applyDrops();
+		if (empiricalShapes == null)
+			loadResultCategories();
+		return empiricalShapes;
+	}
+
+	synchronized CategoryIndex regionEffects() {
+		applyDrops();
+		if (regionEffects == null)
+			loadResultCategories();
+		return regionEffects;
+	}
+
+	private void loadResultCategories() {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		int count = snapshot == null || !aModel.loaded() ? 0 : snapshot.constraints();
+		empiricalShapes = new CategoryIndex(count);
+		regionEffects = new CategoryIndex(count);
+		if (count == 0)
+			return;
+		try {
+			setCategories(aModel.getResults(FunctionType.Constraint, 0, count), 0, count);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private synchronized void categorize(FunctionResults update, int first, int count) {
+		applyDrops();
+		if (empiricalShapes != null)
+			setCategories(update, first, count);
+	}
+
+	private void setCategories(FunctionResults update, int first, int count) {
+		for (int i = first; i < first + count; ++i) {
+			empiricalShapes.set(i, update.getEmpiricalShape(i));
+			regionEffects.set(i, update.getRegionEffect(i));
+		}
+	}
+
+	static boolean isNumericColumn(int column) {
+		switch (column) {
+		case idIdx:
+		case lbIdx:
+		case ubIdx:
+		case totEffIdx:
+		case lbEffIdx:
+		case ubEffIdx:
+		case satIdx:
+		case totVarsIdx:
+		case realVarsIdx:
+		case binVarsIdx:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return Sorted index of a numeric column, null for other columns.
+	 * @throws Exception if the bounds of a paged instance are still being read.
+	 */
+	synchronized ColumnIndex columnIndex(int column) throws Exception {
+		if (!isNumericColumn(column))
+			return null;
+		applyDrops();
+		if (columnIndexes[column] == null && (column == lbIdx || column == ubIdx)) {
+			ProblemSnapshot snapshot = pModel.snapshot();
+			if (snapshot == null)
+				return null;
+			double[] bounds = snapshot.boundColumn(RowPages.Kind.Constraints, column == ubIdx);
+			if (bounds == null)
+				throw new Exception("The bounds are still being read, try again shortly.");
+			columnIndexes[column] = new ColumnIndex(bounds);
+		}
+		if (columnIndexes[column] == null) {
+			double[] doubles = doubleSortKeys(column);
+			if (doubles != null)
+				columnIndexes[column] = new ColumnIndex(doubles);
+			else {
+				int[] ints = intSortKeys(column);
+				if (ints != null)
+					columnIndexes[column] = new ColumnIndex(ints);
 			}
-		} catch (Exception e1) {
-			e1.printStackTrace();
-			return "Error";
+		}
+		return columnIndexes[column];
+	}
+
+	private synchronized void reindex(FunctionResults update, int row) {
+		applyDrops();
+		if (columnIndexes[totEffIdx] != null)
+			columnIndexes[totEffIdx].set(row, update.getTotalEffectiveness(row));
+		if (columnIndexes[lbEffIdx] != null)
+			columnIndexes[lbEffIdx].set(row, update.getLowerBoundEffectiveness(row));
+		if (columnIndexes[ubEffIdx] != null)
+			columnIndexes[ubEffIdx].set(row, update.getUpperBoundEffectiveness(row));
+		if (columnIndexes[satIdx] != null)
+			columnIndexes[satIdx].set(row, update.getIneffectiveness(row));
+	}
+
+	@Override
+	public int filterRows() {
+		return getRowCount();
+	}
+
+	@Override
+	public int filterColumn(String name) {
+		return FilterExpression.column(name, filterColumnNames);
+	}
+
+	@Override
+	public CategoryIndex filterCategories(int column) {
+		switch (column) {
+		case algShapeIdx:
+			return algebraicShapes();
+		case empShapeIdx:
+			return empiricalShapes();
+		case regEffIdx:
+			return regionEffects();
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public int filterCategory(int column, String value) throws Exception {
+		switch (column) {
+		case algShapeIdx:
+			return FilterExpression.category(FunctionShape.values(), value);
+		case empShapeIdx:
+			return FilterExpression.category(EmpiricalShape.values(), value);
+		default:
+			return FilterExpression.category(RegionEffect.values(), value);
+		}
+	}
+
+	@Override
+	public ColumnIndex filterIndex(int column) throws Exception {
+		return columnIndex(column);
+	}
+
+	@Override
+	public NameDictionary filterNames(int column) {
+		return column == nameIdx ? pModel.constraintNames() : null;
+	}
+
+	// Model notifications only mark the categories and indexes stale, they
+	// may come with the analysis locked while a reader holding this model's
+	// lock waits for the analysis. The next reader drops them.
+	private void dropResultCategories() {
+		resultCategoriesStale = true;
+	}
+
+	private void dropCategories() {
+		categoriesStale = true;
+		resultCategoriesStale = true;
+	}
+
+	// Called with this model locked
+	private void applyDrops() {
+		if (categoriesStale) {
+			categoriesStale = false;
+			algebraicShapes = null;
+			typeKeys = null;
+			Arrays.fill(columnIndexes, null);
+		}
+		if (resultCategoriesStale) {
+			resultCategoriesStale = false;
+			columnIndexes[totEffIdx] = null;
+			columnIndexes[lbEffIdx] = null;
+			columnIndexes[ubEffIdx] = null;
+			columnIndexes[satIdx] = null;
+			empiricalShapes = null;
+			regionEffects = null;
 		}
 	}
 
@@ -205,47 +666,38 @@ public class ConstraintTableModel extends AbstractTableModel implements Observer
 		}
 	}
 
+	// See dropCategories
+	private void clearCells() {
+		cellsStale = true;
+	}
+
 	@Override
 	public void update(Observable o, Object arg) {
-		if ((Object) o == (Object) pModel)
+		if ((Object) o == (Object) pModel) {
+			dropCategories();
+			clearCells();
 			fireTableChanged(new TableModelEvent(this));
-		else if ((Object) o == (Object) aModel)
+		}
+		else if ((Object) o == (Object) aModel) {
+			if (arg instanceof ResultChange) {
+				ResultChange change = (ResultChange) arg;
+				if (change.getFunctionType() == FunctionType.Constraint)
+					resultsChanged(change.getFunction());
+				return;
+			}
+			results = null;
+			dropResultCategories();
+			clearCells();
 			fireTableChanged(new TableModelEvent(this));
+		}
 	}
 
 	private int countVariables(int constraint, VarCount count) {
-		int[] variables = new int[pModel.variables() + 1];
-		int total = 0;
-		int real = 0;
-		int integer = 0;
-		int binary = 0;
-		try {
-			total = pModel.constraintVariables(constraint, variables);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		// Early out
-		if (count == VarCount.Total)
-			return total;
+		SparsityPattern pattern = pModel.constraintPattern();
+		int real = pattern.realVariables(constraint);
+		int integer = pattern.integerVariables(constraint);
+		int binary = pattern.binaryVariables(constraint);
 
-		for (int i = 0; i < total; ++i) {
-			try {
-				switch (pModel.variableType(variables[i])) {
-				case Real:
-					++real;
-					break;
-				case Integer:
-					++integer;
-					break;
-				case Binary:
-					++binary;
-					break;
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
 		switch (count) {
 		case Real:
 			return real;
@@ -255,66 +707,70 @@ public class ConstraintTableModel extends AbstractTableModel implements Observer
 			return binary;
 		case IntPBin:
 			return integer + binary;
+		case Total:
+			return pattern.functionDegree(constraint);
 		default:
 			return -1;
 		}
 	}
 	
-	public class AlgebraicShapeRowFilter extends RowFilter<ConstraintTableModel, Integer> {
-		
-		private FunctionShape shapeToInclude;
+	public class AlgebraicShapeRowFilter extends CategoryRowFilter<ConstraintTableModel> {
 		
 		public AlgebraicShapeRowFilter(FunctionShape shape)
 		{
-			shapeToInclude = shape;
+			super(algebraicShapes(), shape);
 		}
-		
-		 @Override
-		public boolean include(Entry<? extends ConstraintTableModel, ? extends Integer> entry) {
-			 FunctionShape shape = (FunctionShape)
-					 entry.getModel().getValueAt(entry.getIdentifier(), algShapeIdx);
-			 return shape == shapeToInclude;
+
+		@Override
+		CategoryIndex index() {
+			return algebraicShapes();
 		}
 	}
 	
-	public class EmpiricalShapeRowFilter extends RowFilter<ConstraintTableModel, Integer> {
-		
-		private EmpiricalShape shapeToInclude;
+	public class EmpiricalShapeRowFilter extends CategoryRowFilter<ConstraintTableModel> {
 		
 		public EmpiricalShapeRowFilter(EmpiricalShape shape)
 		{
-			shapeToInclude = shape;
+			super(empiricalShapes(), shape);
 		}
 
 		@Override
-		public boolean include(Entry<? extends ConstraintTableModel, ? extends Integer> entry) {
-			Object value = entry.getModel().getValueAt(entry.getIdentifier(), empShapeIdx);
-			if (value instanceof EmpiricalShape)
-			{
-				EmpiricalShape shape = (EmpiricalShape) value;
-				return shape.toInt() == shapeToInclude.toInt();
-			}
-			else
-			{
-				return true;
-			}
+		CategoryIndex index() {
+			return empiricalShapes();
 		}
 	}
 
-	public class ConstraintRowFilter extends RowFilter<ConstraintTableModel, Integer> {
+	public class RegionEffectRowFilter extends CategoryRowFilter<ConstraintTableModel> {
 		
-		private int[] constraints;
+		public RegionEffectRowFilter(RegionEffect effect)
+		{
+			super(regionEffects(), effect);
+		}
+
+		@Override
+		CategoryIndex index() {
+			return regionEffects();
+		}
+	}
+
+	public class ExpressionRowFilter extends CompiledRowFilter<ConstraintTableModel> {
+		
+		public ExpressionRowFilter(FilterExpression expression) throws Exception
+		{
+			super(expression, ConstraintTableModel.this);
+		}
+	}
+
+	public class ConstraintRowFilter extends BitSetRowFilter<ConstraintTableModel> {
 		
 		public ConstraintRowFilter(int[] constr)
 		{
-			constraints = constr.clone();
-			Arrays.sort(constraints);
+			super(constr);
 		}
 		
-		 @Override
-		public boolean include(Entry<? extends ConstraintTableModel, ? extends Integer> entry) {
-			 int constraint = (Integer) entry.getModel().getValueAt(entry.getIdentifier(), idIdx);
-			 return Arrays.binarySearch(constraints, constraint) >= 0;
+		public ConstraintRowFilter(BitSet constr)
+		{
+			super(constr);
 		}
 	}
 }
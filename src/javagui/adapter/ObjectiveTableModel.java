@@ -1,28 +1,65 @@
 package adapter;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Observable;
 import java.util.Observer;
 
-import javax.swing.RowFilter;
-import javax.swing.RowFilter.Entry;
 import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
+import misc.BitSetRowFilter;
+import misc.PrimitiveSortKeys;
+import misc.ViewportPrefetch;
 import model.AnalysisInstance;
+import model.CategoryIndex;
+import model.ColumnIndex;
+import model.FilterExpression;
+import model.FunctionResults;
 import model.MProbeLib.EmpiricalShape;
 import model.MProbeLib.OptimumEffect;
+import model.NameDictionary;
 import model.ProblemInstance;
 import model.ProblemInstance.FunctionShape;
 import model.ProblemInstance.FunctionType;
 import model.ProblemInstance.ObjectiveType;
+import model.ProblemSnapshot;
+import model.ResultChange;
+import model.RowPages;
+import model.SparsityPattern;
 
-public class ObjectiveTableModel extends AbstractTableModel implements Observer {
+public class ObjectiveTableModel extends AbstractTableModel implements Observer, PrimitiveSortKeys,
+		ViewportPrefetch.Target, FilterExpression.Columns {
 
 	// parts of adapted model
 	private ProblemInstance pModel;
 	private AnalysisInstance aModel;
+
+	// Analysis results are fetched a page of rows at a time
+	static final int resultsPageSize = 256;
+	private FunctionResults results;
+	// Cells of the rows shown lately
+	private volatile boolean cellsStale;
+	private final RowCellCache cells = new RowCellCache(ObjTableColumn.values().length);
+	static final String inProgress = "Analysis in progress";
+	// Sorted values of the numeric columns for range filters, built on first
+	// use and kept up to date as functions are analysed
+	private final ColumnIndex[] columnIndexes = new ColumnIndex[ObjTableColumn.values().length];
+
+	// Rows of each category for the row filters, built on first use. The
+	// result categories are kept up to date as functions are analysed.
+	private CategoryIndex algebraicShapes;
+	// Sort keys of the type column, built on first use
+	private int[] typeKeys;
+	private CategoryIndex empiricalShapes;
+	private CategoryIndex optimumEffects;
+	private volatile boolean categoriesStale;
+	private volatile boolean resultCategoriesStale;
 	
+	// Column names in filter expressions, in column order
+	static final String[] filterColumnNames = { "name", "id", "type", "algShape", "empShape", "optEff", "bestVal",
+			"totalVars", "realVars", "intBinVars", "binVars" };
+
 	// Defines the column ordering
 	static final int nameIdx = 0;
 	static final int idIdx = nameIdx+1;
@@ -57,11 +94,21 @@ public class ObjectiveTableModel extends AbstractTableModel implements Observer
 			columnIdx = col;
 			headerStr = header;
 		}
+		private static final ObjTableColumn[] byColumn = new ObjTableColumn[values().length];
+		static {
+			for (ObjTableColumn oCol : values())
+				byColumn[oCol.columnIdx] = oCol;
+		}
+
+		// values() hands out a new array, JTable asks for the count on every paint
+		static int count() {
+			return byColumn.length;
+		}
+
 		static ObjTableColumn fromColumn(int col) {
-			for (ObjTableColumn oCol : ObjTableColumn.values())
-				if (oCol.columnIdx == col)
-					return oCol;
-			return null;
+			if (col < 0 || col >= byColumn.length)
+				return null;
+			return byColumn[col];
 		}
 	}
 
@@ -88,7 +135,7 @@ public class ObjectiveTableModel extends AbstractTableModel implements Observer
 		
 		switch (col) {
 		case Name:
-			return String.class;
+			return NameDictionary.Name.class;
 		case Identifier:
 		case TotVars:
 		case RealVars:
@@ -112,7 +159,7 @@ public class ObjectiveTableModel extends AbstractTableModel implements Observer
 
 	@Override
 	public int getColumnCount() {
-		return ObjTableColumn.values().length;
+		return ObjTableColumn.count();
 	}
 
 	@Override
@@ -122,9 +169,10 @@ public class ObjectiveTableModel extends AbstractTableModel implements Observer
 
 	@Override
 	public int getRowCount() {
-		if (!pModel.loaded())
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null)
 			return 0;
-		return pModel.objectives();
+		return snapshot.objectives();
 	}
 
 	private enum VarCount {
@@ -133,43 +181,378 @@ public class ObjectiveTableModel extends AbstractTableModel implements Observer
 
 	@Override
 	public Object getValueAt(int row, int column) {
-		if (!pModel.loaded() || !aModel.loaded())
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
 			return "";
 		
+		if (isResultColumn(column) && aModel.isAnalysing(FunctionType.Objective, row))
+			return inProgress;
+		long generation = aModel.generation(FunctionType.Objective, row);
+		synchronized (cells) {
+			if (cellsStale) {
+				cellsStale = false;
+				cells.clear();
+			}
+			Object[] values = cells.get(row, generation);
+			if (values == null)
+				values = cells.put(row, generation);
+			Object value = values[column];
+			if (value == null) {
+				try {
+					value = loadCell(snapshot, row, column);
+				} catch (Exception e1) {
+					e1.printStackTrace();
+					cells.invalidate(row);
+					return "Error";
+				}
+				values[column] = value;
+			}
+			return value;
+		}
+	}
+
+	private static boolean isResultColumn(int column) {
+		switch (column) {
+		case empShapeIdx:
+		case optEffIdx:
+		case bestValIdx:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	// Boxes one cell, handed out from the cache until the row's results change
+	private Object loadCell(ProblemSnapshot snapshot, int row, int column) throws Exception {
+		switch (column) {
+		case nameIdx:
+			return pModel.objectiveNames().name(row);
+		case idIdx:
+			return Integer.valueOf(row);
+		case typeIdx:
+			return snapshot.objectiveType(row);
+		case algShapeIdx:
+			return snapshot.functionShape(FunctionType.Objective, row);
+		case empShapeIdx:
+			return results(row).getEmpiricalShape(row);
+		case optEffIdx:
+			return results(row).getOptimumEffect(row);
+		case bestValIdx:
+			return results(row).getBestValue(row);
+		case totVarsIdx:
+			return Integer.valueOf(countVariables(row, VarCount.Total));
+		case realVarsIdx:
+			return Integer.valueOf(countVariables(row, VarCount.Real));
+		case intPBinVarsIdx:
+			return Integer.valueOf(countVariables(row, VarCount.IntPBin));
+		case binVarsIdx:
+			return Integer.valueOf(countVariables(row, VarCount.Binary));
+		default:
+			return null;
+		}
+	}
+
+	// Refreshes the cached results of one objective and repaints its row only
+	private void resultsChanged(int row) {
+		try {
+			FunctionResults update = aModel.getResults(FunctionType.Objective, row, 1);
+			FunctionResults page = results;
+			if (page != null && page.contains(row))
+				results = page.merge(update);
+			categorize(update, row, 1);
+			reindex(update, row);
+		} catch (Exception e) {
+			e.printStackTrace();
+			results = null;
+			dropResultCategories();
+		}
+		// May have been cached from the page before the merge
+		synchronized (cells) {
+			cells.invalidate(row);
+		}
+		fireTableRowsUpdated(row, row);
+	}
+
+	private FunctionResults results(int row) throws Exception {
+		FunctionResults page = results;
+		if (page == null || !page.contains(row)) {
+			int first = row - row % resultsPageSize;
+			page = aModel.getResults(FunctionType.Objective, first,
+					Math.min(resultsPageSize, pModel.objectives() - first));
+			results = page;
+		}
+		return page;
+	}
+
+	@Override
+	public void prefetchRows(int[] rows) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot != null)
+			snapshot.prefetch(RowPages.Kind.Objectives, rows);
+	}
+
+	@Override
+	public int[] intSortKeys(int column) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
+			return null;
+		int count = snapshot.objectives();
+		int[] keys;
 		try {
 			switch (ObjTableColumn.fromColumn(column)) {
 			case Name:
-				return pModel.objectiveName(row);
+				return pModel.objectiveNames().ranks();
 			case Identifier:
-				return new Integer(row);
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = i;
+				return keys;
 			case Type:
-				return pModel.objectiveType(row);
+				return typeKeys(snapshot);
 			case AlgebraicShape:
-				return pModel.functionType(
-							ProblemInstance.FunctionType.Objective, row);
+				return categories(algebraicShapes(), count);
 			case EmpricalShape:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getEmpiricalShape(ProblemInstance.FunctionType.Objective, row));
+				return categories(empiricalShapes(), count);
 			case OptimumEffect:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getOptimumEffect(row));
-			case BestValue:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-					aModel.getBestvalue(row));
+				return categories(optimumEffects(), count);
 			case TotVars:
-				return new Integer(countVariables(row, VarCount.Total));
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = countVariables(i, VarCount.Total);
+				return keys;
 			case RealVars:
-				return new Integer(countVariables(row, VarCount.Real));
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = countVariables(i, VarCount.Real);
+				return keys;
 			case IntPBinVars:
-				return new Integer(countVariables(row, VarCount.IntPBin));
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = countVariables(i, VarCount.IntPBin);
+				return keys;
 			case BinVars:
-				return new Integer(countVariables(row, VarCount.Binary));
+				keys = new int[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = countVariables(i, VarCount.Binary);
+				return keys;
 			default:
-				return "";
+				return null;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private synchronized int[] typeKeys(ProblemSnapshot snapshot) throws Exception {
+		applyDrops();
+		if (typeKeys == null) {
+			byte[] types = snapshot.types(RowPages.Kind.Objectives);
+			int[] keys = new int[types.length];
+			for (int i = 0; i < keys.length; ++i)
+				keys[i] = ProblemInstance.toObjectiveType(types[i]).ordinal();
+			typeKeys = keys;
+		}
+		return typeKeys;
+	}
+
+	private static int[] categories(CategoryIndex index, int count) {
+		if (index.size() != count)
+			return null;
+		return index.categories();
+	}
+
+	@Override
+	public double[] doubleSortKeys(int column) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (column != bestValIdx || snapshot == null || !aModel.loaded())
+			return null;
+		int count = snapshot.objectives();
+		double[] keys = new double[count];
+		if (count == 0)
+			return keys;
+		try {
+			// All results with a single call, NaN where there is no extremum
+			FunctionResults all = aModel.getResults(FunctionType.Objective, 0, count);
+			for (int i = 0; i < count; ++i)
+				keys[i] = all.getExtremum(i);
+			return keys;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	synchronized CategoryIndex algebraicShapes() {
+		applyDrops();
+		if (algebraicShapes == null) {
+			ProblemSnapshot snapshot = pModel.snapshot();
+			int count = snapshot == null ? 0 : snapshot.objectives();
+			CategoryIndex index = new CategoryIndex(count);
+			try {
+				byte[] shapes = count == 0 ? null : snapshot.shapes(FunctionType.Objective);
+				for (int i = 0; i < count; ++i)
+					index.set(i, ProblemInstance.toFunctionShape(shapes[i]));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			algebraicShapes = index;
+		}
+		return algebraicShapes;
+	}
+
+	synchronized CategoryIndex empiricalShapes() {
+		applyDrops();
+		if (empiricalShapes == null)
+			loadResultCategories();
+		return empiricalShapes;
+	}
+
+	synchronized CategoryIndex optimumEffects() {
+		applyDrops();
+		if (optimumEffects == null)
+			loadResultCategories();
+		return optimumEffects;
+	}
+
+	private void loadResultCategories() {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		int count = snapshot == null || !aModel.loaded() ? 0 : snapshot.objectives();
+		empiricalShapes = new CategoryIndex(count);
+		optimumEffects = new CategoryIndex(count);
+		if (count == 0)
+			return;
+		try {
+			setCategories(aModel.getResults(FunctionType.Objective, 0, count), 0, count);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private synchronized void categorize(FunctionResults update, int first, int count) {
+		applyDrops();
+		if (empiricalShapes != null)
+			setCategories(update, first, count);
+	}
+
+	private void setCategories(FunctionResults update, int first, int count) {
+		for (int i = first; i < first + count; ++i) {
+			empiricalShapes.set(i, update.getEmpiricalShape(i));
+			optimumEffects.set(i, update.getOptimumEffect(i));
+		}
+	}
+
+	static boolean isNumericColumn(int column) {
+		switch (column) {
+		case idIdx:
+		case bestValIdx:
+		case totVarsIdx:
+		case realVarsIdx:
+		case intPBinVarsIdx:
+		case binVarsIdx:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return Sorted index of a numeric column, null for other columns.
+	 */
+	synchronized ColumnIndex columnIndex(int column) {
+		if (!isNumericColumn(column))
+			return null;
+		applyDrops();
+		if (columnIndexes[column] == null) {
+			double[] doubles = doubleSortKeys(column);
+			if (doubles != null)
+				columnIndexes[column] = new ColumnIndex(doubles);
+			else {
+				int[] ints = intSortKeys(column);
+				if (ints != null)
+					columnIndexes[column] = new ColumnIndex(ints);
 			}
-		} catch (Exception e1) {
-			e1.printStackTrace();
-			return "Error";
+		}
+		return columnIndexes[column];
+	}
+
+	private synchronized void reindex(FunctionResults update, int row) {
+		applyDrops();
+		if (columnIndexes[bestValIdx] != null)
+			columnIndexes[bestValIdx].set(row, update.getExtremum(row));
+	}
+
+	@Override
+	public int filterRows() {
+		return getRowCount();
+	}
+
+	@Override
+	public int filterColumn(String name) {
+		return FilterExpression.column(name, filterColumnNames);
+	}
+
+	@Override
+	public CategoryIndex filterCategories(int column) {
+		switch (column) {
+		case algShapeIdx:
+			return algebraicShapes();
+		case empShapeIdx:
+			return empiricalShapes();
+		case optEffIdx:
+			return optimumEffects();
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public int filterCategory(int column, String value) throws Exception {
+		switch (column) {
+		case algShapeIdx:
+			return FilterExpression.category(FunctionShape.values(), value);
+		case empShapeIdx:
+			return FilterExpression.category(EmpiricalShape.values(), value);
+		default:
+			return FilterExpression.category(OptimumEffect.values(), value);
+		}
+	}
+
+	@Override
+	public ColumnIndex filterIndex(int column) {
+		return columnIndex(column);
+	}
+
+	@Override
+	public NameDictionary filterNames(int column) {
+		return column == nameIdx ? pModel.objectiveNames() : null;
+	}
+
+	// Model notifications only mark the categories and indexes stale, they
+	// may come with the analysis locked while a reader holding this model's
+	// lock waits for the analysis. The next reader drops them.
+	private void dropResultCategories() {
+		resultCategoriesStale = true;
+	}
+
+	private void dropCategories() {
+		categoriesStale = true;
+		resultCategoriesStale = true;
+	}
+
+	// Called with this model locked
+	private void applyDrops() {
+		if (categoriesStale) {
+			categoriesStale = false;
+			algebraicShapes = null;
+			typeKeys = null;
+			Arrays.fill(columnIndexes, null);
+		}
+		if (resultCategoriesStale) {
+			resultCategoriesStale = false;
+			columnIndexes[bestValIdx] = null;
+			empiricalShapes = null;
+			optimumEffects = null;
 		}
 	}
 
@@ -182,47 +565,38 @@ public class ObjectiveTableModel extends AbstractTableModel implements Observer
 		}
 	}
 
+	// See dropCategories
+	private void clearCells() {
+		cellsStale = true;
+	}
+
 	@Override
 	public void update(Observable o, Object arg) {
-		if ((Object) o == (Object) pModel)
+		if ((Object) o == (Object) pModel) {
+			dropCategories();
+			clearCells();
 			fireTableChanged(new TableModelEvent(this));
-		else if ((Object) o == (Object) aModel)
+		}
+		else if ((Object) o == (Object) aModel) {
+			if (arg instanceof ResultChange) {
+				ResultChange change = (ResultChange) arg;
+				if (change.getFunctionType() == FunctionType.Objective)
+					resultsChanged(change.getFunction());
+				return;
+			}
+			results = null;
+			dropResultCategories();
+			clearCells();
 			fireTableChanged(new TableModelEvent(this));
+		}
 	}
 
 	private int countVariables(int constraint, VarCount count) {
-		int[] variables = new int[pModel.variables() + 1];
-		int total = 0;
-		int real = 0;
-		int integer = 0;
-		int binary = 0;
-		try {
-			total = pModel.objectiveVariables(constraint, variables);
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		// Early out
-		if (count == VarCount.Total)
-			return total;
+		SparsityPattern pattern = pModel.objectivePattern();
+		int real = pattern.realVariables(constraint);
+		int integer = pattern.integerVariables(constraint);
+		int binary = pattern.binaryVariables(constraint);
 
-		for (int i = 1; i <= total; ++i) {
-			try {
-				switch (pModel.variableType(variables[i])) {
-				case Real:
-					++real;
-					break;
-				case Integer:
-					++integer;
-					break;
-				case Binary:
-					++binary;
-					break;
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-		}
 		switch (count) {
 		case Real:
 			return real;
@@ -232,66 +606,70 @@ public class ObjectiveTableModel extends AbstractTableModel implements Observer
 			return binary;
 		case IntPBin:
 			return integer + binary;
+		case Total:
+			return pattern.functionDegree(constraint);
 		default:
 			return -1;
 		}
 	}
 	
-	public class AlgebraicShapeRowFilter extends RowFilter<ObjectiveTableModel, Integer> {
-		
-		private FunctionShape shapeToInclude;
+	public class AlgebraicShapeRowFilter extends CategoryRowFilter<ObjectiveTableModel> {
 		
 		public AlgebraicShapeRowFilter(FunctionShape shape)
 		{
-			shapeToInclude = shape;
+			super(algebraicShapes(), shape);
 		}
-		
-		 @Override
-		public boolean include(Entry<? extends ObjectiveTableModel, ? extends Integer> entry) {
-			 FunctionShape shape = (FunctionShape)
-					 entry.getModel().getValueAt(entry.getIdentifier(), algShapeIdx);
-			 return shape == shapeToInclude;
+
+		@Override
+		CategoryIndex index() {
+			return algebraicShapes();
 		}
 	}
 	
-	public class EmpiricalShapeRowFilter extends RowFilter<ObjectiveTableModel, Integer> {
-		
-		private EmpiricalShape shapeToInclude;
+	public class EmpiricalShapeRowFilter extends CategoryRowFilter<ObjectiveTableModel> {
 		
 		public EmpiricalShapeRowFilter(EmpiricalShape shape)
 		{
-			shapeToInclude = shape;
+			super(empiricalShapes(), shape);
 		}
 
 		@Override
-		public boolean include(Entry<? extends ObjectiveTableModel, ? extends Integer> entry) {
-			Object value = entry.getModel().getValueAt(entry.getIdentifier(), empShapeIdx);
-			if (value instanceof EmpiricalShape)
-			{
-				EmpiricalShape shape = (EmpiricalShape) value;
-				return shape.toInt() == shapeToInclude.toInt();
-			}
-			else
-			{
-				return true;
-			}
+		CategoryIndex index() {
+			return empiricalShapes();
 		}
 	}
-	
-	public class ObjectiveRowFilter extends RowFilter<ObjectiveTableModel, Integer> {
+
+	public class OptimumEffectRowFilter extends CategoryRowFilter<ObjectiveTableModel> {
+		
+		public OptimumEffectRowFilter(OptimumEffect effect)
+		{
+			super(optimumEffects(), effect);
+		}
+
+		@Override
+		CategoryIndex index() {
+			return optimumEffects();
+		}
+	}
+
+	public class ExpressionRowFilter extends CompiledRowFilter<ObjectiveTableModel> {
 		
-		private int[] objectives;
+		public ExpressionRowFilter(FilterExpression expression) throws Exception
+		{
+			super(expression, ObjectiveTableModel.this);
+		}
+	}
+
+	public class ObjectiveRowFilter extends BitSetRowFilter<ObjectiveTableModel> {
 		
 		public ObjectiveRowFilter(int[] objs)
 		{
-			objectives = objs.clone();
-			Arrays.sort(objectives);
+			super(objs);
 		}
 		
-		 @Override
-		public boolean include(Entry<? extends ObjectiveTableModel, ? extends Integer> entry) {
-			 int objective = (Integer) entry.getModel().getValueAt(entry.getIdentifier(), idIdx);
-			 return Arrays.binarySearch(objectives, objective) >= 0;
+		public ObjectiveRowFilter(BitSet objs)
+		{
+			super(objs);
 		}
 	}
 }
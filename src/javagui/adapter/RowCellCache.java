@@ -0,0 +1,80 @@
+package adapter;
+
+import java.util.Arrays;
+
+import model.ProblemSnapshot;
+
+/**
+ * Cell values of recently shown rows, so that repainting a row hands out the
+ * values boxed when its cells were first shown instead of new ones. Cells
+ * are boxed one at a time as they are first read, null until then. Direct
+ * mapped on the row index. An entry holds for the analysis generation it was
+ * filled at, see AnalysisInstance.generation, and until the next clear.
+ * The value arrays are reused when an entry is replaced.
+ */
+final class RowCellCache {
+	static final int defaultRows = 4096;
+
+	private final int mask;
+	private final int[] rows;
+	private final long[] generations;
+	private final Object[][] cells;
+
+	RowCellCache(int columns) {
+		this(defaultRows, columns);
+	}
+
+	/**
+	 * @param size	Rows held, a power of two.
+	 */
+	RowCellCache(int size, int columns) {
+		mask = size - 1;
+		rows = new int[size];
+		Arrays.fill(rows, -1);
+		generations = new long[size];
+		cells = new Object[size][columns];
+	}
+
+	/**
+	 * @return Boxed bound, or null as a placeholder while the page holding it
+	 * is loaded. Null cells stay unfilled and are read again on the next
+	 * repaint, see RowPages.Listener.
+	 */
+	static Double bound(ProblemSnapshot snapshot, double value) {
+		if (Double.isNaN(value) && snapshot.paged())
+			return null;
+		return Double.valueOf(value);
+	}
+
+	/**
+	 * @return Values of row cached at generation, or null if they aren't.
+	 */
+	Object[] get(int row, long generation) {
+		int slot = row & mask;
+		if (rows[slot] != row || generations[slot] != generation)
+			return null;
+		return cells[slot];
+	}
+
+	/**
+	 * @return Emptied array to fill with the values of row as they are read,
+	 * cached from now on.
+	 */
+	Object[] put(int row, long generation) {
+		int slot = row & mask;
+		rows[slot] = row;
+		generations[slot] = generation;
+		Arrays.fill(cells[slot], null);
+		return cells[slot];
+	}
+
+	void invalidate(int row) {
+		int slot = row & mask;
+		if (rows[slot] == row)
+			rows[slot] = -1;
+	}
+
+	void clear() {
+		Arrays.fill(rows, -1);
+	}
+}
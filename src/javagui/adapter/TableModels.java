@@ -0,0 +1,43 @@
+package adapter;
+
+import model.AnalysisInstance;
+import model.ProblemInstance;
+
+/**
+ * Table models of a problem and analysis instance, shared by every workshop
+ * window open on them. Each model observes the instances once and keeps one
+ * set of cached cells, result pages and indexes however many windows show
+ * it, so more windows only add their own sorting and filtering. Models are
+ * created when first asked for.
+ */
+public final class TableModels {
+	private final ProblemInstance pModel;
+	private final AnalysisInstance aModel;
+
+	private ConstraintTableModel constraints;
+	private ObjectiveTableModel objectives;
+	private VariableTableModel variables;
+
+	public TableModels(ProblemInstance pInst, AnalysisInstance aInst) {
+		pModel = pInst;
+		aModel = aInst;
+	}
+
+	public synchronized ConstraintTableModel constraints() {
+		if (constraints == null)
+			constraints = new ConstraintTableModel(pModel, aModel);
+		return constraints;
+	}
+
+	public synchronized ObjectiveTableModel objectives() {
+		if (objectives == null)
+			objectives = new ObjectiveTableModel(pModel, aModel);
+		return objectives;
+	}
+
+	public synchronized VariableTableModel variables() {
+		if (variables == null)
+			variables = new VariableTableModel(pModel, aModel);
+		return variables;
+	}
+}
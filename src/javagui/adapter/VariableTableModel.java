@@ -1,24 +1,56 @@
 package adapter;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Observable;
 import java.util.Observer;
 
 import javax.swing.JOptionPane;
-import javax.swing.RowFilter;
 import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 
+import misc.BitSetRowFilter;
+import misc.PrimitiveSortKeys;
+import misc.ViewportPrefetch;
 import model.AnalysisInstance;
+import model.CategoryIndex;
+import model.ColumnIndex;
+import model.FilterExpression;
+import model.NameDictionary;
 import model.ProblemInstance;
+import model.ProblemInstance.FunctionType;
 import model.ProblemInstance.VariableType;
+import model.ProblemSnapshot;
+import model.ResultChange;
+import model.RowPages;
 
-public class VariableTableModel extends AbstractTableModel implements Observer {
+public class VariableTableModel extends AbstractTableModel implements Observer, PrimitiveSortKeys,
+		ViewportPrefetch.Target, FilterExpression.Columns, RowPages.Listener {
 
 	private ProblemInstance pModel; // parts of adapted model
 	private AnalysisInstance aModel;
 	private int objectiveForBestPoint;
+	// Rows of each variable type for the row filter, built on first use
+	private CategoryIndex variableTypes;
+	// Sorted indexes of the numeric columns for range filters, by column,
+	// and of the temporary bound spans, built on first use
+	private final ColumnIndex[] columnIndexes = new ColumnIndex[VarTableColumn.values().length];
+	private ColumnIndex tempBoundSpans;
+	private volatile boolean categoriesStale;
+	private volatile boolean boundsStale;
+	private volatile boolean bestPointStale;
+	// Cells of the rows shown lately
+	private volatile boolean cellsStale;
+	private final RowCellCache cells = new RowCellCache(VarTableColumn.values().length);
+	private double[] bestPoint;
+	private int bestPointObjective = -1;
+	private long bestPointGeneration;
 	
+	// Column names in filter expressions, in column order, then the
+	// temporary bound span which isn't shown
+	static final String[] filterColumnNames = { "name", "id", "type", "funcs", "origLb",
+			"tmpLb", "tmpUb", "origUb", "bestPt", "tmpSpan" };
+
 	// Defines the column ordering
 	static final int nameIdx = 0;
 	static final int idIdx = nameIdx+1;
@@ -48,11 +80,21 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 			columnIdx = col;
 			headerStr = header;
 		}
+		private static final VarTableColumn[] byColumn = new VarTableColumn[values().length];
+		static {
+			for (VarTableColumn vCol : values())
+				byColumn[vCol.columnIdx] = vCol;
+		}
+
+		// values() hands out a new array, JTable asks for the count on every paint
+		static int count() {
+			return byColumn.length;
+		}
+
 		static VarTableColumn fromColumn(int col) {
-			for (VarTableColumn vCol : VarTableColumn.values())
-				if (vCol.columnIdx == col)
-					return vCol;
-			return null;
+			if (col < 0 || col >= byColumn.length)
+				return null;
+			return byColumn[col];
 		}
 	}
 
@@ -60,6 +102,7 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 		objectiveForBestPoint = 0;
 		pModel = pInst;
 		pModel.addObserver(this);
+		pModel.addRowsListener(this);
 		aModel = aInst;
 		aModel.addObserver(this);
 	}
@@ -69,8 +112,6 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 		
 		VarTableColumn col = VarTableColumn.fromColumn(column);
 		switch (col) {
-		case TempLowerBound:
-		case TempUpperBound:
 		case BestPointValue:
 			if (aModel.isAnalysing())
 				return String.class;
@@ -78,7 +119,7 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 		}
 		switch (col) {
 		case Name:
-			return String.class;
+			return NameDictionary.Name.class;
 		case Identifier:
 			return  Integer.class;
 		case Type:
@@ -98,7 +139,7 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 
 	@Override
 	public int getColumnCount() {
-		return VarTableColumn.values().length;
+		return VarTableColumn.count();
 	}
 
 	@Override
@@ -108,65 +149,85 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 
 	@Override
 	public int getRowCount() {
-		if (!pModel.loaded())
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null)
 			return 0;
-		return pModel.variables();
+		return snapshot.variables();
 	}
 
 	@Override
 	public Object getValueAt(int row, int column) {
-		if (!pModel.loaded() || !aModel.loaded())
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
 			return "";
 		
-		try {
-			switch (VarTableColumn.fromColumn(column)) {
-			case Name:
-				return pModel.variableName(row);
-			case Identifier:
-				return new Integer(row);
-			case Type:
-				return pModel.variableType(row);
-			case NumFuncs:
-			{
-				int[] objs = new int[pModel.objectives() + 1];
-				int[] cons = new int[pModel.constraints() + 1];
-
-				pModel.variablePresence(row, cons, objs);
-
-				return new Integer(objs[0] + cons[0]);
-			}		
-			case OrigLowerBound:
-				return new Double(pModel.variableBounds(row)[0]);
-			case TempLowerBound:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-						new Double(aModel.getTempLowerBound(row)));
-			case TempUpperBound:
-				return (aModel.isAnalysing() ? "Analysis in progress" :
-						new Double(aModel.getTempUpperBound(row)));
-			case OrigUpperBound:
-				return new Double(pModel.variableBounds(row)[1]);
-			case BestPointValue:
-			{
-				if (aModel.isAnalysing())
-					return "Analysis in progress";
-				
-				if (!(objectiveForBestPoint < pModel.objectives()))
-					return Double.NaN;
-
-				double[] point = aModel.getBestPoint(objectiveForBestPoint);
-				
-				if (point != null)
-					return point[row];
-				
-				return Double.NaN;
+		if (column == bestPtValIdx
+				&& aModel.isAnalysing(FunctionType.Objective, objectiveForBestPoint))
+			return "Analysis in progress";
+		// Only the best point column depends on results
+		long generation = aModel.generation(FunctionType.Objective, objectiveForBestPoint);
+		synchronized (cells) {
+			if (cellsStale) {
+				cellsStale = false;
+				cells.clear();
+				bestPointObjective = -1;
+				bestPoint = null;
 			}
-			default:
-				return "";
+			Object[] values = cells.get(row, generation);
+			if (values == null)
+				values = cells.put(row, generation);
+			Object value = values[column];
+			if (value == null) {
+				try {
+					value = loadCell(snapshot, row, column, generation);
+				} catch (Exception e1) {
+					e1.printStackTrace();
+					cells.invalidate(row);
+					return "Error";
+				}
+				values[column] = value;
 			}
-		} catch (Exception e1) {
-			e1.printStackTrace();
-			return "Error";
+			return value;
+		}
+	}
+
+	// Boxes one cell, handed out from the cache until the row's results change
+	private Object loadCell(ProblemSnapshot snapshot, int row, int column, long generation) throws Exception {
+		switch (column) {
+		case nameIdx:
+			return pModel.variableNames().name(row);
+		case idIdx:
+			return Integer.valueOf(row);
+		case typeIdx:
+			return snapshot.variableType(row);
+		case funcsIdx:
+			return Integer.valueOf(snapshot.constraintPattern().variableDegree(row)
+					+ snapshot.objectivePattern().variableDegree(row));
+		case origLbIdx:
+			return RowCellCache.bound(snapshot, snapshot.variableLowerBound(row));
+		case tmpLbIdx:
+			return Double.valueOf(aModel.getTempLowerBound(row));
+		case tmpUbIdx:
+			return Double.valueOf(aModel.getTempUpperBound(row));
+		case origUbIdx:
+			return RowCellCache.bound(snapshot, snapshot.variableUpperBound(row));
+		case bestPtValIdx:
+			double[] point = bestPoint(snapshot, generation);
+			return Double.valueOf(point != null ? point[row] : Double.NaN);
+		default:
+			return null;
+		}
+	}
+
+	// Best point of objectiveForBestPoint, copied once per generation
+	private double[] bestPoint(ProblemSnapshot snapshot, long generation) throws Exception {
+		if (bestPointObjective != objectiveForBestPoint || bestPointGeneration != generation) {
+			bestPoint = objectiveForBestPoint < snapshot.objectives()
+					? aModel.getBestPoint(objectiveForBestPoint) : null;
+			bestPointObjective = objectiveForBestPoint;
+			bestPointGeneration = generation;
 		}
+		return bestPoint;
 	}
 
 	@Override
@@ -187,6 +248,11 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 			return;
 
 		if (column == tmpLbIdx || column == tmpUbIdx) {
+			if (getValueAt(row, column == tmpLbIdx ? origLbIdx : origUbIdx) == null) {
+				JOptionPane.showMessageDialog(null,
+						"The original bounds are still being read, try again shortly.");
+				return;
+			}
 			double bound = (Double) value;
 			boolean error = false;
 			try {
@@ -229,51 +295,323 @@ public class VariableTableModel extends AbstractTableModel implements Observer {
 		}
 	}
 
+	@Override
+	public void prefetchRows(int[] rows) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot != null)
+			snapshot.prefetch(RowPages.Kind.Variables, rows);
+	}
+
+	@Override
+	public void rowsLoaded(RowPages.Kind kind, int first, int last) {
+		if (kind != RowPages.Kind.Variables)
+			return;
+		int n = getRowCount();
+		if (first >= n)
+			return;
+		// Only the original bound cells of the page were placeholders, they
+		// aren't cached. Columns read whole are updated at once, see
+		// columnLoaded.
+		ProblemSnapshot snapshot = pModel.snapshot();
+		for (int column : new int[] { origLbIdx, origUbIdx }) {
+			if (snapshot != null && !snapshot.boundColumnRequested(kind, column == origUbIdx))
+				fireTableChanged(new TableModelEvent(this, first, Math.min(last, n - 1), column));
+		}
+	}
+
+	@Override
+	public void columnLoaded(RowPages.Kind kind, boolean upper) {
+		int n = getRowCount();
+		if (kind != RowPages.Kind.Variables || n == 0)
+			return;
+		fireTableChanged(new TableModelEvent(this, 0, n - 1, upper ? origUbIdx : origLbIdx));
+	}
+
+	@Override
+	public int[] intSortKeys(int column) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
+			return null;
+		int count = snapshot.variables();
+		int[] keys;
+		switch (VarTableColumn.fromColumn(column)) {
+		case Name:
+			return pModel.variableNames().ranks();
+		case Identifier:
+			keys = new int[count];
+			for (int i = 0; i < count; ++i)
+				keys[i] = i;
+			return keys;
+		case Type:
+			CategoryIndex types = variableTypes();
+			if (types.size() != count)
+				return null;
+			return types.categories();
+		case NumFuncs:
+			keys = new int[count];
+			for (int i = 0; i < count; ++i)
+				keys[i] = snapshot.constraintPattern().variableDegree(i)
+						+ snapshot.objectivePattern().variableDegree(i);
+			return keys;
+		default:
+			return null;
+		}
+	}
+
+	@Override
+	public double[] doubleSortKeys(int column) {
+		ProblemSnapshot snapshot = pModel.snapshot();
+		if (snapshot == null || !aModel.loaded())
+			return null;
+		int count = snapshot.variables();
+		double[] keys;
+		try {
+			switch (VarTableColumn.fromColumn(column)) {
+			case OrigLowerBound:
+			case OrigUpperBound:
+				keys = snapshot.boundColumn(RowPages.Kind.Variables, column == origUbIdx);
+				// Model order until the column is read, see columnLoaded
+				return keys != null ? keys : new double[count];
+			case TempLowerBound:
+				keys = new double[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = aModel.getTempLowerBound(i);
+				return keys;
+			case TempUpperBound:
+				keys = new double[count];
+				for (int i = 0; i < count; ++i)
+					keys[i] = aModel.getTempUpperBound(i);
+				return keys;
+			case BestPointValue:
+				double[] point = null;
+				if (objectiveForBestPoint < snapshot.objectives())
+					point = aModel.getBestPoint(objectiveForBestPoint);
+				if (point != null && point.length == count)
+					return point.clone();
+				keys = new double[count];
+				Arrays.fill(keys, Double.NaN);
+				return keys;
+			default:
+				return null;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	synchronized CategoryIndex variableTypes() {
+		applyDrops();
+		if (variableTypes == null) {
+			ProblemSnapshot snapshot = pModel.snapshot();
+			int count = snapshot == null ? 0 : snapshot.variables();
+			CategoryIndex index = new CategoryIndex(count);
+			try {
+				byte[] types = count == 0 ? null : snapshot.types(RowPages.Kind.Variables);
+				for (int i = 0; i < count; ++i)
+					index.set(i, ProblemInstance.toVariableType(types[i]));
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			variableTypes = index;
+		}
+		return variableTypes;
+	}
+
+	static boolean isNumericColumn(int column) {
+		switch (column) {
+		case idIdx:
+		case funcsIdx:
+		case origLbIdx:
+		case tmpLbIdx:
+		case tmpUbIdx:
+		case origUbIdx:
+		case bestPtValIdx:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return Sorted index of a numeric column, null for other columns.
+	 * @throws Exception if the bounds of a paged instance are still being read.
+	 */
+	synchronized ColumnIndex columnIndex(int column) throws Exception {
+		if (!isNumericColumn(column))
+			return null;
+		applyDrops();
+		if (columnIndexes[column] == null && (column == origLbIdx || column == origUbIdx)) {
+			ProblemSnapshot snapshot = pModel.snapshot();
+			if (snapshot == null)
+				return null;
+			double[] bounds = snapshot.boundColumn(RowPages.Kind.Variables, column == origUbIdx);
+			if (bounds == null)
+				throw new Exception("The bounds are still being read, try again shortly.");
+			columnIndexes[column] = new ColumnIndex(bounds);
+		}
+		if (columnIndexes[column] == null) {
+			double[] doubles = doubleSortKeys(column);
+			if (doubles != null)
+				columnIndexes[column] = new ColumnIndex(doubles);
+			else {
+				int[] ints = intSortKeys(column);
+				if (ints != null)
+					columnIndexes[column] = new ColumnIndex(ints);
+			}
+		}
+		return columnIndexes[column];
+	}
+
+	/**
+	 * @return Sorted index of the temporary upper minus lower bound of each
+	 * variable, null if no analysis is loaded.
+	 */
+	synchronized ColumnIndex tempBoundSpans() {
+		applyDrops();
+		if (tempBoundSpans == null) {
+			double[] lower = doubleSortKeys(tmpLbIdx);
+			double[] upper = doubleSortKeys(tmpUbIdx);
+			if (lower == null || upper == null)
+				return null;
+			for (int i = 0; i < upper.length; ++i)
+				upper[i] -= lower[i];
+			tempBoundSpans = new ColumnIndex(upper);
+		}
+		return tempBoundSpans;
+	}
+
+	@Override
+	public int filterRows() {
+		return getRowCount();
+	}
+
+	@Override
+	public int filterColumn(String name) {
+		return FilterExpression.column(name, filterColumnNames);
+	}
+
+	@Override
+	public CategoryIndex filterCategories(int column) {
+		return column == typeIdx ? variableTypes() : null;
+	}
+
+	@Override
+	public int filterCategory(int column, String value) throws Exception {
+		return FilterExpression.category(VariableType.values(), value);
+	}
+
+	@Override
+	public ColumnIndex filterIndex(int column) throws Exception {
+		if (column == VarTableColumn.count())
+			return tempBoundSpans();
+		return columnIndex(column);
+	}
+
+	@Override
+	public NameDictionary filterNames(int column) {
+		return column == nameIdx ? pModel.variableNames() : null;
+	}
+
+	// Notifications only mark the categories and indexes stale, they may come
+	// with the analysis locked while a reader holding this model's lock waits
+	// for the analysis. The next reader drops them.
+	private void dropCategories() {
+		categoriesStale = true;
+	}
+
+	// Called with this model locked
+	private void applyDrops() {
+		if (categoriesStale) {
+			categoriesStale = false;
+			variableTypes = null;
+			Arrays.fill(columnIndexes, null);
+			tempBoundSpans = null;
+		}
+		if (boundsStale) {
+			boundsStale = false;
+			columnIndexes[tmpLbIdx] = null;
+			columnIndexes[tmpUbIdx] = null;
+			tempBoundSpans = null;
+		}
+		if (bestPointStale) {
+			bestPointStale = false;
+			columnIndexes[bestPtValIdx] = null;
+		}
+	}
+
 	@Override
 	public void update(Observable o, Object arg) {
-		if ((Object) o == (Object) pModel)
+		if ((Object) o == (Object) pModel) {
+			dropCategories();
+			clearCells();
 			fireTableChanged(new TableModelEvent(this));
-		else if ((Object) o == (Object) aModel)
+		}
+		else if ((Object) o == (Object) aModel) {
+			if (arg instanceof ResultChange) {
+				// Only the best point column depends on the sampled function
+				ResultChange change = (ResultChange) arg;
+				if (change.getFunctionType() == FunctionType.Objective
+						&& change.getFunction() == objectiveForBestPoint) {
+					bestPointStale = true;
+					if (getRowCount() > 0)
+						fireTableRowsUpdated(0, getRowCount() - 1);
+				}
+				return;
+			}
+			boundsStale = true;
+			bestPointStale = true;
+			clearCells();
 			fireTableChanged(new TableModelEvent(this));
+		}
+	}
+
+	// See dropCategories
+	private void clearCells() {
+		cellsStale = true;
 	}
 	
-	public class VariableTypeRowFilter extends RowFilter<VariableTableModel, Integer> {
-		private VariableType typeToInclude;
+	public class VariableTypeRowFilter extends CategoryRowFilter<VariableTableModel> {
 		
 		public VariableTypeRowFilter(VariableType type)
 		{
-			typeToInclude = type;
+			super(variableTypes(), type);
 		}
-		
-		 @Override
-		public boolean include(Entry<? extends VariableTableModel, ? extends Integer> entry) {
-			 VariableType type = (VariableType)
-					 entry.getModel().getValueAt(entry.getIdentifier(), typeIdx);
-			 return type == typeToInclude;
+
+		@Override
+		CategoryIndex index() {
+			return variableTypes();
 		}
 	}
 	
-	public class VariableRowFilter extends RowFilter<VariableTableModel, Integer> {
+	public class ExpressionRowFilter extends CompiledRowFilter<VariableTableModel> {
 		
-		private int[] variables;
+		public ExpressionRowFilter(FilterExpression expression) throws Exception
+		{
+			super(expression, VariableTableModel.this);
+		}
+	}
+	
+	public class VariableRowFilter extends BitSetRowFilter<VariableTableModel> {
 		
 		public VariableRowFilter(int[] vars)
 		{
-			variables = vars.clone();
-			Arrays.sort(variables);
+			super(vars);
 		}
 		
-		 @Override
-		public boolean include(Entry<? extends VariableTableModel, ? extends Integer> entry) {
-			 int constraint = (Integer) entry.getModel().getValueAt(entry.getIdentifier(), idIdx);
-			 return Arrays.binarySearch(variables, constraint) >= 0;
+		public VariableRowFilter(BitSet vars)
+		{
+			super(vars);
 		}
 	}
 
 	public void setObjectiveForBestPoint(int objective) {
-		if (objective >= 0)
+		// Every variable window showing the model passes on the selection
+		if (objective >= 0 && objective != objectiveForBestPoint)
 		{
 			objectiveForBestPoint = objective;
+			bestPointStale = true;
+			clearCells();
 			fireTableRowsUpdated(0, Math.max(0, getRowCount()-1));
 		}
 	}
@@ -7,7 +7,9 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.text.DecimalFormat;
 import java.text.ParseException;
+import java.util.BitSet;
 import java.util.LinkedList;
+import java.util.List;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -19,6 +21,7 @@ import controller.MProbeController.guiInit;
 import misc.ProgressDialog;
 import misc.SetCentral;
 import model.AnalysisInstance;
+import model.NameDictionary;
 import model.ProblemInstance;
 import viewer.ConstraintWin;
 import viewer.UserHistograms;
@@ -32,11 +35,12 @@ public class ConstraintControl implements ICloseableControl {
 	private LinkedList<UserHistograms> histWindows;
 	private MProbeController mainControl;
 
-	public ConstraintControl(MProbeController maincontrol, ProblemInstance pInst, AnalysisInstance aInst) {
+	public ConstraintControl(MProbeController maincontrol, ProblemInstance pInst, AnalysisInstance aInst,
+			ConstraintTableModel model) {
 		mainControl = maincontrol;
 		pModel = pInst;
 		aModel = aInst;
-		tableModel = new ConstraintTableModel(pInst, aInst);
+		tableModel = model;
 
 		histWindows = new LinkedList<UserHistograms>();
 		
@@ -50,6 +54,17 @@ public class ConstraintControl implements ICloseableControl {
 			}});
 	}
 
+	/**
+	 * @return Constraints whose name contains text, or matches it if it has
+	 * wildcards, see NameIndex.find. None if no instance is loaded.
+	 */
+	public int[] findConstraints(String text) {
+		NameDictionary names = pModel.constraintNames();
+		if (names == null)
+			return new int[0];
+		return names.index().find(text);
+	}
+
 	public void close() {
 		if (window != null) {
 			window.dispose();
@@ -141,19 +156,43 @@ public class ConstraintControl implements ICloseableControl {
 	
 	public void analyzeAll() {
 		try {
-			final SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>(){
+			// Number of analysis threads, one per core by default
+			int analysisThreads = 0;
+			String threadsSetting = mainControl.getPersistentSettings().getSetting("analysisthreads");
+			if (threadsSetting != null)
+			{
+				try {
+					analysisThreads = Integer.parseInt(threadsSetting);
+				} catch (NumberFormatException e) {}
+			}
+			final int threads = analysisThreads;
+			// Publishes the constraints analysed, named on the event dispatch thread
+			final SwingWorker<Void, Integer> worker = new SwingWorker<Void, Integer>(){
 
 			@Override
 			protected Void doInBackground() throws Exception {
-				for (int i = 0; i < pModel.constraints(); i++) {
-					if (isCancelled())
-						return null;
-					setProgress((i+1)*100/(pModel.constraints()+1));
-					firePropertyChange("currentAction", "", "Analysing constraint " +  pModel.constraintName(i));
-					aModel.variableBoundLineSample(ProblemInstance.FunctionType.Constraint, i, false);
-				}
+				final int count = pModel.constraints();
+				int[] all = new int[count];
+				for (int i = 0; i < count; i++)
+					all[i] = i;
+				// One native call, the library spreads it over the cores when it can
+				aModel.analyzeFunctions(ProblemInstance.FunctionType.Constraint, all, threads,
+						new AnalysisInstance.AnalysisProgress() {
+					@Override
+					public boolean analysed(ProblemInstance.FunctionType funcType, int function, int done) {
+						setProgress(done*100/(count+1));
+						publish(function);
+						return isCancelled();
+					}
+				});
 				setProgress(100);
 				return null;
+			}
+
+			@Override
+			protected void process(List<Integer> constraints) {
+				int last = constraints.get(constraints.size()-1);
+				firePropertyChange("currentAction", "", "Analysed constraint " + pModel.constraintName(last));
 			}};
 			
 			ProgressDialog progress = new ProgressDialog(worker, "Analysing all constraints");
@@ -173,24 +212,15 @@ public class ConstraintControl implements ICloseableControl {
 		}
 	}
 	
-	public void showConstraintsfromVariable(int variable) {
+	public void showConstraintsfromVariables(int[] variables) {
 		if (window == null)
 			return;
-		int[] tmp = new int[pModel.constraints() + 1];
-		try {
-			pModel.variablePresenceInConstraints(variable, tmp);
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		int[] constraints = new int[tmp[0]];
-		for (int i = 0; i < tmp[0]; i++)
-			constraints[i] = tmp[i+1];
-		window.showOnlySelectedConstraints(constraints);
+		window.showOnlySelectedConstraints(
+				pModel.constraintPattern().variableFunctions(variables, new BitSet()));
 	}
 	
-	public void showVariablesFromConstraint(int constraint) {
-		mainControl.showVariablesFromConstraint(constraint);
+	public void showVariablesFromConstraints(int[] constraints) {
+		mainControl.showVariablesFromConstraints(constraints);
 	}
 	
 	public void trace(int[] modelRowIndexes)
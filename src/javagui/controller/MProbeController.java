@@ -15,13 +15,15 @@ import javax.swing.SwingUtilities;
 
 import misc.SetCentral;
 import model.AnalysisInstance;
-import model.MProbeLib;
+import model.InstrumentedMProbeLib;
+import model.MProbeBinding;
 import model.PersistentSettings;
 import model.PluginSet;
 import model.ProblemInstance;
 import viewer.FilePath;
 import viewer.MainWin;
 import adapter.PluginTableModel;
+import adapter.TableModels;
 
 public class MProbeController implements Observer {
 	private ProblemInstance pModel;
@@ -34,6 +36,8 @@ public class MProbeController implements Observer {
 	private LinkedList<VariableControl> varControls;
 	private LinkedList<ObjectiveControl> objControls;
 	private LinkedList<ConstraintControl> constrControls;
+	// Shared by all workshop windows
+	private TableModels tableModels;
 
 	public MProbeController() {
 		controls = new LinkedList<ICloseableControl>();
@@ -47,6 +51,8 @@ public class MProbeController implements Observer {
 		aModel = new AnalysisInstance();
 		aModel.addObserver(this);
 
+		tableModels = new TableModels(pModel, aModel);
+
 		pluginSet = new PluginSet();
 		
 		persistentSettings = new PersistentSettings();
@@ -182,19 +188,19 @@ public class MProbeController implements Observer {
 	}
 
 	public void showConstraintWorkshop() {
-		ConstraintControl c = new ConstraintControl(this , pModel, aModel);
+		ConstraintControl c = new ConstraintControl(this , pModel, aModel, tableModels.constraints());
 		controls.add(c);
 		constrControls.add(c);
 	}
 
 	public void showVariableWorkshop() {
-		VariableControl c = new VariableControl(this, pModel, aModel);
+		VariableControl c = new VariableControl(this, pModel, aModel, tableModels.variables());
 		controls.add(c);
 		varControls.add(c);
 	}
 
 	public void showObjectiveWorkshop() {
-		ObjectiveControl c = new ObjectiveControl(this, pModel, aModel);
+		ObjectiveControl c = new ObjectiveControl(this, pModel, aModel, tableModels.objectives());
 		controls.add(c);
 		objControls.add(c);
 	}
@@ -204,6 +210,12 @@ public class MProbeController implements Observer {
 		controls.add(c);
 	}
 	
+	public void dumpNativeCalls() {
+		InstrumentedMProbeLib calls = MProbeBinding.instrumentation();
+		if (calls != null)
+			calls.dump(System.out);
+	}
+
 	public static void main(String[] arg) {
 
 		try {
@@ -215,14 +227,14 @@ public class MProbeController implements Observer {
 			System.exit(1);
 		}
 
-		MProbeLib.INSTANCE.mprobe_init();
+		MProbeBinding.library().mprobe_init();
 		
 		Runtime.getRuntime().addShutdownHook(new Thread()
 		{
 		    @Override
 		    public void run()
 		    {
-		    	MProbeLib.INSTANCE.mprobe_deinit();
+		    	MProbeBinding.library().mprobe_deinit();
 		    }
 		});
 		
@@ -234,39 +246,39 @@ public class MProbeController implements Observer {
 	public void update(Observable o, Object arg) {
 	}
 
-	//show the variables that are in the given constraint
-	public void showVariablesFromConstraint(int constraint) {
+	//show the variables that are in any of the given constraints
+	public void showVariablesFromConstraints(int[] constraints) {
 		for (ICloseableControl control: controls)
 		{
 			if (control instanceof VariableControl)
 			{
 				VariableControl varCon = (VariableControl) control;
-				varCon.showVariablesFromConstraint(constraint);
+				varCon.showVariablesFromConstraints(constraints);
 			}
 		}
 	}
 
-	//show the variables that are in the given objective
-	public void showVariablesFromObjective(int objective) {
+	//show the variables that are in any of the given objectives
+	public void showVariablesFromObjectives(int[] objectives) {
 		for (VariableControl control: varControls)
 		{
-			control.showVariablesFromObjective(objective);
+			control.showVariablesFromObjectives(objectives);
 		}
 	}
 
-	//show the objective that contains the given variable
-	public void showObjectivesfromVariable (int variable){
+	//show the objectives that contain any of the given variables
+	public void showObjectivesfromVariables (int[] variables){
 		for (ObjectiveControl control: objControls)
 		{
-			control.showObjectivesfromVariable(variable);
+			control.showObjectivesfromVariables(variables);
 		}
 	}
 
-	//show the constraints that contain the given variable
-	public void showConstraintsfromVariable (int variable){
+	//show the constraints that contain any of the given variables
+	public void showConstraintsfromVariables (int[] variables){
 		for (ConstraintControl control: constrControls)
 		{
-			control.showConstraintsfromVariable(variable);
+			control.showConstraintsfromVariables(variables);
 		}
 	}
 	
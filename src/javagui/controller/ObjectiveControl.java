@@ -7,7 +7,9 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.text.DecimalFormat;
 import java.text.ParseException;
+import java.util.BitSet;
 import java.util.LinkedList;
+import java.util.List;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -17,6 +19,7 @@ import javax.swing.text.NumberFormatter;
 import misc.ProgressDialog;
 import misc.SetCentral;
 import model.AnalysisInstance;
+import model.NameDictionary;
 import model.ProblemInstance;
 import viewer.ConstraintWin;
 import viewer.ObjectiveWin;
@@ -31,11 +34,12 @@ public class ObjectiveControl implements ICloseableControl {
 	private LinkedList<UserHistograms> histWindows;
 	private MProbeController mainControl;
 
-	public ObjectiveControl(MProbeController maincontrol, ProblemInstance pInst, AnalysisInstance aInst) {
+	public ObjectiveControl(MProbeController maincontrol, ProblemInstance pInst, AnalysisInstance aInst,
+			ObjectiveTableModel model) {
 		mainControl = maincontrol;
 		pModel = pInst;
 		aModel = aInst;
-		tableModel = new ObjectiveTableModel(pModel, aModel);
+		tableModel = model;
 		histWindows = new LinkedList<UserHistograms>();
 		
 		final ObjectiveControl tmp = this;
@@ -48,6 +52,17 @@ public class ObjectiveControl implements ICloseableControl {
 			}});
 	}
 
+	/**
+	 * @return Objectives whose name contains text, or matches it if it has
+	 * wildcards, see NameIndex.find. None if no instance is loaded.
+	 */
+	public int[] findObjectives(String text) {
+		NameDictionary names = pModel.objectiveNames();
+		if (names == null)
+			return new int[0];
+		return names.index().find(text);
+	}
+
 	public void close() {
 		if (window != null) {
 			window.dispose();
@@ -139,19 +154,43 @@ public class ObjectiveControl implements ICloseableControl {
 	
 	public void analyzeAll() {
 		try {
-			final SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>(){
+			// Number of analysis threads, one per core by default
+			int analysisThreads = 0;
+			String threadsSetting = mainControl.getPersistentSettings().getSetting("analysisthreads");
+			if (threadsSetting != null)
+			{
+				try {
+					analysisThreads = Integer.parseInt(threadsSetting);
+				} catch (NumberFormatException e) {}
+			}
+			final int threads = analysisThreads;
+			// Publishes the objectives analysed, named on the event dispatch thread
+			final SwingWorker<Void, Integer> worker = new SwingWorker<Void, Integer>(){
 
 			@Override
 			protected Void doInBackground() throws Exception {
-				for (int i = 0; i < pModel.objectives(); i++) {
-					if (isCancelled())
-						return null;
-					setProgress((i+1)*100/(pModel.objectives()+1));
-					firePropertyChange("currentAction", "", "Analysing objective " +  pModel.objectiveName(i));
-					aModel.variableBoundLineSample(ProblemInstance.FunctionType.Objective, i, false);
-				}
+				final int count = pModel.objectives();
+				int[] all = new int[count];
+				for (int i = 0; i < count; i++)
+					all[i] = i;
+				// One native call, the library spreads it over the cores when it can
+				aModel.analyzeFunctions(ProblemInstance.FunctionType.Objective, all, threads,
+						new AnalysisInstance.AnalysisProgress() {
+					@Override
+					public boolean analysed(ProblemInstance.FunctionType funcType, int function, int done) {
+						setProgress(done*100/(count+1));
+						publish(function);
+						return isCancelled();
+					}
+				});
 				setProgress(100);
 				return null;
+			}
+
+			@Override
+			protected void process(List<Integer> objectives) {
+				int last = objectives.get(objectives.size()-1);
+				firePropertyChange("currentAction", "", "Analysed objective " + pModel.objectiveName(last));
 			}};
 			
 			ProgressDialog progress = new ProgressDialog(worker, "Analysing all objectives");
@@ -171,24 +210,15 @@ public class ObjectiveControl implements ICloseableControl {
 		}
 	}
 	
-	public void showObjectivesfromVariable(int variable){
+	public void showObjectivesfromVariables(int[] variables){
 		if (window == null)
 			return;
-		int[] tmp = new int[pModel.objectives() + 1];
-		try {
-			pModel.variablePresenceInObjectives(variable, tmp);
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-		int[] objectives = new int[tmp[0]];
-		for (int i = 0; i < tmp[0]; i++)
-			objectives[i] = tmp[i+1];
-		window.showOnlySelectedObjectives(objectives);
+		window.showOnlySelectedObjectives(
+				pModel.objectivePattern().variableFunctions(variables, new BitSet()));
 	}
 
-	public void showVariablesFromObjective(int objective) {
-		mainControl.showVariablesFromObjective(objective);
+	public void showVariablesFromObjectives(int[] objectives) {
+		mainControl.showVariablesFromObjectives(objectives);
 	}
 	
 	public void trace(int[] modelRowIndexes)
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.text.DecimalFormat;
 import java.text.ParseException;
+import java.util.BitSet;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -14,6 +15,7 @@ import javax.swing.text.NumberFormatter;
 
 import misc.SetCentral;
 import model.AnalysisInstance;
+import model.NameDictionary;
 import model.ProblemInstance;
 import viewer.ObjectiveWin;
 import viewer.VariableWin;
@@ -26,11 +28,12 @@ public class VariableControl implements ICloseableControl {
 	private VariableWin window;
 	private MProbeController mainControl;
 
-	public VariableControl(MProbeController maincontrol, ProblemInstance pInst, AnalysisInstance aInst) {
+	public VariableControl(MProbeController maincontrol, ProblemInstance pInst, AnalysisInstance aInst,
+			VariableTableModel model) {
 		mainControl = maincontrol;
 		pModel = pInst;
 		aModel = aInst;
-		tableModel = new VariableTableModel(pModel, aModel);
+		tableModel = model;
 		
 		final VariableControl tmp = this;
 		SwingUtilities.invokeLater(new Runnable(){
@@ -41,53 +44,42 @@ public class VariableControl implements ICloseableControl {
 				SetCentral.setCentral(window);
 			}});
 	}
+	/**
+	 * @return Variables whose name contains text, or matches it if it has
+	 * wildcards, see NameIndex.find. None if no instance is loaded.
+	 */
+	public int[] findVariables(String text) {
+		NameDictionary names = pModel.variableNames();
+		if (names == null)
+			return new int[0];
+		return names.index().find(text);
+	}
+
 	public void close() {
 		if (window != null) {
 			window.dispose();
 			window = null;
 		}
 	}
-	public void showVariablesFromConstraint(int constraint) {
+	public void showVariablesFromConstraints(int[] constraints) {
 		if (window == null)
 			return;
-		int[] tmp = new int[pModel.variables()];
-		int actualLength;
-		try {
-			actualLength = pModel.constraintVariables(constraint, tmp);
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			return;
-		}
-		int[] variables = new int[actualLength];
-		for (int i = 0; i < actualLength; i++)
-			variables[i] = tmp[i];
-		window.showOnlySelectedVariables(variables);
+		window.showOnlySelectedVariables(
+				pModel.constraintPattern().functionVariables(constraints, new BitSet()));
 	}
-	public void showVariablesFromObjective(int objective) {
+	public void showVariablesFromObjectives(int[] objectives) {
 		if (window == null)
 			return;
-		int[] tmp = new int[pModel.variables()];
-		int actualLength;
-		try {
-			actualLength = pModel.objectiveVariables(objective, tmp);
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-			return;
-		}
-		int[] variables = new int[actualLength];
-		for (int i = 0; i < actualLength; i++)
-			variables[i] = tmp[i];
-		window.showOnlySelectedVariables(variables);
+		window.showOnlySelectedVariables(
+				pModel.objectivePattern().functionVariables(objectives, new BitSet()));
 	}
 	
-	public void showObjectivesfromVariable (int variable) {
-		mainControl.showObjectivesfromVariable(variable);
+	public void showObjectivesfromVariables (int[] variables) {
+		mainControl.showObjectivesfromVariables(variables);
 	}
 
-	public void showConstraintsfromVariable (int variable) {
-		mainControl.showConstraintsfromVariable(variable);
+	public void showConstraintsfromVariables (int[] variables) {
+		mainControl.showConstraintsfromVariables(variables);
 	}
 	
 	public void resetTempbounds() {
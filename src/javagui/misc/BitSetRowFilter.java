@@ -0,0 +1,57 @@
+package misc;
+
+import java.util.BitSet;
+
+import javax.swing.RowFilter;
+
+/**
+ * Includes the model rows whose bit is set, the identifier of the entries
+ * must be the model row as with TableRowSorter. The rows are copied, later
+ * changes to the given set don't change the filter. Filters following the
+ * model's values move rows in and out on refresh.
+ */
+public class BitSetRowFilter<M> extends RowFilter<M, Integer> {
+	private final BitSet rows;
+
+	public BitSetRowFilter(BitSet rows) {
+		this.rows = (BitSet) rows.clone();
+	}
+
+	public BitSetRowFilter(int[] rows) {
+		this.rows = new BitSet();
+		for (int row : rows)
+			this.rows.set(row);
+	}
+
+	/**
+	 * @return The filter's own rows, not to be modified.
+	 */
+	public BitSet getRows() {
+		return rows;
+	}
+
+	/**
+	 * Tests rows firstRow to endRow again after the model updated them, on
+	 * the event dispatch thread. PrimitiveRowSorter calls it before resorting.
+	 *
+	 * @return Whether a row was included or excluded.
+	 */
+	public boolean refresh(int firstRow, int endRow) {
+		return false;
+	}
+
+	/**
+	 * @return Whether the row was included or excluded by this call.
+	 */
+	protected final boolean setRow(int row, boolean included) {
+		if (rows.get(row) == included)
+			return false;
+		rows.set(row, included);
+		return true;
+	}
+
+	@Override
+	public boolean include(Entry<? extends M, ? extends Integer> entry) {
+		return rows.get(entry.getIdentifier());
+	}
+}
@@ -1,9 +1,13 @@
 package misc;
 
+import java.util.BitSet;
+
 import javax.swing.RowFilter;
 
 public class CollapsingNotFilter<M,I> extends RowFilter<M,I> {
     private RowFilter<M,I> filter;
+    // Rows of a negated BitSetRowFilter, which is then negated bit by bit
+    private BitSet rows;
 
     public CollapsingNotFilter(RowFilter<M,I> filter) {
         if (filter == null) {
@@ -23,9 +27,20 @@ public class CollapsingNotFilter<M,I> extends RowFilter<M,I> {
             }
         }
         this.filter = filter;
+        if (filter instanceof BitSetRowFilter)
+        	rows = ((BitSetRowFilter<?>) filter).getRows();
+	}
+
+	/**
+	 * @return The negated filter.
+	 */
+	public RowFilter<M,I> getFilter() {
+		return filter;
 	}
 
 	public boolean include(Entry<? extends M, ? extends I> value) {
+		if (rows != null)
+			return !rows.get((Integer) value.getIdentifier());
     	return !filter.include(value);
     }
 }
\ No newline at end of file
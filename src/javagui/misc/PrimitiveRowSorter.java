@@ -0,0 +1,427 @@
+package misc;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.swing.RowFilter;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
+import javax.swing.table.TableModel;
+
+/**
+ * RowSorter for large tables. Each sorted column is read once into primitive
+ * keys, from the model if it implements PrimitiveSortKeys or through
+ * getValueAt otherwise, and the rows are ordered by sorting packed
+ * (rank, row) longs with Arrays.parallelSort. No cell value is compared.
+ *
+ * Sorting, filtering and the sort key toggling behave as with
+ * TableRowSorter, ties keep the model order and BitSetRowFilters are
+ * applied as bit tests. Unlike there, updates of rows sorted or filtered on
+ * their values sort again, as analysis results arrive a row at a time, and
+ * BitSetRowFilters are refreshed for the updated rows first. The updates of
+ * one event dispatch are coalesced into a single sort.
+ *
+ * DefaultRowSorter can't be reused for this, its sort compares boxed cell
+ * values through Comparators and its row mappings are private, so the view
+ * to model bookkeeping is done again here.
+ */
+public class PrimitiveRowSorter<M extends TableModel> extends RowSorter<M> {
+	private static final int maxSortKeys = 3;
+
+	private final M model;
+	private List<SortKey> sortKeys = Collections.emptyList();
+	private RowFilter<? super M, ? super Integer> filter;
+
+	// Model rows in sort order, null if unsorted or not computed yet
+	private int[] sorted;
+	// Model rows shown in view order and the reverse mapping, null when
+	// all rows are shown in model order
+	private int[] viewToModel;
+	private int[] modelToView;
+	// Sort queued by row updates
+	private boolean resortQueued;
+
+	public PrimitiveRowSorter(M model) {
+		this.model = model;
+		sort();
+	}
+
+	@Override
+	public M getModel() {
+		return model;
+	}
+
+	public void setRowFilter(RowFilter<? super M, ? super Integer> filter) {
+		this.filter = filter;
+		sort();
+	}
+
+	public RowFilter<? super M, ? super Integer> getRowFilter() {
+		return filter;
+	}
+
+	@Override
+	public void toggleSortOrder(int column) {
+		checkColumn(column);
+		List<SortKey> keys = new ArrayList<SortKey>(sortKeys);
+		int i;
+		for (i = keys.size() - 1; i >= 0; --i)
+			if (keys.get(i).getColumn() == column)
+				break;
+		if (i == 0) {
+			SortOrder order = keys.get(0).getSortOrder() == SortOrder.ASCENDING
+					? SortOrder.DESCENDING : SortOrder.ASCENDING;
+			keys.set(0, new SortKey(column, order));
+		} else {
+			if (i > 0)
+				keys.remove(i);
+			keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+		}
+		if (keys.size() > maxSortKeys)
+			keys = keys.subList(0, maxSortKeys);
+		setSortKeys(keys);
+	}
+
+	@Override
+	public void setSortKeys(List<? extends SortKey> keys) {
+		List<SortKey> old = sortKeys;
+		if (keys != null && keys.size() > 0) {
+			for (SortKey key : keys) {
+				if (key == null)
+					throw new IllegalArgumentException("sort key must be non-null");
+				checkColumn(key.getColumn());
+			}
+			sortKeys = Collections.unmodifiableList(new ArrayList<SortKey>(keys));
+		} else
+			sortKeys = Collections.emptyList();
+		if (!sortKeys.equals(old)) {
+			fireSortOrderChanged();
+			sorted = null;
+			sort();
+		}
+	}
+
+	@Override
+	public List<? extends SortKey> getSortKeys() {
+		return sortKeys;
+	}
+
+	@Override
+	public int convertRowIndexToModel(int index) {
+		if (viewToModel == null) {
+			if (index < 0 || index >= getModelRowCount())
+				throw new IndexOutOfBoundsException("Invalid index");
+			return index;
+		}
+		return viewToModel[index];
+	}
+
+	@Override
+	public int convertRowIndexToView(int index) {
+		if (modelToView == null) {
+			if (index < 0 || index >= getModelRowCount())
+				throw new IndexOutOfBoundsException("Invalid index");
+			return index;
+		}
+		return modelToView[index];
+	}
+
+	@Override
+	public int getViewRowCount() {
+		return viewToModel == null ? getModelRowCount() : viewToModel.length;
+	}
+
+	@Override
+	public int getModelRowCount() {
+		return model.getRowCount();
+	}
+
+	@Override
+	public void modelStructureChanged() {
+		sorted = null;
+		if (sortKeys.isEmpty())
+			sort();
+		else
+			setSortKeys(null);
+	}
+
+	@Override
+	public void allRowsChanged() {
+		refreshFilter(0, getModelRowCount() - 1);
+		sorted = null;
+		sort();
+	}
+
+	@Override
+	public void rowsInserted(int firstRow, int endRow) {
+		allRowsChanged();
+	}
+
+	@Override
+	public void rowsDeleted(int firstRow, int endRow) {
+		allRowsChanged();
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow) {
+		boolean moved = refreshFilter(firstRow, endRow);
+		if (moved || isSorted() || filtersOnValues())
+			queueResort();
+	}
+
+	@Override
+	public void rowsUpdated(int firstRow, int endRow, int column) {
+		boolean moved = refreshFilter(firstRow, endRow);
+		if (moved || isSortColumn(column) || filtersOnValues())
+			queueResort();
+	}
+
+	// Brings a bit set filter following the model up to date, negated or not
+	private boolean refreshFilter(int firstRow, int endRow) {
+		RowFilter<?, ?> rows = filter;
+		if (rows instanceof CollapsingNotFilter)
+			rows = ((CollapsingNotFilter<?, ?>) rows).getFilter();
+		return rows instanceof BitSetRowFilter && endRow >= firstRow
+				&& ((BitSetRowFilter<?>) rows).refresh(firstRow, endRow);
+	}
+
+	// Bit set filters don't read the cells, other filters may
+	private boolean filtersOnValues() {
+		return filter != null && !(filter instanceof EveryRowFilter)
+				&& !(filter instanceof BitSetRowFilter);
+	}
+
+	private boolean isSortColumn(int column) {
+		for (SortKey key : sortKeys)
+			if (key.getColumn() == column && key.getSortOrder() != SortOrder.UNSORTED)
+				return true;
+		return false;
+	}
+
+	// Sorts once after the updates made in this event dispatch, the mapping
+	// stays as it was meanwhile
+	private void queueResort() {
+		if (resortQueued)
+			return;
+		resortQueued = true;
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				resortQueued = false;
+				sorted = null;
+				sort();
+			}
+		});
+	}
+
+	private void checkColumn(int column) {
+		if (column < 0 || column >= model.getColumnCount())
+			throw new IndexOutOfBoundsException("column beyond range of TableModel");
+	}
+
+	private boolean isSorted() {
+		for (SortKey key : sortKeys)
+			if (key.getSortOrder() != SortOrder.UNSORTED)
+				return true;
+		return false;
+	}
+
+	private void sort() {
+		int[] last = viewToModel;
+		if (last == null) {
+			last = new int[modelToView == null ? getModelRowCount() : modelToView.length];
+			for (int i = 0; i < last.length; ++i)
+				last[i] = i;
+		}
+
+		int rows = getModelRowCount();
+		if (sorted == null && isSorted())
+			sorted = sortedRows(rows);
+
+		int[] view = sorted;
+		if (filter != null && !(filter instanceof EveryRowFilter)) {
+			view = new int[rows];
+			int count = 0;
+			RowEntry entry = new RowEntry();
+			for (int i = 0; i < rows; ++i) {
+				int row = sorted == null ? i : sorted[i];
+				if (include(entry, row))
+					view[count++] = row;
+			}
+			view = Arrays.copyOf(view, count);
+		}
+
+		viewToModel = view;
+		modelToView = null;
+		if (view != null) {
+			modelToView = new int[rows];
+			Arrays.fill(modelToView, -1);
+			for (int i = 0; i < view.length; ++i)
+				modelToView[view[i]] = i;
+		}
+		fireRowSorterChanged(last);
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean include(RowEntry entry, int row) {
+		if (filter instanceof BitSetRowFilter)
+			return ((BitSetRowFilter<?>) filter).getRows().get(row);
+		entry.row = row;
+		return ((RowFilter<M, Integer>) filter).include(entry);
+	}
+
+	private int[] sortedRows(int rows) {
+		int[] ranks = null;
+		for (SortKey key : sortKeys) {
+			if (key.getSortOrder() == SortOrder.UNSORTED)
+				continue;
+			int[] column = columnRanks(key.getColumn(), rows);
+			if (key.getSortOrder() == SortOrder.DESCENDING) {
+				int max = 0;
+				for (int r : column)
+					max = Math.max(max, r);
+				for (int i = 0; i < rows; ++i)
+					column[i] = max - column[i];
+			}
+			if (ranks == null)
+				ranks = column;
+			else {
+				// Rank of the (earlier keys, this key) pairs
+				long[] pairs = new long[rows];
+				for (int i = 0; i < rows; ++i)
+					pairs[i] = ((long) ranks[i] << 32) | column[i];
+				ranks = denseRanks(pairs);
+			}
+		}
+
+		// The row in the low bits keeps ties in model order
+		long[] packed = new long[rows];
+		for (int i = 0; i < rows; ++i)
+			packed[i] = ((long) ranks[i] << 32) | i;
+		Arrays.parallelSort(packed);
+		int[] order = new int[rows];
+		for (int i = 0; i < rows; ++i)
+			order[i] = (int) packed[i];
+		return order;
+	}
+
+	// Dense rank of each row's value in column, equal values share a rank
+	private int[] columnRanks(int column, int rows) {
+		if (model instanceof PrimitiveSortKeys) {
+			PrimitiveSortKeys keys = (PrimitiveSortKeys) model;
+			int[] ints = keys.intSortKeys(column);
+			if (ints != null && ints.length == rows) {
+				long[] values = new long[rows];
+				for (int i = 0; i < rows; ++i)
+					values[i] = ints[i];
+				return denseRanks(values);
+			}
+			double[] doubles = keys.doubleSortKeys(column);
+			if (doubles != null && doubles.length == rows) {
+				long[] values = new long[rows];
+				for (int i = 0; i < rows; ++i)
+					values[i] = sortable(doubles[i]);
+				return denseRanks(values);
+			}
+		}
+		return valueRanks(column, rows);
+	}
+
+	// Long ordered as Double.compare orders doubles
+	private static long sortable(double d) {
+		long bits = Double.doubleToLongBits(d);
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+
+	private static int[] denseRanks(long[] values) {
+		long[] unique = values.clone();
+		Arrays.parallelSort(unique);
+		int count = 0;
+		for (int i = 0; i < unique.length; ++i)
+			if (count == 0 || unique[i] != unique[count - 1])
+				unique[count++] = unique[i];
+		int[] ranks = new int[values.length];
+		for (int i = 0; i < values.length; ++i)
+			ranks[i] = Arrays.binarySearch(unique, 0, count, values[i]);
+		return ranks;
+	}
+
+	// Ranks from the cell values, compared as TableRowSorter compares them
+	private int[] valueRanks(int column, int rows) {
+		Class<?> columnClass = model.getColumnClass(column);
+		final boolean natural = columnClass != String.class
+				&& Comparable.class.isAssignableFrom(columnClass);
+		final Collator collator = Collator.getInstance();
+		final Object[] values = new Object[rows];
+		for (int i = 0; i < rows; ++i) {
+			Object value = model.getValueAt(i, column);
+			values[i] = natural || value == null ? value : value.toString();
+		}
+
+		final Comparator<Object> comparator = new Comparator<Object>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public int compare(Object a, Object b) {
+				if (a == null)
+					return b == null ? 0 : -1;
+				if (b == null)
+					return 1;
+				if (natural) {
+					try {
+						return ((Comparable<Object>) a).compareTo(b);
+					} catch (ClassCastException e) {
+						// Mixed values, such as an analysis in progress
+					}
+				}
+				return collator.compare(a.toString(), b.toString());
+			}
+		};
+
+		Integer[] order = new Integer[rows];
+		for (int i = 0; i < rows; ++i)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return comparator.compare(values[a], values[b]);
+			}
+		});
+		int[] ranks = new int[rows];
+		int rank = 0;
+		for (int i = 0; i < rows; ++i) {
+			if (i > 0 && comparator.compare(values[order[i - 1]], values[order[i]]) != 0)
+				++rank;
+			ranks[order[i]] = rank;
+		}
+		return ranks;
+	}
+
+	private class RowEntry extends RowFilter.Entry<M, Integer> {
+		int row;
+
+		@Override
+		public M getModel() {
+			return model;
+		}
+
+		@Override
+		public int getValueCount() {
+			return model.getColumnCount();
+		}
+
+		@Override
+		public Object getValue(int index) {
+			return model.getValueAt(row, index);
+		}
+
+		@Override
+		public Integer getIdentifier() {
+			return row;
+		}
+	}
+}
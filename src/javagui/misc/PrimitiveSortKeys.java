@@ -0,0 +1,20 @@
+package misc;
+
+/**
+ * Table model able to hand the sort keys of a whole column to
+ * PrimitiveRowSorter without going through getValueAt. Keys must order rows
+ * as the column's values do, an int key per row or a double key per row
+ * compared as by Double.compare. The keys are only read, so a model may hand
+ * out arrays it keeps.
+ */
+public interface PrimitiveSortKeys {
+	/**
+	 * @return Key of every row of column, or null if the column has no int keys.
+	 */
+	int[] intSortKeys(int column);
+
+	/**
+	 * @return Key of every row of column, or null if the column has no double keys.
+	 */
+	double[] doubleSortKeys(int column);
+}
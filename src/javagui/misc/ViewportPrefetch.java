@@ -0,0 +1,64 @@
+package misc;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.RowSorterEvent;
+import javax.swing.event.RowSorterListener;
+
+/**
+ * Tells a table's model which rows are about to be shown whenever the table
+ * is scrolled, sorted or filtered: the visible rows and one screenful on
+ * either side, as model indexes.
+ */
+public class ViewportPrefetch implements ChangeListener, RowSorterListener {
+	public interface Target {
+		void prefetchRows(int[] modelRows);
+	}
+
+	private final JTable table;
+	private final Target target;
+
+	public ViewportPrefetch(JTable table, JScrollPane scrollPane, Target target) {
+		this.table = table;
+		this.target = target;
+		scrollPane.getViewport().addChangeListener(this);
+		if (table.getRowSorter() != null)
+			table.getRowSorter().addRowSorterListener(this);
+	}
+
+	@Override
+	public void stateChanged(ChangeEvent e) {
+		prefetch();
+	}
+
+	@Override
+	public void sorterChanged(RowSorterEvent e) {
+		prefetch();
+	}
+
+	public void prefetch() {
+		int rowCount = table.getRowCount();
+		if (rowCount == 0)
+			return;
+		Rectangle visible = table.getVisibleRect();
+		int first = table.rowAtPoint(visible.getLocation());
+		if (first < 0)
+			first = 0;
+		int last = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+		if (last < 0)
+			last = rowCount - 1;
+		int screen = last - first + 1;
+		int from = Math.max(0, first - screen);
+		int to = Math.min(rowCount - 1, last + screen);
+
+		int[] rows = new int[to - from + 1];
+		for (int i = 0; i < rows.length; ++i)
+			rows[i] = table.convertRowIndexToModel(from + i);
+		target.prefetchRows(rows);
+	}
+}
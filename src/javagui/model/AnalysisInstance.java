@@ -1,9 +1,22 @@
 package model;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.util.Arrays;
 import java.util.Observable;
 import java.util.Observer;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import model.MProbeLib.AnalyzeCallback;
 import model.MProbeLib.EmpiricalShape;
 import model.MProbeLib.HistType;
 import model.MProbeLib.OptimumEffect;
@@ -14,10 +27,17 @@ import model.ProblemInstance.FunctionType;
 
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.DoubleByReference;
+import com.sun.jna.ptr.IntByReference;
 
-public class AnalysisInstance extends Observable implements Observer {
+public class AnalysisInstance extends EdtObservable implements Observer {
+	private final MProbeLib lib = MProbeBinding.library();
 	private ProblemInstance pInst;
-	private Pointer handle;
+	private volatile Pointer handle;
+	// Analysis created last, only touched on the executor of the instance,
+	// handle is set to it once it is installed
+	private Pointer created;
+	// Counts the replacements asked for, see install
+	private int replacements;
 
 	double[] shapeHistUBs;
 	double	 shapeHistLBinWidth;
@@ -28,7 +48,28 @@ public class AnalysisInstance extends Observable implements Observer {
 	double[] lineLenHistUBs;
 	double lineLenHistLBinWidth;
 	
-	boolean analysing;
+	volatile boolean analysing;
+	// Function being sampled, type null when none
+	private volatile FunctionType sampledType;
+	private volatile int sampledFunction;
+
+	// Incremented whenever the results of a function change
+	private AtomicLongArray constraintGenerations;
+	private AtomicLongArray objectiveGenerations;
+
+	// Read-only views of the native result arrays, only valid while handle is
+	private ByteBuffer shapes;
+	private ByteBuffer effStatus;
+	private DoubleBuffer effectiveness;
+	private ByteBuffer regionEffects;
+	private ByteBuffer extrStatus;
+	private DoubleBuffer extrema;
+	private DoubleBuffer extremumPoints;
+	private ByteBuffer optimumEffects;
+
+	// Shared by all consumers until the results or the bins change
+	private HistogramSnapshot histograms;
+	private long histogramsVersion;
 
 	public AnalysisInstance() {
 		handle = null;
@@ -38,22 +79,137 @@ public class AnalysisInstance extends Observable implements Observer {
 	synchronized public void load(ProblemInstance inst) {
 		pInst = inst;
 		pInst.addObserver(this);
-		handle = pInst.createAnalysis(this);
-		
-		setDefaultHistogramBins(HistType.Shape);
-		setDefaultHistogramBins(HistType.Slope);
-		setDefaultHistogramBins(HistType.FunctionValue);
-		setDefaultHistogramBins(HistType.LineLength);
+		replaceAnalysis(true);
 	}
 	
 	synchronized public void unload() {
-		if (handle != Pointer.NULL)
-			MProbeLib.INSTANCE.mp_releaseAnalysis(handle);
+		unmapResults();
+		handle = null;
+		++replacements;
+		pInst.executor().submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				releaseCreated();
+				return null;
+			}
+		});
+		notifyOnEdt(null);
+	}
+
+	/**
+	 * Drops the current analysis and queues its release, and the creation of
+	 * a new one if the problem instance is loaded, on the executor of the
+	 * instance. Doesn't wait for a running sample, the new analysis is only
+	 * installed, and the observers told, once the executor gets to it.
+	 * Called with this locked.
+	 */
+	private void replaceAnalysis(final boolean defaultBins) {
+		// The views point into the analysis about to be released
+		unmapResults();
 		handle = null;
-		setChanged();
-		notifyObservers();
+		final int replacement = ++replacements;
+		pInst.executor().submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				releaseCreated();
+				try {
+					if (pInst.loaded())
+						created = pInst.createAnalysis(AnalysisInstance.this);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+				install(replacement, created, defaultBins);
+				return null;
+			}
+		});
+	}
+
+	// On the executor
+	private void releaseCreated() {
+		if (created != null)
+			lib.mp_releaseAnalysis(created);
+		created = null;
+	}
+
+	// On the executor, unless a later replacement or unload superseded it
+	private void install(int replacement, Pointer analysis, boolean defaultBins) {
+		synchronized (this) {
+			if (replacement != replacements)
+				return;
+			handle = analysis;
+			mapResults();
+			resetGenerations();
+			if (defaultBins && analysis != null) {
+				setDefaultHistogramBins(HistType.Shape);
+				setDefaultHistogramBins(HistType.Slope);
+				setDefaultHistogramBins(HistType.FunctionValue);
+				setDefaultHistogramBins(HistType.LineLength);
+			}
+		}
+		notifyOnEdt(null);
 	}
 	
+	private ByteBuffer mapResultBytes(int which) {
+		IntByReference length = new IntByReference();
+		Pointer array = lib.mp_aResultArray(handle, which, length);
+		if (array == null || length.getValue() == 0)
+			return ByteBuffer.allocate(0);
+		return array.getByteBuffer(0, length.getValue()).asReadOnlyBuffer();
+	}
+
+	private DoubleBuffer mapResultDoubles(int which) {
+		IntByReference length = new IntByReference();
+		Pointer array = lib.mp_aResultArray(handle, which, length);
+		if (array == null || length.getValue() == 0)
+			return DoubleBuffer.allocate(0);
+		return array.getByteBuffer(0, 8L * length.getValue())
+				.order(ByteOrder.nativeOrder()).asDoubleBuffer().asReadOnlyBuffer();
+	}
+
+	private void mapResults() {
+		if (handle == Pointer.NULL) {
+			unmapResults();
+			return;
+		}
+		shapes = mapResultBytes('s');
+		effStatus = mapResultBytes('t');
+		effectiveness = mapResultDoubles('e');
+		regionEffects = mapResultBytes('r');
+		extrStatus = mapResultBytes('x');
+		extrema = mapResultDoubles('m');
+		extremumPoints = mapResultDoubles('p');
+		optimumEffects = mapResultBytes('o');
+	}
+
+	private void resetGenerations() {
+		boolean loaded = pInst.loaded();
+		constraintGenerations = new AtomicLongArray(loaded ? pInst.constraints() : 0);
+		objectiveGenerations = new AtomicLongArray(loaded ? pInst.objectives() : 0);
+	}
+
+	// Must happen before the analysis is released, the views point into it
+	private void unmapResults() {
+		histograms = null;
+		shapes = null;
+		effStatus = null;
+		effectiveness = null;
+		regionEffects = null;
+		extrStatus = null;
+		extrema = null;
+		extremumPoints = null;
+		optimumEffects = null;
+	}
+
+	/**
+	 * @return Counter incremented by the native analysis whenever its results
+	 * change, to detect when values read from the views are stale.
+	 */
+	synchronized public long resultsVersion() {
+		if (handle == Pointer.NULL)
+			return 0;
+		return lib.mp_aResultsVersion(handle);
+	}
+
 	public boolean loaded() {
 		return handle != Pointer.NULL;
 	}
@@ -62,14 +218,125 @@ public class AnalysisInstance extends Observable implements Observer {
 		return analysing;
 	}
 
-	synchronized public void variableBoundLineSample(FunctionType funcType, int function, boolean extraHists) throws Exception
+	/**
+	 * @return Whether the given function is being sampled right now.
+	 */
+	public boolean isAnalysing(FunctionType funcType, int function) {
+		return sampledType == funcType && sampledFunction == function;
+	}
+
+	/**
+	 * @return Counter incremented whenever the results of the function change,
+	 * to tell whether values cached for it are stale.
+	 */
+	public long generation(FunctionType funcType, int function) {
+		AtomicLongArray generations = (funcType == FunctionType.Constraint
+				? constraintGenerations : objectiveGenerations);
+		if (generations == null)
+			return 0;
+		return generations.get(function);
+	}
+
+	/**
+	 * Samples a function and waits for it. The sample runs on the executor of
+	 * the problem instance without holding the lock of this instance, so the
+	 * result getters keep answering meanwhile.
+	 */
+	public void variableBoundLineSample(FunctionType funcType, int function, boolean extraHists) throws Exception
+	{
+		try {
+			variableBoundLineSampleAsync(funcType, function, extraHists).get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	/**
+	 * Queues a sample of a function on the executor of the problem instance.
+	 * @return Completed when the sample is done, the observers are notified
+	 * on the event dispatch thread.
+	 */
+	public CompletableFuture<Void> variableBoundLineSampleAsync(FunctionType funcType, int function, boolean extraHists) throws Exception
 	{
-		int type;
-		if (handle == Pointer.NULL)
+		final int type;
+		final FunctionType fType = funcType;
+		final int func = function;
+		final int extra = extraHists?1:0;
+		final Pointer h = handle;
+		if (h == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
+		switch (funcType) {
+		case Objective:
+			type = 'o';
+			break;
+		case Constraint:
+			type = 'c';
+			break;
+		default:
+			throw new Exception("Invalid function type.");
+		}
+
 		analysing = true;
-		
+		return pInst.executor().submit(new Callable<Void>() {
+			@Override
+			public Void call() {
+				sampledFunction = func;
+				sampledType = fType;
+				try {
+					lib.mp_aVariableBoundLineSample(h, type, func, extra);
+				} finally {
+					sampledType = null;
+					analysing = false;
+				}
+				resultsStored(fType, func);
+				return null;
+			}
+		});
+	}
+
+	// Bumps the generation of func and tells the observers on the EDT
+	private void resultsStored(FunctionType funcType, int func) {
+		long generation = (funcType == FunctionType.Constraint
+				? constraintGenerations : objectiveGenerations).incrementAndGet(func);
+		notifyOnEdt(new ResultChange(funcType, func, generation));
+	}
+
+	/**
+	 * Told about each function of analyzeFunctions once its results are stored.
+	 */
+	public interface AnalysisProgress {
+		/**
+		 * @param done	Functions analysed so far, this one included.
+		 * @return Whether to leave the remaining functions unanalysed.
+		 */
+		boolean analysed(FunctionType funcType, int function, int done);
+	}
+
+	/**
+	 * Samples several functions as variableBoundLineSample does, without the
+	 * extra histograms, with a single native call on the executor of the
+	 * problem instance, and waits for it. The library shares the functions out
+	 * to up to threads threads if the reader plugin is thread-safe.
+	 * The analysing threads only queue the functions they are done with. The
+	 * calling thread takes them off the queue every 100 ms while it waits:
+	 * observers get a ResultChange per function on the event dispatch thread
+	 * and progress is told about it, so rows update while the batch runs.
+	 * @param threads	Maximum number of threads, 0 for one per core.
+	 * @param progress	May be null.
+	 * @return Number of functions analysed.
+	 */
+	public int analyzeFunctions(FunctionType funcType, final int[] functions, final int threads,
+			final AnalysisProgress progress) throws Exception
+	{
+		final int type;
+		final FunctionType fType = funcType;
+		final Pointer h = handle;
+		if (h == Pointer.NULL)
+			throw new Exception("Null analysis instance pointer!");
+
 		switch (funcType) {
 		case Objective:
 			type = 'o';
@@ -80,10 +347,79 @@ public class AnalysisInstance extends Observable implements Observer {
 		default:
 			throw new Exception("Invalid function type.");
 		}
-		MProbeLib.INSTANCE.mp_aVariableBoundLineSample(handle, type, function, extraHists?1:0);
-		analysing = false;
-		setChanged();
-		notifyObservers();
+
+		// Functions done and not yet published
+		final ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<Integer>();
+		final AtomicBoolean stop = new AtomicBoolean();
+		// Set if the calling thread stops waiting, the executor then
+		// publishes the functions done after it
+		final AtomicBoolean abandoned = new AtomicBoolean();
+		final AnalyzeCallback callback = new AnalyzeCallback() {
+			@Override
+			public int invoke(int funcType, int func) {
+				pending.add(func);
+				return stop.get() ? 1 : 0;
+			}
+		};
+
+		analysing = true;
+		Future<Integer> future = pInst.executor().submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				int analysed;
+				try {
+					analysed = lib.mp_aAnalyzeFunctions(h, type, functions, functions.length,
+							threads, callback);
+				} finally {
+					analysing = false;
+					if (abandoned.get())
+						publish(fType, pending);
+				}
+				if (analysed < 0)
+					throw pInst.failure("Couldn't analyse the functions.");
+				return analysed;
+			}
+		});
+
+		int done = 0;
+		for (;;) {
+			boolean finished = true;
+			try {
+				future.get(100, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				finished = false;
+			} catch (ExecutionException e) {
+			} catch (InterruptedException e) {
+				stop.set(true);
+				abandoned.set(true);
+				publish(fType, pending);
+				throw e;
+			}
+			// The results of these are stored even if the call failed
+			Integer func;
+			while ((func = pending.poll()) != null) {
+				resultsStored(fType, func);
+				++done;
+				if (progress != null && !stop.get() && progress.analysed(fType, func, done))
+					stop.set(true);
+			}
+			if (finished)
+				break;
+		}
+
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw e;
+		}
+	}
+
+	private void publish(FunctionType funcType, ConcurrentLinkedQueue<Integer> pending) {
+		Integer func;
+		while ((func = pending.poll()) != null)
+			resultsStored(funcType, func);
 	}
 	
 	synchronized public EmpiricalShape getEmpiricalShape(FunctionType funcType, int function) throws Exception
@@ -104,13 +440,48 @@ public class AnalysisInstance extends Observable implements Observer {
 			throw new Exception("Invalid function type.");
 		}
 		
-		return EmpiricalShape.fromValue(MProbeLib.INSTANCE.mp_aGetEmpiricalShape(handle, function, type));
+		return EmpiricalShape.fromValue(shapes.get(
+				type == 'o' ? pInst.constraints() + function : function));
+	}
+
+	/**
+	 * Copies the results of a range of functions with one native call.
+	 * @param funcType	Constraints or objectives.
+	 * @param first		First function.
+	 * @param count		Number of functions.
+	 */
+	synchronized public FunctionResults getResults(FunctionType funcType, int first, int count) throws Exception
+	{
+		int type;
+
+		if (handle == Pointer.NULL)
+			throw new Exception("Null analysis instance pointer!");
+
+		switch (funcType) {
+		case Objective:
+			type = 'o';
+			break;
+		case Constraint:
+			type = 'c';
+			break;
+		default:
+			throw new Exception("Invalid function type.");
+		}
+
+		byte[] status = new byte[count];
+		byte[] shapes = new byte[count];
+		byte[] effects = new byte[count];
+		double[] values = new double[type == 'c' ? 2 * count : count];
+		if (lib.mp_aResultsRange(handle, type, first, count, status, shapes, effects, values) < 0)
+			throw pInst.failure("Couldn't get results of functions " + first
+					+ " to " + (first + count - 1) + ".");
+		return new FunctionResults(funcType, first, status, shapes, effects, values);
 	}
 
 	synchronized public Object getRegionEffect(int constraint) throws Exception {
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
-		return RegionEffect.fromValue(MProbeLib.INSTANCE.mp_aGetRegionEffect(handle, constraint));
+		return RegionEffect.fromValue(regionEffects.get(constraint));
 	}
 
 	public class Effectiveness implements Comparable {
@@ -188,49 +559,46 @@ public class AnalysisInstance extends Observable implements Observer {
 	
 	synchronized public Effectiveness getEffectiveness(int constraint) throws Exception
 	{
-		DoubleByReference lb = new DoubleByReference();
-		DoubleByReference ub = new DoubleByReference();
-		
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		ResultStatus status = ResultStatus.fromValue(MProbeLib.INSTANCE.mp_aEffectiveness(handle, constraint, lb, ub));
-		return new Effectiveness(status, pInst.constraintType(constraint), lb.getValue(), ub.getValue());
+		ResultStatus status = ResultStatus.fromValue(effStatus.get(constraint));
+		return new Effectiveness(status, pInst.constraintType(constraint),
+				effectiveness.get(2 * constraint), effectiveness.get(2 * constraint + 1));
 	}
 
 	synchronized public OptimumEffect getOptimumEffect(int objective) throws Exception {
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		return MProbeLib.OptimumEffect.fromValue(
-				MProbeLib.INSTANCE.mp_aGetOptimumEffect(handle, objective));
+		return MProbeLib.OptimumEffect.fromValue(optimumEffects.get(objective));
 	}
 	
 	synchronized public String getBestvalue(int objective) throws Exception
 	{
-		DoubleByReference extremum = new DoubleByReference();
-		
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		ResultStatus status = ResultStatus.fromValue(MProbeLib.INSTANCE.mp_aExtremum(handle, objective, extremum));
+		ResultStatus status = ResultStatus.fromValue(extrStatus.get(objective));
 		if (status == ResultStatus.Computed)
-			return Double.toString(extremum.getValue());
+			return Double.toString(extrema.get(objective));
 		return status.toString();
 	}
 	
 	synchronized public double[] getBestPoint(int objective) throws Exception
 	{
-		double[] point = new double[pInst.variables()];
-		
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		ResultStatus status = ResultStatus.fromValue(MProbeLib.INSTANCE.mp_aExtremumPoint(handle, objective, point));
-		MProbeLib.INSTANCE.mp_aExtremumPoint(handle, objective, point);
-		if (status == ResultStatus.Computed)
-			return point;
-		return null;
+		ResultStatus status = ResultStatus.fromValue(extrStatus.get(objective));
+		if (status != ResultStatus.Computed)
+			return null;
+
+		double[] point = new double[pInst.variables()];
+		DoubleBuffer points = extremumPoints.duplicate();
+		points.position(objective * point.length);
+		points.get(point);
+		return point;
 	}
 
 	synchronized public double getTempLowerBound(int variable) throws Exception {
@@ -240,7 +608,7 @@ public class AnalysisInstance extends Observable implements Observer {
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		MProbeLib.INSTANCE.mp_aBounds(handle, variable, lb, ub);
+		lib.mp_aBounds(handle, variable, lb, ub);
 		return lb.getValue();
 	}
 	
@@ -249,9 +617,8 @@ public class AnalysisInstance extends Observable implements Observer {
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		MProbeLib.INSTANCE.mp_aSetLowerBound(handle, variable, newBound);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetLowerBound(handle, variable, newBound);
+		notifyOnEdt(null);
 	}
 	
 	synchronized public double getTempUpperBound(int variable) throws Exception {
@@ -261,7 +628,7 @@ public class AnalysisInstance extends Observable implements Observer {
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		MProbeLib.INSTANCE.mp_aBounds(handle, variable, lb, ub);
+		lib.mp_aBounds(handle, variable, lb, ub);
 		return ub.getValue();
 	}
 
@@ -270,9 +637,8 @@ public class AnalysisInstance extends Observable implements Observer {
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		MProbeLib.INSTANCE.mp_aSetUpperBound(handle, variable, newBound);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetUpperBound(handle, variable, newBound);
+		notifyOnEdt(null);
 	}
 
 	synchronized public void resetBounds() throws Exception {
@@ -280,188 +646,230 @@ public class AnalysisInstance extends Observable implements Observer {
 		if (handle == Pointer.NULL)
 			throw new Exception("Null analysis instance pointer!");
 		
-		MProbeLib.INSTANCE.mp_aResetBounds(handle);
-		setChanged();
-		notifyObservers();
+		lib.mp_aResetBounds(handle);
+		notifyOnEdt(null);
 	}
 	
 	
 	synchronized public double lineLengthMax()
 	{
-		return MProbeLib.INSTANCE.mp_aLineLengthMax(handle);
+		return lib.mp_aLineLengthMax(handle);
 	}
 
 	synchronized public double lineLengthMin()
 	{
-		return MProbeLib.INSTANCE.mp_aLineLengthMin(handle);
+		return lib.mp_aLineLengthMin(handle);
 	}
 
 	synchronized public void setLineLengthBounds(double min, double max)
 	{
-		MProbeLib.INSTANCE.mp_aSetLineLengthBounds(handle, min, max);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetLineLengthBounds(handle, min, max);
+		notifyOnEdt(null);
 	}
 
 	synchronized public boolean snapDiscreteComponents()
 	{
-		return MProbeLib.INSTANCE.mp_aSnapDiscreteComponents(handle) != 0;
+		return lib.mp_aSnapDiscreteComponents(handle) != 0;
 	}
 
 	synchronized public void setSnapDiscreteComponents(boolean snapBool)
 	{
-		MProbeLib.INSTANCE.mp_aSetSnapDiscreteComponents(handle, snapBool?1:0);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetSnapDiscreteComponents(handle, snapBool?1:0);
+		notifyOnEdt(null);
 	}
 
 	synchronized public int numLineSegments()
 	{
-		return MProbeLib.INSTANCE.mp_aNumLineSegments(handle);
+		return lib.mp_aNumLineSegments(handle);
 	}
 
 	synchronized public void setNumLineSegments(int numSegments)
 	{
-		MProbeLib.INSTANCE.mp_aSetNumLineSegments(handle, numSegments);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetNumLineSegments(handle, numSegments);
+		notifyOnEdt(null);
 	}
 
 	synchronized public int interiorLinePoints()
 	{
-		return MProbeLib.INSTANCE.mp_aInteriorLinePoints(handle);
+		return lib.mp_aInteriorLinePoints(handle);
 	}
 
 	synchronized public void setNumInteriorLinePoints(int numIntPoints)
 	{
-		MProbeLib.INSTANCE.mp_aSetNumInteriorLinePoints(handle, numIntPoints);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetNumInteriorLinePoints(handle, numIntPoints);
+		notifyOnEdt(null);
 	}
 
 	synchronized public int minimumPointsNeeded()
 	{
-		return MProbeLib.INSTANCE.mp_aMinimumPointsNeeded(handle);
+		return lib.mp_aMinimumPointsNeeded(handle);
 	}
 
 	synchronized public void setMinimumPointsNeeded(int minPts)
 	{
-		MProbeLib.INSTANCE.mp_aSetMinimumPointsNeeded(handle, minPts);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetMinimumPointsNeeded(handle, minPts);
+		notifyOnEdt(null);
 	}
 
 	synchronized public double evalErrorTolerance()
 	{
-		return MProbeLib.INSTANCE.mp_aEvalErrorTolerance(handle);
+		return lib.mp_aEvalErrorTolerance(handle);
 	}
 
 	synchronized public double setEvalErrorTolerance(double tolerance)
 	{
-		double result = MProbeLib.INSTANCE.mp_aSetEvalErrorTolerance(handle, tolerance);
-		setChanged();
-		notifyObservers();
+		double result = lib.mp_aSetEvalErrorTolerance(handle, tolerance);
+		notifyOnEdt(null);
 		return result;
 	}
 
 	synchronized public double infinity()
 	{
-		return MProbeLib.INSTANCE.mp_aInfinity(handle);
+		return lib.mp_aInfinity(handle);
 	}
 
 	synchronized public void setInfinity(double infinity)
 	{
-		MProbeLib.INSTANCE.mp_aSetInfinity(handle, infinity);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetInfinity(handle, infinity);
+		notifyOnEdt(null);
 	}
 
 	synchronized public double equalityTolerance()
 	{
-		return MProbeLib.INSTANCE.mp_aEqualityTolerance(handle);
+		return lib.mp_aEqualityTolerance(handle);
 	}
 
 	synchronized public double setEqualityTolerance(double equalityTol)
 	{
-		double result = MProbeLib.INSTANCE.mp_aSetEqualityTolerance(handle, equalityTol);
-		setChanged();
-		notifyObservers();
+		double result = lib.mp_aSetEqualityTolerance(handle, equalityTol);
+		notifyOnEdt(null);
 		return result;
 	}
 
 	synchronized public double almostEqualTolerance()
 	{
-		return MProbeLib.INSTANCE.mp_aAlmostEqualTolerance(handle);
+		return lib.mp_aAlmostEqualTolerance(handle);
 	}
 
 	synchronized public boolean setAlmostEqualTolerance(double almostEqualTol)
 	{
-		boolean result = MProbeLib.INSTANCE.mp_aSetAlmostEqualTolerance(handle, almostEqualTol) != 0;
-		setChanged();
-		notifyObservers();
+		boolean result = lib.mp_aSetAlmostEqualTolerance(handle, almostEqualTol) != 0;
+		notifyOnEdt(null);
 		return result;
 	}
 	
 	synchronized public long getHistogramBin(HistType type, int bin)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramBin(handle, type.toInt(), bin);
+		return lib.mp_aGetHistogramBin(handle, type.toInt(), bin);
 	}
 
 	synchronized public int getHistogramNumBins(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramNumBins(handle, type.toInt());
+		return lib.mp_aGetHistogramNumBins(handle, type.toInt());
 	}
 	
 	synchronized public long getHistogramNumOutside(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramNumOutside(handle, type.toInt());
+		return lib.mp_aGetHistogramNumOutside(handle, type.toInt());
 	}
 	
 	synchronized public long getHistogramNumAboveRange(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramNumAboveRange(handle, type.toInt());
+		return lib.mp_aGetHistogramNumAboveRange(handle, type.toInt());
 	}
 	
 	synchronized public long getHistogramNumBelowRange(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramNumBelowRange(handle, type.toInt());
+		return lib.mp_aGetHistogramNumBelowRange(handle, type.toInt());
 	}
 	
 	synchronized public long getHistogramDataPoints(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramDataPoints(handle, type.toInt());
+		return lib.mp_aGetHistogramDataPoints(handle, type.toInt());
 	}
 
 	synchronized public double getHistogramMean(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramMean(handle, type.toInt());
+		return lib.mp_aGetHistogramMean(handle, type.toInt());
 	}
 	
 	synchronized public double getHistogramStdDev(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramStdDev(handle, type.toInt());
+		return lib.mp_aGetHistogramStdDev(handle, type.toInt());
 	}
 	
 	synchronized public double getHistogramVariance(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramVariance(handle, type.toInt());
+		return lib.mp_aGetHistogramVariance(handle, type.toInt());
 	}
 	
 	synchronized public double getHistogramPopVariance(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramPopVariance(handle, type.toInt());
+		return lib.mp_aGetHistogramPopVariance(handle, type.toInt());
 	}
 	
 	synchronized public double getHistogramMaximum(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramMaximum(handle, type.toInt());
+		return lib.mp_aGetHistogramMaximum(handle, type.toInt());
 	}
 	
 	synchronized public double getHistogramMinimum(HistType type)
 	{
-		return MProbeLib.INSTANCE.mp_aGetHistogramMinimum(handle, type.toInt());
+		return lib.mp_aGetHistogramMinimum(handle, type.toInt());
 	}
 	
+	/**
+	 * Copies all four extra histograms with a single native call.
+	 * The copy is reused until the next analysis or change of bins.
+	 */
+	synchronized public HistogramSnapshot getHistogramSnapshot() throws Exception
+	{
+		if (handle == Pointer.NULL)
+			throw new Exception("Null analysis instance pointer!");
+
+		long version = resultsVersion();
+		if (histograms != null && histogramsVersion == version)
+			return histograms;
+
+		HistType[] types = HistType.values();
+		int maxBins = 0;
+		for (HistType type : types)
+			maxBins = Math.max(maxBins, getHistogramUpperBounds(type).length);
+
+		final int statsPerHist = 6;
+		long[] counts = new long[types.length * (4 + maxBins)];
+		double[] stats = new double[types.length * statsPerHist];
+		int requiredBins = lib.mp_aGetHistogramSnapshot(handle, maxBins, counts, stats);
+		if (requiredBins > maxBins) {
+			// Native bins don't match the ones set from here, copy them anyway
+			maxBins = requiredBins;
+			counts = new long[types.length * (4 + maxBins)];
+			lib.mp_aGetHistogramSnapshot(handle, maxBins, counts, stats);
+		}
+
+		double[][] upperBounds = new double[types.length][];
+		long[][] frequencies = new long[types.length][];
+		long[] dataPoints = new long[types.length];
+		long[] pointsBelow = new long[types.length];
+		long[] pointsAbove = new long[types.length];
+		double[][] histStats = new double[types.length][];
+		for (int i = 0; i < types.length; ++i) {
+			int offset = i * (4 + maxBins);
+			int bins = (int) counts[offset];
+			upperBounds[i] = getHistogramUpperBounds(types[i]).clone();
+			Arrays.sort(upperBounds[i]);
+			frequencies[i] = Arrays.copyOfRange(counts, offset + 4, offset + 4 + bins);
+			dataPoints[i] = counts[offset + 1];
+			pointsBelow[i] = counts[offset + 2];
+			pointsAbove[i] = counts[offset + 3];
+			histStats[i] = Arrays.copyOfRange(stats, i * statsPerHist, (i + 1) * statsPerHist);
+		}
+		histograms = new HistogramSnapshot(upperBounds, frequencies, dataPoints,
+				pointsBelow, pointsAbove, histStats);
+		histogramsVersion = version;
+		return histograms;
+	}
+
 	synchronized public double getHistogramLowerBinWidth(HistType type)
 	{
 		switch (type) {
@@ -542,25 +950,15 @@ public class AnalysisInstance extends Observable implements Observer {
 		default:
 			return;
 		}
-		MProbeLib.INSTANCE.mp_aSetHistogramBins(handle, type.toInt(), upperBounds.length, firstBinWidth, upperBounds);
-		setChanged();
-		notifyObservers();
+		lib.mp_aSetHistogramBins(handle, type.toInt(), upperBounds.length, firstBinWidth, upperBounds);
+		histograms = null;
+		notifyOnEdt(null);
 	}
 	
 	@Override
 	synchronized public void update(Observable obsrvble, Object arg1) {
 		if (obsrvble == pInst)
-		{
-			if (handle != Pointer.NULL)
-				MProbeLib.INSTANCE.mp_releaseAnalysis(handle);
-			{
-				if (pInst.loaded())
-					handle = pInst.createAnalysis(this);
-				else
-					handle = null;
-			}
-		}
-		setChanged();
-		notifyObservers();
+			replaceAnalysis(false);
+		notifyOnEdt(null);
 	}
 }
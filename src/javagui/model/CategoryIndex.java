@@ -0,0 +1,80 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Rows grouped by a categorical value, one BitSet per category. Categories
+ * are small non-negative ints, usually enum ordinals, rows without a category
+ * are in none of the sets. Rows can be moved between categories as values
+ * change. Readers get copies made under the index's lock, so a set handed out
+ * is never changed while a sorter or filter goes through it. Filters kept
+ * while rows move test them again with category.
+ */
+public class CategoryIndex {
+	private final int size;
+	private final int[] categories;
+	private BitSet[] rows = new BitSet[0];
+
+	public CategoryIndex(int size) {
+		this.size = size;
+		categories = new int[size];
+		Arrays.fill(categories, -1);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public synchronized int category(int row) {
+		return categories[row];
+	}
+
+	/**
+	 * @return Copy of the category of every row, -1 for none.
+	 */
+	public synchronized int[] categories() {
+		return categories.clone();
+	}
+
+	/**
+	 * Moves row into category, -1 for none.
+	 */
+	public synchronized void set(int row, int category) {
+		int old = categories[row];
+		if (old == category)
+			return;
+		if (old >= 0)
+			rows[old].clear(row);
+		if (category >= 0)
+			bits(category).set(row);
+		categories[row] = category;
+	}
+
+	public void set(int row, Enum<?> category) {
+		set(row, category == null ? -1 : category.ordinal());
+	}
+
+	/**
+	 * @return Copy of the set of rows in category.
+	 */
+	public synchronized BitSet rows(int category) {
+		return (BitSet) bits(category).clone();
+	}
+
+	public BitSet rows(Enum<?> category) {
+		return rows(category.ordinal());
+	}
+
+	private BitSet bits(int category) {
+		if (category >= rows.length) {
+			BitSet[] grown = new BitSet[category + 1];
+			System.arraycopy(rows, 0, grown, 0, rows.length);
+			rows = grown;
+		}
+		if (rows[category] == null)
+			// Sized up front so that setting bits never reallocates under a reader
+			rows[category] = new BitSet(size);
+		return rows[category];
+	}
+}
@@ -0,0 +1,147 @@
+package model;
+
+import java.util.BitSet;
+
+/**
+ * Rows of a numeric column sorted by value, for range queries. Values are
+ * ordered as by Double.compare, so NaN (results not computed) sorts after
+ * every number and is never within a range with a finite upper end.
+ * Changing a row's value only records it, the order is brought up to date by
+ * the next range query. That merge sorts the previous order again, which
+ * takes linear time when few values changed, so a burst of changes costs a
+ * single pass.
+ */
+public class ColumnIndex {
+	private final double[] values; // by row
+	private final double[] sorted; // by position
+	private final int[] rows;      // row at each position
+	private boolean stale;         // values changed since rows was sorted
+	private int[] buffer;          // merge sort scratch, kept for resorts
+
+	public ColumnIndex(double[] values) {
+		this.values = values.clone();
+		int n = values.length;
+		rows = new int[n];
+		for (int i = 0; i < n; ++i)
+			rows[i] = i;
+		mergeSort(rows, new int[n], 0, n);
+		sorted = new double[n];
+		for (int i = 0; i < n; ++i)
+			sorted[i] = this.values[rows[i]];
+	}
+
+	public ColumnIndex(int[] values) {
+		this(toDoubles(values));
+	}
+
+	private static double[] toDoubles(int[] values) {
+		double[] d = new double[values.length];
+		for (int i = 0; i < values.length; ++i)
+			d[i] = values[i];
+		return d;
+	}
+
+	public int size() {
+		return values.length;
+	}
+
+	public synchronized double value(int row) {
+		return values[row];
+	}
+
+	/**
+	 * @return Rows with min <= value <= max, or < where not inclusive.
+	 */
+	public synchronized BitSet range(double min, boolean minInclusive,
+			double max, boolean maxInclusive) {
+		resort();
+		int from = minInclusive ? lowerBound(min) : upperBound(min);
+		int to = maxInclusive ? upperBound(max) : lowerBound(max);
+		BitSet result = new BitSet(values.length);
+		for (int i = from; i < to; ++i)
+			result.set(rows[i]);
+		return result;
+	}
+
+	/**
+	 * @return Number of rows within the range, see range.
+	 */
+	public synchronized int count(double min, boolean minInclusive,
+			double max, boolean maxInclusive) {
+		resort();
+		int from = minInclusive ? lowerBound(min) : upperBound(min);
+		int to = maxInclusive ? upperBound(max) : lowerBound(max);
+		return Math.max(0, to - from);
+	}
+
+	/**
+	 * Changes the value of row, the order follows on the next query.
+	 */
+	public synchronized void set(int row, double value) {
+		if (Double.compare(values[row], value) == 0)
+			return;
+		values[row] = value;
+		stale = true;
+	}
+
+	private void resort() {
+		if (!stale)
+			return;
+		stale = false;
+		int n = rows.length;
+		if (buffer == null)
+			buffer = new int[n];
+		mergeSort(rows, buffer, 0, n);
+		for (int i = 0; i < n; ++i)
+			sorted[i] = values[rows[i]];
+	}
+
+	// First position whose value is >= v
+	private int lowerBound(double v) {
+		int lo = 0, hi = sorted.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (Double.compare(sorted[mid], v) < 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	// First position whose value is > v
+	private int upperBound(double v) {
+		int lo = 0, hi = sorted.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (Double.compare(sorted[mid], v) <= 0)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	private int compare(int a, int b) {
+		int c = Double.compare(values[a], values[b]);
+		return c != 0 ? c : Integer.compare(a, b);
+	}
+
+	private void mergeSort(int[] order, int[] buffer, int from, int to) {
+		if (to - from < 2)
+			return;
+		int mid = (from + to) >>> 1;
+		mergeSort(order, buffer, from, mid);
+		mergeSort(order, buffer, mid, to);
+		if (compare(order[mid - 1], order[mid]) <= 0)
+			return;
+		System.arraycopy(order, from, buffer, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to)
+			order[k++] = compare(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+		while (i < mid)
+			order[k++] = buffer[i++];
+		while (j < to)
+			order[k++] = buffer[j++];
+	}
+}
@@ -0,0 +1,223 @@
+package model;
+
+import com.sun.jna.Native;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.DoubleByReference;
+
+/**
+ * Direct-mapped binding for the getters which are called per table row/cell.
+ * Calls through the interface-mapped MProbeLib.INSTANCE go through a
+ * reflective proxy, which dominates the cost of these tiny calls.
+ * Everything which isn't called per row is forwarded to the proxy.
+ */
+public class DirectMProbeLib extends ForwardingMProbeLib {
+
+	private static final class Natives {
+		static {
+			Native.register(Natives.class, "mprobe");
+		}
+
+		static native void mp_releaseName(Pointer pHandle, Pointer name);
+		static native int mp_variables(Pointer pHandle);
+		static native Pointer mp_variableName(Pointer pHandle, int variable);
+		static native void mp_variablePresence(Pointer pHandle, int variable, int[] constraints, int[] objectives);
+		static native int mp_variableType(Pointer pHandle, int variable);
+		static native void mp_variableBounds(Pointer pHandle, int variable, DoubleByReference lower, DoubleByReference upper);
+		static native int mp_objectives(Pointer pHandle);
+		static native Pointer mp_objectiveName(Pointer pHandle, int objective);
+		static native int mp_objectiveType(Pointer pHandle, int objective);
+		static native int mp_objectiveVariables(Pointer pHandle, int objective, int[] variables);
+		static native int mp_constraints(Pointer pHandle);
+		static native Pointer mp_constraintName(Pointer pHandle, int constraint);
+		static native int mp_constraintType(Pointer pHandle, int constraint);
+		static native void mp_constraintBounds(Pointer pHandle, int constraint, DoubleByReference lower, DoubleByReference upper);
+		static native int mp_constraintVariables(Pointer pHandle, int constraint, int[] variables);
+		static native int mp_functionType(Pointer pHandle, int type, int function);
+		static native int mp_variableTypesBulk(Pointer pHandle, int first, int count, byte[] types);
+		static native int mp_variableBoundsBulk(Pointer pHandle, int first, int count, double[] bounds);
+		static native int mp_objectiveTypesBulk(Pointer pHandle, int first, int count, byte[] types);
+		static native int mp_constraintTypesBulk(Pointer pHandle, int first, int count, byte[] types);
+		static native int mp_constraintBoundsBulk(Pointer pHandle, int first, int count, double[] bounds);
+		static native int mp_functionTypesBulk(Pointer pHandle, int type, int first, int count, byte[] types);
+		static native int mp_namesToBuf(Pointer pHandle, int type, int[] offsets, int maxLen, byte[] buf);
+
+		static native void mp_aBounds(Pointer aHandle, int var, DoubleByReference lower, DoubleByReference upper);
+		static native byte mp_aEffectiveness(Pointer aHandle, int constraint, DoubleByReference efflb, DoubleByReference effub);
+		static native byte mp_aExtremum(Pointer aHandle, int objective, DoubleByReference extremeVal);
+		static native byte mp_aExtremumPoint(Pointer aHandle, int objective, double[] point);
+		static native byte mp_aGetEmpiricalShape(Pointer aHandle, int func, int funcType);
+		static native byte mp_aGetOptimumEffect(Pointer aHandle, int objective);
+		static native byte mp_aGetRegionEffect(Pointer aHandle, int constraint);
+		static native long mp_aResultsVersion(Pointer aHandle);
+	}
+
+	/**
+	 * @param fallback	Binding used for the functions which aren't direct-mapped.
+	 * @throws UnsatisfiedLinkError if the direct-mapped functions couldn't be registered.
+	 */
+	public DirectMProbeLib(MProbeLib fallback) {
+		super(fallback);
+		try {
+			Class.forName(Natives.class.getName(), true, Natives.class.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			throw new UnsatisfiedLinkError(e.getMessage());
+		} catch (ExceptionInInitializerError e) {
+			throw new UnsatisfiedLinkError(String.valueOf(e.getCause()));
+		}
+	}
+
+	@Override
+	public void mp_releaseName(Pointer pHandle, Pointer name) {
+		Natives.mp_releaseName(pHandle, name);
+	}
+
+	@Override
+	public int mp_variables(Pointer pHandle) {
+		return Natives.mp_variables(pHandle);
+	}
+
+	@Override
+	public Pointer mp_variableName(Pointer pHandle, int variable) {
+		return Natives.mp_variableName(pHandle, variable);
+	}
+
+	@Override
+	public void mp_variablePresence(Pointer pHandle, int variable, int[] constraints, int[] objectives) {
+		Natives.mp_variablePresence(pHandle, variable, constraints, objectives);
+	}
+
+	@Override
+	public int mp_variableType(Pointer pHandle, int variable) {
+		return Natives.mp_variableType(pHandle, variable);
+	}
+
+	@Override
+	public void mp_variableBounds(Pointer pHandle, int variable, DoubleByReference lower, DoubleByReference upper) {
+		Natives.mp_variableBounds(pHandle, variable, lower, upper);
+	}
+
+	@Override
+	public int mp_objectives(Pointer pHandle) {
+		return Natives.mp_objectives(pHandle);
+	}
+
+	@Override
+	public Pointer mp_objectiveName(Pointer pHandle, int objective) {
+		return Natives.mp_objectiveName(pHandle, objective);
+	}
+
+	@Override
+	public int mp_objectiveType(Pointer pHandle, int objective) {
+		return Natives.mp_objectiveType(pHandle, objective);
+	}
+
+	@Override
+	public int mp_objectiveVariables(Pointer pHandle, int objective, int[] variables) {
+		return Natives.mp_objectiveVariables(pHandle, objective, variables);
+	}
+
+	@Override
+	public int mp_constraints(Pointer pHandle) {
+		return Natives.mp_constraints(pHandle);
+	}
+
+	@Override
+	public Pointer mp_constraintName(Pointer pHandle, int constraint) {
+		return Natives.mp_constraintName(pHandle, constraint);
+	}
+
+	@Override
+	public int mp_constraintType(Pointer pHandle, int constraint) {
+		return Natives.mp_constraintType(pHandle, constraint);
+	}
+
+	@Override
+	public void mp_constraintBounds(Pointer pHandle, int constraint, DoubleByReference lowerBound, DoubleByReference upperBound) {
+		Natives.mp_constraintBounds(pHandle, constraint, lowerBound, upperBound);
+	}
+
+	@Override
+	public int mp_constraintVariables(Pointer pHandle, int constraint, int[] variables) {
+		return Natives.mp_constraintVariables(pHandle, constraint, variables);
+	}
+
+	@Override
+	public int mp_functionType(Pointer pHandle, int type, int function) {
+		return Natives.mp_functionType(pHandle, type, function);
+	}
+
+	@Override
+	public int mp_variableTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		return Natives.mp_variableTypesBulk(pHandle, first, count, types);
+	}
+
+	@Override
+	public int mp_variableBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+		return Natives.mp_variableBoundsBulk(pHandle, first, count, bounds);
+	}
+
+	@Override
+	public int mp_objectiveTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		return Natives.mp_objectiveTypesBulk(pHandle, first, count, types);
+	}
+
+	@Override
+	public int mp_constraintTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		return Natives.mp_constraintTypesBulk(pHandle, first, count, types);
+	}
+
+	@Override
+	public int mp_constraintBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+		return Natives.mp_constraintBoundsBulk(pHandle, first, count, bounds);
+	}
+
+	@Override
+	public int mp_functionTypesBulk(Pointer pHandle, int type, int first, int count, byte[] types) {
+		return Natives.mp_functionTypesBulk(pHandle, type, first, count, types);
+	}
+
+	@Override
+	public int mp_namesToBuf(Pointer pHandle, int type, int[] offsets, int maxLen, byte[] buf) {
+		return Natives.mp_namesToBuf(pHandle, type, offsets, maxLen, buf);
+	}
+
+	@Override
+	public void mp_aBounds(Pointer aHandle, int var, DoubleByReference lower, DoubleByReference upper) {
+		Natives.mp_aBounds(aHandle, var, lower, upper);
+	}
+
+	@Override
+	public byte mp_aEffectiveness(Pointer aHandle, int constraint, DoubleByReference efflb, DoubleByReference effub) {
+		return Natives.mp_aEffectiveness(aHandle, constraint, efflb, effub);
+	}
+
+	@Override
+	public byte mp_aExtremum(Pointer aHandle, int objective, DoubleByReference extremeVal) {
+		return Natives.mp_aExtremum(aHandle, objective, extremeVal);
+	}
+
+	@Override
+	public byte mp_aExtremumPoint(Pointer aHandle, int objective, double[] point) {
+		return Natives.mp_aExtremumPoint(aHandle, objective, point);
+	}
+
+	@Override
+	public byte mp_aGetEmpiricalShape(Pointer aHandle, int func, int funcType) {
+		return Natives.mp_aGetEmpiricalShape(aHandle, func, funcType);
+	}
+
+	@Override
+	public byte mp_aGetOptimumEffect(Pointer aHandle, int objective) {
+		return Natives.mp_aGetOptimumEffect(aHandle, objective);
+	}
+
+	@Override
+	public byte mp_aGetRegionEffect(Pointer aHandle, int constraint) {
+		return Natives.mp_aGetRegionEffect(aHandle, constraint);
+	}
+
+	@Override
+	public long mp_aResultsVersion(Pointer aHandle) {
+		return Natives.mp_aResultsVersion(aHandle);
+	}
+}
@@ -0,0 +1,31 @@
+package model;
+
+import java.util.Observable;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Observable whose observers, the table models and views of the GUI, are
+ * always notified on the event dispatch thread, whichever thread the change
+ * was made on.
+ */
+public class EdtObservable extends Observable {
+	/**
+	 * Notifies the observers right away when called on the event dispatch
+	 * thread, otherwise queues the notification to it.
+	 */
+	protected void notifyOnEdt(final Object arg) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			setChanged();
+			notifyObservers(arg);
+			return;
+		}
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				setChanged();
+				notifyObservers(arg);
+			}
+		});
+	}
+}
@@ -0,0 +1,586 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Row filter expression over the columns of a table, such as
+ *
+ *   algShape=nonlinear and regEff!=convex and totalEff>0.5 and name~"cap*"
+ *
+ * Comparisons are combined with and, or, not and parentheses. Categorical
+ * columns take = and !=, numeric columns also take <, <=, > and >=, names
+ * take = for a whole name (with * and ? wildcards) and ~ for part of a name,
+ * see NameIndex.find. Values with spaces or operators are quoted.
+ *
+ * An expression is parsed once and compiled against the category and column
+ * indexes of a table, the rows are then selected in a single pass testing
+ * each row on the indexed values. Operands of and are tested from the fewest
+ * to the most matching rows and those of or the other way round, so a row is
+ * settled by the first operand as often as possible. When a conjunction has a
+ * category or name operand the pass only visits that operand's rows.
+ *
+ * Compiled expressions test rows on the live values of the indexes, so rows
+ * the table updated can be tested again without another pass, see Compiled.
+ */
+public class FilterExpression {
+
+	/**
+	 * Columns of a table as seen by filter expressions.
+	 */
+	public interface Columns {
+		int filterRows();
+
+		/**
+		 * @return Column called name, -1 if there's none.
+		 */
+		int filterColumn(String name);
+
+		/**
+		 * @return Live category index of column, null if the column isn't
+		 * categorical.
+		 */
+		CategoryIndex filterCategories(int column);
+
+		/**
+		 * @return Category called value of a column with a category index.
+		 * @throws Exception if column has no such category.
+		 */
+		int filterCategory(int column, String value) throws Exception;
+
+		/**
+		 * @return Sorted index of column, null if the column isn't numeric.
+		 * @throws Exception if the column can't be indexed yet.
+		 */
+		ColumnIndex filterIndex(int column) throws Exception;
+
+		/**
+		 * @return Names of the rows if column holds them, null otherwise.
+		 */
+		NameDictionary filterNames(int column);
+	}
+
+	private final String text;
+	private final Node root;
+
+	private FilterExpression(String text, Node root) {
+		this.text = text;
+		this.root = root;
+	}
+
+	public static FilterExpression parse(String text) throws Exception {
+		Parser parser = new Parser(text);
+		Node root = parser.or();
+		if (parser.peek() != null)
+			throw new Exception("Unexpected '" + parser.peek() + "' in filter at " + parser.start + ".");
+		return new FilterExpression(text, root);
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Expression compiled against the indexes of a table. Rows are tested on
+	 * the indexes' live values, so they can be tested again after the table
+	 * updated them. Compile again once the table replaced its indexes.
+	 */
+	public static final class Compiled {
+		private final Predicate predicate;
+		private final int n;
+
+		private Compiled(Predicate predicate, int n) {
+			this.predicate = predicate;
+			this.n = n;
+		}
+
+		public int size() {
+			return n;
+		}
+
+		/**
+		 * @return Rows matching the expression, in a single pass over them.
+		 */
+		public BitSet rows() {
+			BitSet result = new BitSet(n);
+			BitSet candidates = predicate.candidates();
+			if (candidates != null) {
+				for (int row = candidates.nextSetBit(0); row >= 0 && row < n; row = candidates.nextSetBit(row + 1))
+					if (predicate.test(row))
+						result.set(row);
+			} else {
+				for (int row = 0; row < n; ++row)
+					if (predicate.test(row))
+						result.set(row);
+			}
+			return result;
+		}
+
+		public boolean test(int row) {
+			return predicate.test(row);
+		}
+	}
+
+	public Compiled compile(Columns columns) throws Exception {
+		int n = columns.filterRows();
+		return new Compiled(root.compile(columns, n), n);
+	}
+
+	/**
+	 * @return Index of the value in values matching text by name or by
+	 * description, ignoring case.
+	 */
+	public static int category(Enum<?>[] values, String text) throws Exception {
+		for (Enum<?> value : values)
+			if (value.name().equalsIgnoreCase(text) || value.toString().equalsIgnoreCase(text))
+				return value.ordinal();
+		throw new Exception("Unknown value '" + text + "' in filter.");
+	}
+
+	/**
+	 * @return Index of the name in columnNames equal to name ignoring case,
+	 * -1 if there's none.
+	 */
+	public static int column(String name, String[] columnNames) {
+		for (int i = 0; i < columnNames.length; ++i)
+			if (columnNames[i].equalsIgnoreCase(name))
+				return i;
+		return -1;
+	}
+
+	// Compiled form, tested row by row
+	private static abstract class Predicate {
+		abstract boolean test(int row);
+
+		// Estimated number of matching rows
+		abstract int estimate();
+
+		// Rows outside of which the predicate is false, null if unknown
+		BitSet candidates() {
+			return null;
+		}
+	}
+
+	private static class RowsPredicate extends Predicate {
+		final BitSet rows;
+		final boolean negated;
+		private final int estimate;
+
+		RowsPredicate(BitSet rows, boolean negated, int n) {
+			this.rows = rows;
+			this.negated = negated;
+			int cardinality = rows.cardinality();
+			estimate = negated ? n - cardinality : cardinality;
+		}
+
+		@Override
+		boolean test(int row) {
+			return rows.get(row) != negated;
+		}
+
+		@Override
+		int estimate() {
+			return estimate;
+		}
+
+		@Override
+		BitSet candidates() {
+			return negated ? null : rows;
+		}
+
+		RowsPredicate negate(int n) {
+			return new RowsPredicate(rows, !negated, n);
+		}
+	}
+
+	// Tests the live category of a row, the rows copied when compiled only
+	// serve as candidates and estimate
+	private static final class CategoryPredicate extends RowsPredicate {
+		private final CategoryIndex index;
+		private final int category;
+
+		CategoryPredicate(CategoryIndex index, int category, BitSet rows, boolean negated, int n) {
+			super(rows, negated, n);
+			this.index = index;
+			this.category = category;
+		}
+
+		@Override
+		boolean test(int row) {
+			return (index.category(row) == category) != negated;
+		}
+
+		@Override
+		RowsPredicate negate(int n) {
+			return new CategoryPredicate(index, category, rows, !negated, n);
+		}
+	}
+
+	private static final class ValuePredicate extends Predicate {
+		private static final int LT = 0, LE = 1, GT = 2, GE = 3, EQ = 4, NE = 5;
+		private static final String[] ops = { "<", "<=", ">", ">=", "=", "!=" };
+
+		private final ColumnIndex index;
+		private final int op;
+		private final double value;
+		private final int estimate;
+
+		ValuePredicate(ColumnIndex index, String op, double value) {
+			this.index = index;
+			this.op = Arrays.asList(ops).indexOf(op);
+			this.value = value;
+			double inf = Double.POSITIVE_INFINITY;
+			switch (this.op) {
+			case LT:
+				estimate = index.count(-inf, true, value, false);
+				break;
+			case LE:
+				estimate = index.count(-inf, true, value, true);
+				break;
+			case GT:
+				estimate = index.count(value, false, inf, true);
+				break;
+			case GE:
+				estimate = index.count(value, true, inf, true);
+				break;
+			case EQ:
+				estimate = index.count(value, true, value, true);
+				break;
+			default:
+				estimate = index.size() - index.count(value, true, value, true);
+				break;
+			}
+		}
+
+		@Override
+		boolean test(int row) {
+			double v = index.value(row);
+			switch (op) {
+			case LT:
+				return v < value;
+			case LE:
+				return v <= value;
+			case GT:
+				return v > value;
+			case GE:
+				return v >= value;
+			case EQ:
+				return v == value;
+			default:
+				return v != value;
+			}
+		}
+
+		@Override
+		int estimate() {
+			return estimate;
+		}
+	}
+
+	private static final class NotPredicate extends Predicate {
+		private final Predicate operand;
+		private final int n;
+
+		NotPredicate(Predicate operand, int n) {
+			this.operand = operand;
+			this.n = n;
+		}
+
+		@Override
+		boolean test(int row) {
+			return !operand.test(row);
+		}
+
+		@Override
+		int estimate() {
+			return n - operand.estimate();
+		}
+	}
+
+	private static final class AndPredicate extends Predicate {
+		private final Predicate[] operands;
+
+		AndPredicate(List<Predicate> operands) {
+			// Most selective first
+			Collections.sort(operands, new Comparator<Predicate>() {
+				@Override
+				public int compare(Predicate a, Predicate b) {
+					return Integer.compare(a.estimate(), b.estimate());
+				}
+			});
+			this.operands = operands.toArray(new Predicate[operands.size()]);
+		}
+
+		@Override
+		boolean test(int row) {
+			for (Predicate p : operands)
+				if (!p.test(row))
+					return false;
+			return true;
+		}
+
+		@Override
+		int estimate() {
+			return operands[0].estimate();
+		}
+
+		@Override
+		BitSet candidates() {
+			for (Predicate p : operands) {
+				BitSet rows = p.candidates();
+				if (rows != null)
+					return rows;
+			}
+			return null;
+		}
+	}
+
+	private static final class OrPredicate extends Predicate {
+		private final Predicate[] operands;
+		private final int n;
+
+		OrPredicate(List<Predicate> operands, int n) {
+			// Least selective first
+			Collections.sort(operands, new Comparator<Predicate>() {
+				@Override
+				public int compare(Predicate a, Predicate b) {
+					return Integer.compare(b.estimate(), a.estimate());
+				}
+			});
+			this.operands = operands.toArray(new Predicate[operands.size()]);
+			this.n = n;
+		}
+
+		@Override
+		boolean test(int row) {
+			for (Predicate p : operands)
+				if (p.test(row))
+					return true;
+			return false;
+		}
+
+		@Override
+		int estimate() {
+			long sum = 0;
+			for (Predicate p : operands)
+				sum += p.estimate();
+			return (int) Math.min(sum, n);
+		}
+	}
+
+	// Parsed form
+	private interface Node {
+		Predicate compile(Columns columns, int n) throws Exception;
+	}
+
+	private static final class And implements Node {
+		final List<Node> operands = new ArrayList<Node>();
+
+		@Override
+		public Predicate compile(Columns columns, int n) throws Exception {
+			List<Predicate> compiled = new ArrayList<Predicate>();
+			for (Node operand : operands)
+				compiled.add(operand.compile(columns, n));
+			return new AndPredicate(compiled);
+		}
+	}
+
+	private static final class Or implements Node {
+		final List<Node> operands = new ArrayList<Node>();
+
+		@Override
+		public Predicate compile(Columns columns, int n) throws Exception {
+			List<Predicate> compiled = new ArrayList<Predicate>();
+			for (Node operand : operands)
+				compiled.add(operand.compile(columns, n));
+			return new OrPredicate(compiled, n);
+		}
+	}
+
+	private static final class Not implements Node {
+		final Node operand;
+
+		Not(Node operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		public Predicate compile(Columns columns, int n) throws Exception {
+			Predicate p = operand.compile(columns, n);
+			if (p instanceof RowsPredicate)
+				return ((RowsPredicate) p).negate(n);
+			return new NotPredicate(p, n);
+		}
+	}
+
+	private static final class Comparison implements Node {
+		final String column;
+		final String op;
+		final String value;
+
+		Comparison(String column, String op, String value) {
+			this.column = column;
+			this.op = op;
+			this.value = value;
+		}
+
+		@Override
+		public Predicate compile(Columns columns, int n) throws Exception {
+			int c = columns.filterColumn(column);
+			if (c < 0)
+				throw new Exception("Unknown column '" + column + "' in filter.");
+			boolean equality = op.equals("=") || op.equals("!=");
+
+			NameDictionary names = columns.filterNames(c);
+			if (names != null) {
+				if (!equality && !op.equals("~"))
+					throw new Exception("Names can only be compared with =, != and ~.");
+				int[] matches = op.equals("~") ? names.index().find(value) : names.index().wildcard(value);
+				BitSet rows = new BitSet(n);
+				for (int row : matches)
+					rows.set(row);
+				return new RowsPredicate(rows, op.equals("!="), n);
+			}
+
+			CategoryIndex categories = equality ? columns.filterCategories(c) : null;
+			if (categories != null) {
+				int category = columns.filterCategory(c, value);
+				return new CategoryPredicate(categories, category, categories.rows(category),
+						op.equals("!="), n);
+			}
+
+			ColumnIndex index = columns.filterIndex(c);
+			if (index == null)
+				throw new Exception("Column '" + column + "' can't be compared with " + op + ".");
+			if (op.equals("~"))
+				throw new Exception("Only names can be compared with ~.");
+			double number;
+			try {
+				number = Double.parseDouble(value);
+			} catch (NumberFormatException e) {
+				throw new Exception("'" + value + "' isn't a number.");
+			}
+			return new ValuePredicate(index, op, number);
+		}
+	}
+
+	private static final class Parser {
+		private final String text;
+		private int pos;
+		// Start of the token returned by peek
+		int start;
+		private String token;
+		private boolean quoted;
+
+		Parser(String text) throws Exception {
+			this.text = text;
+			next();
+		}
+
+		String peek() {
+			return token;
+		}
+
+		private String take() throws Exception {
+			String t = token;
+			next();
+			return t;
+		}
+
+		private boolean keyword(String word) throws Exception {
+			if (token != null && !quoted && token.equalsIgnoreCase(word)) {
+				next();
+				return true;
+			}
+			return false;
+		}
+
+		private void next() throws Exception {
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+				++pos;
+			start = pos;
+			quoted = false;
+			if (pos == text.length()) {
+				token = null;
+				return;
+			}
+			char c = text.charAt(pos);
+			if (c == '"') {
+				int end = text.indexOf('"', pos + 1);
+				if (end < 0)
+					throw new Exception("Unterminated quote in filter at " + pos + ".");
+				token = text.substring(pos + 1, end);
+				quoted = true;
+				pos = end + 1;
+			} else if (c == '(' || c == ')' || c == '~') {
+				token = String.valueOf(c);
+				++pos;
+			} else if (c == '<' || c == '>' || c == '=' || c == '!') {
+				int end = pos + 1;
+				if (end < text.length() && text.charAt(end) == '=')
+					++end;
+				token = text.substring(pos, end);
+				if (token.equals("!"))
+					throw new Exception("Expected != in filter at " + pos + ".");
+				pos = end;
+			} else {
+				int end = pos;
+				while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+						&& "()~<>=!\"".indexOf(text.charAt(end)) < 0)
+					++end;
+				token = text.substring(pos, end);
+				pos = end;
+			}
+		}
+
+		private boolean isOperator() {
+			return !quoted && token != null
+					&& (token.equals("=") || token.equals("!=") || token.equals("<")
+					|| token.equals("<=") || token.equals(">") || token.equals(">=")
+					|| token.equals("~"));
+		}
+
+		Node or() throws Exception {
+			Or or = new Or();
+			or.operands.add(and());
+			while (keyword("or"))
+				or.operands.add(and());
+			return or.operands.size() == 1 ? or.operands.get(0) : or;
+		}
+
+		private Node and() throws Exception {
+			And and = new And();
+			and.operands.add(unary());
+			while (keyword("and"))
+				and.operands.add(unary());
+			return and.operands.size() == 1 ? and.operands.get(0) : and;
+		}
+
+		private Node unary() throws Exception {
+			if (keyword("not"))
+				return new Not(unary());
+			if (token == null)
+				throw new Exception("Unexpected end of filter.");
+			if (!quoted && token.equals("(")) {
+				next();
+				Node inner = or();
+				if (token == null || quoted || !token.equals(")"))
+					throw new Exception("Expected ) in filter at " + start + ".");
+				next();
+				return inner;
+			}
+			int at = start;
+			String column = take();
+			if (!isOperator())
+				throw new Exception("Expected a comparison after '" + column + "' in filter at " + at + ".");
+			String op = take();
+			if (token == null || (!quoted && (token.equals("(") || token.equals(")") || isOperator())))
+				throw new Exception("Expected a value after " + op + " in filter at " + start + ".");
+			return new Comparison(column, op, take());
+		}
+	}
+}
@@ -0,0 +1,503 @@
+package model;
+
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.DoubleByReference;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
+
+/**
+ * An MProbeLib which passes every call on to another MProbeLib.
+ * Alternative bindings extend this and override only the functions they
+ * bind themselves.
+ */
+public class ForwardingMProbeLib implements MProbeLib {
+	protected final MProbeLib delegate;
+
+	public ForwardingMProbeLib(MProbeLib lib) {
+		delegate = lib;
+	}
+
+	@Override
+	public void mprobe_init() {
+		delegate.mprobe_init();
+	}
+
+	@Override
+	public void mprobe_deinit() {
+		delegate.mprobe_deinit();
+	}
+
+	@Override
+	public void mp_loadPlugins(String path) {
+		delegate.mp_loadPlugins(path);
+	}
+
+	@Override
+	public void mp_unloadPlugins(String path) {
+		delegate.mp_unloadPlugins(path);
+	}
+
+	@Override
+	public Pointer mp_load(int numFile, String[] files) {
+		return delegate.mp_load(numFile, files);
+	}
+
+	@Override
+	public void mp_unload(Pointer pHandle) {
+		delegate.mp_unload(pHandle);
+	}
+
+	@Override
+	public int mp_compatibleFiles(int numFiles, String[] filenames, int[] compatibility) {
+		return delegate.mp_compatibleFiles(numFiles, filenames, compatibility);
+	}
+
+	@Override
+	public void mp_releaseName(Pointer pHandle, Pointer name) {
+		delegate.mp_releaseName(pHandle, name);
+	}
+
+	@Override
+	public String mp_instanceName(Pointer pHandle) {
+		return delegate.mp_instanceName(pHandle);
+	}
+
+	@Override
+	public int mp_instanceNameToBuf(Pointer pHandle, int maxLen, char[] buf) {
+		return delegate.mp_instanceNameToBuf(pHandle, maxLen, buf);
+	}
+
+	@Override
+	public int mp_variables(Pointer pHandle) {
+		return delegate.mp_variables(pHandle);
+	}
+
+	@Override
+	public Pointer mp_variableName(Pointer pHandle, int variable) {
+		return delegate.mp_variableName(pHandle, variable);
+	}
+
+	@Override
+	public int mp_variableNameToBuf(Pointer pHandle, int variable, int maxLen, char[] buf) {
+		return delegate.mp_variableNameToBuf(pHandle, variable, maxLen, buf);
+	}
+
+	@Override
+	public void mp_variablePresence(Pointer pHandle, int variable, int[] constraints, int[] objectives) {
+		delegate.mp_variablePresence(pHandle, variable, constraints, objectives);
+	}
+
+	@Override
+	public int mp_variableType(Pointer pHandle, int variable) {
+		return delegate.mp_variableType(pHandle, variable);
+	}
+
+	@Override
+	public void mp_variableBounds(Pointer pHandle, int variable, DoubleByReference lower, DoubleByReference upper) {
+		delegate.mp_variableBounds(pHandle, variable, lower, upper);
+	}
+
+	@Override
+	public int mp_objectives(Pointer pHandle) {
+		return delegate.mp_objectives(pHandle);
+	}
+
+	@Override
+	public Pointer mp_objectiveName(Pointer pHandle, int objective) {
+		return delegate.mp_objectiveName(pHandle, objective);
+	}
+
+	@Override
+	public int mp_objectiveNameToBuf(Pointer pHandle, int objective, int maxLen, char[] buf) {
+		return delegate.mp_objectiveNameToBuf(pHandle, objective, maxLen, buf);
+	}
+
+	@Override
+	public int mp_objectiveType(Pointer pHandle, int objective) {
+		return delegate.mp_objectiveType(pHandle, objective);
+	}
+
+	@Override
+	public int mp_objectiveVariables(Pointer pHandle, int objective, int[] variables) {
+		return delegate.mp_objectiveVariables(pHandle, objective, variables);
+	}
+
+	@Override
+	public int mp_constraints(Pointer pHandle) {
+		return delegate.mp_constraints(pHandle);
+	}
+
+	@Override
+	public Pointer mp_constraintName(Pointer pHandle, int constraint) {
+		return delegate.mp_constraintName(pHandle, constraint);
+	}
+
+	@Override
+	public int mp_constraintNameToBuf(Pointer pHandle, int constraint, int maxLen, char[] buf) {
+		return delegate.mp_constraintNameToBuf(pHandle, constraint, maxLen, buf);
+	}
+
+	@Override
+	public int mp_constraintType(Pointer pHandle, int constraint) {
+		return delegate.mp_constraintType(pHandle, constraint);
+	}
+
+	@Override
+	public void mp_constraintBounds(Pointer pHandle, int constraint, DoubleByReference lowerBound, DoubleByReference upperBound) {
+		delegate.mp_constraintBounds(pHandle, constraint, lowerBound, upperBound);
+	}
+
+	@Override
+	public int mp_constraintVariables(Pointer pHandle, int constraint, int[] variables) {
+		return delegate.mp_constraintVariables(pHandle, constraint, variables);
+	}
+
+	@Override
+	public int mp_functionType(Pointer pHandle, int type, int function) {
+		return delegate.mp_functionType(pHandle, type, function);
+	}
+
+	@Override
+	public int mp_variableTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		return delegate.mp_variableTypesBulk(pHandle, first, count, types);
+	}
+
+	@Override
+	public int mp_variableBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+		return delegate.mp_variableBoundsBulk(pHandle, first, count, bounds);
+	}
+
+	@Override
+	public int mp_objectiveTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		return delegate.mp_objectiveTypesBulk(pHandle, first, count, types);
+	}
+
+	@Override
+	public int mp_constraintTypesBulk(Pointer pHandle, int first, int count, byte[] types) {
+		return delegate.mp_constraintTypesBulk(pHandle, first, count, types);
+	}
+
+	@Override
+	public int mp_constraintBoundsBulk(Pointer pHandle, int first, int count, double[] bounds) {
+		return delegate.mp_constraintBoundsBulk(pHandle, first, count, bounds);
+	}
+
+	@Override
+	public int mp_functionTypesBulk(Pointer pHandle, int type, int first, int count, byte[] types) {
+		return delegate.mp_functionTypesBulk(pHandle, type, first, count, types);
+	}
+
+	@Override
+	public int mp_namesToBuf(Pointer pHandle, int type, int[] offsets, int maxLen, byte[] buf) {
+		return delegate.mp_namesToBuf(pHandle, type, offsets, maxLen, buf);
+	}
+
+	@Override
+	public int mp_nonzeros(Pointer pHandle, int type) {
+		return delegate.mp_nonzeros(pHandle, type);
+	}
+
+	@Override
+	public int mp_sparsityPattern(Pointer pHandle, int type, int[] rowStarts, int maxLen, int[] columns) {
+		return delegate.mp_sparsityPattern(pHandle, type, rowStarts, maxLen, columns);
+	}
+
+	@Override
+	public int mp_evaluateFunctionsVal(Pointer pHandle, int type, int numFuncs, int[] funcs,
+			int numPoints, double[] points, double[] results, byte[] errors) {
+		return delegate.mp_evaluateFunctionsVal(pHandle, type, numFuncs, funcs, numPoints, points, results, errors);
+	}
+
+	@Override
+	public int mp_evaluateFunctionsGrad(Pointer pHandle, int type, int numFuncs, int[] funcs,
+			int numPoints, double[] points, double[] results, byte[] errors) {
+		return delegate.mp_evaluateFunctionsGrad(pHandle, type, numFuncs, funcs, numPoints, points, results, errors);
+	}
+
+	@Override
+	public int mp_GetLastError(Pointer pHandle, PointerByReference error) {
+		return delegate.mp_GetLastError(pHandle, error);
+	}
+
+	@Override
+	public void mp_ReleaseErrorStr(Pointer pHandle, Pointer error) {
+		delegate.mp_ReleaseErrorStr(pHandle, error);
+	}
+
+	@Override
+	public Pointer mp_createAnalysis(Pointer pHandle) {
+		return delegate.mp_createAnalysis(pHandle);
+	}
+
+	@Override
+	public void mp_releaseAnalysis(Pointer pHandle) {
+		delegate.mp_releaseAnalysis(pHandle);
+	}
+
+	@Override
+	public void mp_aVariableBoundLineSample(Pointer pHandle, int funcType, int func, int extraHistsBool) {
+		delegate.mp_aVariableBoundLineSample(pHandle, funcType, func, extraHistsBool);
+	}
+
+	@Override
+	public int mp_aAnalyzeFunctions(Pointer aHandle, int funcType, int[] funcs, int numFuncs,
+			int threads, AnalyzeCallback callback) {
+		return delegate.mp_aAnalyzeFunctions(aHandle, funcType, funcs, numFuncs, threads, callback);
+	}
+
+	@Override
+	public void mp_aBounds(Pointer aHandle, int var, DoubleByReference lower, DoubleByReference upper) {
+		delegate.mp_aBounds(aHandle, var, lower, upper);
+	}
+
+	@Override
+	public void mp_aResetBounds(Pointer aHandle) {
+		delegate.mp_aResetBounds(aHandle);
+	}
+
+	@Override
+	public void mp_aClampBounds(Pointer aHandle, double maxMagnitude) {
+		delegate.mp_aClampBounds(aHandle, maxMagnitude);
+	}
+
+	@Override
+	public void mp_aSetBounds(Pointer aHandle, int var, double lower, double upper) {
+		delegate.mp_aSetBounds(aHandle, var, lower, upper);
+	}
+
+	@Override
+	public double mp_aUpperBound(Pointer aHandle, int var) {
+		return delegate.mp_aUpperBound(aHandle, var);
+	}
+
+	@Override
+	public void mp_aSetUpperBound(Pointer aHandle, int var, double upper) {
+		delegate.mp_aSetUpperBound(aHandle, var, upper);
+	}
+
+	@Override
+	public double mp_aLowerBound(Pointer aHandle, int var) {
+		return delegate.mp_aLowerBound(aHandle, var);
+	}
+
+	@Override
+	public void mp_aSetLowerBound(Pointer aHandle, int var, double upper) {
+		delegate.mp_aSetLowerBound(aHandle, var, upper);
+	}
+
+	@Override
+	public double mp_aLineLengthMax(Pointer aHandle) {
+		return delegate.mp_aLineLengthMax(aHandle);
+	}
+
+	@Override
+	public double mp_aLineLengthMin(Pointer aHandle) {
+		return delegate.mp_aLineLengthMin(aHandle);
+	}
+
+	@Override
+	public void mp_aLineLengthBounds(Pointer aHandle, DoubleByReference min, DoubleByReference max) {
+		delegate.mp_aLineLengthBounds(aHandle, min, max);
+	}
+
+	@Override
+	public void mp_aSetLineLengthBounds(Pointer aHandle, double min, double max) {
+		delegate.mp_aSetLineLengthBounds(aHandle, min, max);
+	}
+
+	@Override
+	public int mp_aSnapDiscreteComponents(Pointer aHandle) {
+		return delegate.mp_aSnapDiscreteComponents(aHandle);
+	}
+
+	@Override
+	public void mp_aSetSnapDiscreteComponents(Pointer aHandle, int snapBool) {
+		delegate.mp_aSetSnapDiscreteComponents(aHandle, snapBool);
+	}
+
+	@Override
+	public int mp_aNumLineSegments(Pointer aHandle) {
+		return delegate.mp_aNumLineSegments(aHandle);
+	}
+
+	@Override
+	public void mp_aSetNumLineSegments(Pointer aHandle, int numSegments) {
+		delegate.mp_aSetNumLineSegments(aHandle, numSegments);
+	}
+
+	@Override
+	public int mp_aInteriorLinePoints(Pointer aHandle) {
+		return delegate.mp_aInteriorLinePoints(aHandle);
+	}
+
+	@Override
+	public void mp_aSetNumInteriorLinePoints(Pointer aHandle, int numIntPoints) {
+		delegate.mp_aSetNumInteriorLinePoints(aHandle, numIntPoints);
+	}
+
+	@Override
+	public int mp_aMinimumPointsNeeded(Pointer aHandle) {
+		return delegate.mp_aMinimumPointsNeeded(aHandle);
+	}
+
+	@Override
+	public void mp_aSetMinimumPointsNeeded(Pointer aHandle, int minPts) {
+		delegate.mp_aSetMinimumPointsNeeded(aHandle, minPts);
+	}
+
+	@Override
+	public double mp_aEvalErrorTolerance(Pointer aHandle) {
+		return delegate.mp_aEvalErrorTolerance(aHandle);
+	}
+
+	@Override
+	public double mp_aSetEvalErrorTolerance(Pointer aHandle, double tolerance) {
+		return delegate.mp_aSetEvalErrorTolerance(aHandle, tolerance);
+	}
+
+	@Override
+	public double mp_aInfinity(Pointer aHandle) {
+		return delegate.mp_aInfinity(aHandle);
+	}
+
+	@Override
+	public void mp_aSetInfinity(Pointer aHandle, double infinity) {
+		delegate.mp_aSetInfinity(aHandle, infinity);
+	}
+
+	@Override
+	public double mp_aEqualityTolerance(Pointer aHandle) {
+		return delegate.mp_aEqualityTolerance(aHandle);
+	}
+
+	@Override
+	public double mp_aSetEqualityTolerance(Pointer aHandle, double equalityTol) {
+		return delegate.mp_aSetEqualityTolerance(aHandle, equalityTol);
+	}
+
+	@Override
+	public double mp_aAlmostEqualTolerance(Pointer aHandle) {
+		return delegate.mp_aAlmostEqualTolerance(aHandle);
+	}
+
+	@Override
+	public int mp_aSetAlmostEqualTolerance(Pointer aHandle, double almostEqualTol) {
+		return delegate.mp_aSetAlmostEqualTolerance(aHandle, almostEqualTol);
+	}
+
+	@Override
+	public byte mp_aEffectiveness(Pointer aHandle, int constraint, DoubleByReference efflb, DoubleByReference effub) {
+		return delegate.mp_aEffectiveness(aHandle, constraint, efflb, effub);
+	}
+
+	@Override
+	public byte mp_aExtremum(Pointer aHandle, int objective, DoubleByReference extremeVal) {
+		return delegate.mp_aExtremum(aHandle, objective, extremeVal);
+	}
+
+	@Override
+	public byte mp_aExtremumPoint(Pointer aHandle, int objective, double[] point) {
+		return delegate.mp_aExtremumPoint(aHandle, objective, point);
+	}
+
+	@Override
+	public long mp_aGetHistogramBin(Pointer aHandle, int histType, int bin) {
+		return delegate.mp_aGetHistogramBin(aHandle, histType, bin);
+	}
+
+	@Override
+	public int mp_aGetHistogramNumBins(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramNumBins(aHandle, histType);
+	}
+
+	@Override
+	public long mp_aGetHistogramNumOutside(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramNumOutside(aHandle, histType);
+	}
+
+	@Override
+	public long mp_aGetHistogramNumAboveRange(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramNumAboveRange(aHandle, histType);
+	}
+
+	@Override
+	public long mp_aGetHistogramNumBelowRange(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramNumBelowRange(aHandle, histType);
+	}
+
+	@Override
+	public long mp_aGetHistogramDataPoints(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramDataPoints(aHandle, histType);
+	}
+
+	@Override
+	public double mp_aGetHistogramMean(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramMean(aHandle, histType);
+	}
+
+	@Override
+	public double mp_aGetHistogramStdDev(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramStdDev(aHandle, histType);
+	}
+
+	@Override
+	public double mp_aGetHistogramVariance(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramVariance(aHandle, histType);
+	}
+
+	@Override
+	public double mp_aGetHistogramPopVariance(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramPopVariance(aHandle, histType);
+	}
+
+	@Override
+	public double mp_aGetHistogramMaximum(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramMaximum(aHandle, histType);
+	}
+
+	@Override
+	public double mp_aGetHistogramMinimum(Pointer aHandle, int histType) {
+		return delegate.mp_aGetHistogramMinimum(aHandle, histType);
+	}
+
+	@Override
+	public void mp_aSetHistogramBins(Pointer aHandle, int hist, int bins, double firstBinWidth, double[] upperBounds) {
+		delegate.mp_aSetHistogramBins(aHandle, hist, bins, firstBinWidth, upperBounds);
+	}
+
+	@Override
+	public int mp_aGetHistogramSnapshot(Pointer aHandle, int maxBins, long[] counts, double[] stats) {
+		return delegate.mp_aGetHistogramSnapshot(aHandle, maxBins, counts, stats);
+	}
+
+	@Override
+	public byte mp_aGetEmpiricalShape(Pointer aHandle, int func, int funcType) {
+		return delegate.mp_aGetEmpiricalShape(aHandle, func, funcType);
+	}
+
+	@Override
+	public byte mp_aGetOptimumEffect(Pointer aHandle, int objective) {
+		return delegate.mp_aGetOptimumEffect(aHandle, objective);
+	}
+
+	@Override
+	public byte mp_aGetRegionEffect(Pointer aHandle, int constraint) {
+		return delegate.mp_aGetRegionEffect(aHandle, constraint);
+	}
+
+	@Override
+	public Pointer mp_aResultArray(Pointer aHandle, int which, IntByReference length) {
+		return delegate.mp_aResultArray(aHandle, which, length);
+	}
+
+	@Override
+	public long mp_aResultsVersion(Pointer aHandle) {
+		return delegate.mp_aResultsVersion(aHandle);
+	}
+
+	@Override
+	public int mp_aResultsRange(Pointer aHandle, int funcType, int first, int count,
+			byte[] status, byte[] shapes, byte[] effects, double[] values) {
+		return delegate.mp_aResultsRange(aHandle, funcType, first, count, status, shapes, effects, values);
+	}
+}
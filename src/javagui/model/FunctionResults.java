@@ -0,0 +1,134 @@
+package model;
+
+import model.MProbeLib.EmpiricalShape;
+import model.MProbeLib.OptimumEffect;
+import model.MProbeLib.RegionEffect;
+import model.MProbeLib.ResultStatus;
+import model.ProblemInstance.FunctionType;
+
+/**
+ * Analysis results of a range of constraints or objectives, copied with one
+ * native call, see AnalysisInstance.getResults. Functions are indexed as in
+ * the problem instance, not relative to the start of the range.
+ */
+public class FunctionResults {
+	private final FunctionType funcType;
+	private final int first;
+	private final byte[] status;
+	private final byte[] shapes;
+	private final byte[] effects;
+	// Lower/upper effectiveness pairs for constraints, extrema for objectives
+	private final double[] values;
+
+	FunctionResults(FunctionType funcType, int first, byte[] status,
+			byte[] shapes, byte[] effects, double[] values) {
+		this.funcType = funcType;
+		this.first = first;
+		this.status = status;
+		this.shapes = shapes;
+		this.effects = effects;
+		this.values = values;
+	}
+
+	/**
+	 * @return Copy of these results with the functions also covered by
+	 * update taken from it.
+	 */
+	public FunctionResults merge(FunctionResults update) {
+		if (update.funcType != funcType)
+			return this;
+		int from = Math.max(first, update.first);
+		int to = Math.min(first + size(), update.first + update.size());
+		if (from >= to)
+			return this;
+
+		byte[] newStatus = status.clone();
+		byte[] newShapes = shapes.clone();
+		byte[] newEffects = effects.clone();
+		double[] newValues = values.clone();
+		int count = to - from;
+		System.arraycopy(update.status, from - update.first, newStatus, from - first, count);
+		System.arraycopy(update.shapes, from - update.first, newShapes, from - first, count);
+		System.arraycopy(update.effects, from - update.first, newEffects, from - first, count);
+		int width = values.length / size();
+		System.arraycopy(update.values, width * (from - update.first), newValues,
+				width * (from - first), width * count);
+		return new FunctionResults(funcType, first, newStatus, newShapes, newEffects, newValues);
+	}
+
+	public FunctionType getFunctionType() {
+		return funcType;
+	}
+
+	public int getFirst() {
+		return first;
+	}
+
+	public int size() {
+		return status.length;
+	}
+
+	public boolean contains(int function) {
+		return function >= first && function < first + status.length;
+	}
+
+	/**
+	 * @return Effectiveness status for constraints, extremum status for objectives.
+	 */
+	public ResultStatus getStatus(int function) {
+		return ResultStatus.fromValue(status[function - first]);
+	}
+
+	public EmpiricalShape getEmpiricalShape(int function) {
+		return EmpiricalShape.fromValue(shapes[function - first]);
+	}
+
+	public RegionEffect getRegionEffect(int constraint) {
+		return RegionEffect.fromValue(effects[constraint - first]);
+	}
+
+	public OptimumEffect getOptimumEffect(int objective) {
+		return OptimumEffect.fromValue(effects[objective - first]);
+	}
+
+	private boolean computed(int function) {
+		return status[function - first] == 'y';
+	}
+
+	public double getLowerBoundEffectiveness(int constraint) {
+		if (!computed(constraint))
+			return Double.NaN;
+		return values[2 * (constraint - first)];
+	}
+
+	public double getUpperBoundEffectiveness(int constraint) {
+		if (!computed(constraint))
+			return Double.NaN;
+		return values[2 * (constraint - first) + 1];
+	}
+
+	public double getTotalEffectiveness(int constraint) {
+		return getLowerBoundEffectiveness(constraint)
+				+ getUpperBoundEffectiveness(constraint);
+	}
+
+	public double getIneffectiveness(int constraint) {
+		return 1 - getTotalEffectiveness(constraint);
+	}
+
+	public double getExtremum(int objective) {
+		if (!computed(objective))
+			return Double.NaN;
+		return values[objective - first];
+	}
+
+	/**
+	 * @return Best value found as a string, or the status if there is none,
+	 * as AnalysisInstance.getBestvalue.
+	 */
+	public String getBestValue(int objective) {
+		if (!computed(objective))
+			return getStatus(objective).toString();
+		return Double.toString(values[objective - first]);
+	}
+}
@@ -0,0 +1,77 @@
+package model;
+
+import model.MProbeLib.HistType;
+
+/**
+ * Immutable copy of the four extra histograms of an analysis, taken with a
+ * single native call, see AnalysisInstance.getHistogramSnapshot.
+ * Histograms are looked up by HistType.
+ */
+public final class HistogramSnapshot {
+	private final double[][] upperBounds;
+	private final long[][] frequencies;
+	private final long[] dataPoints;
+	private final long[] pointsBelow;
+	private final long[] pointsAbove;
+	// mean, standard deviation, variance, population variance, maximum, minimum
+	private final double[][] stats;
+
+	HistogramSnapshot(double[][] upperBounds, long[][] frequencies,
+			long[] dataPoints, long[] pointsBelow, long[] pointsAbove,
+			double[][] stats) {
+		this.upperBounds = upperBounds;
+		this.frequencies = frequencies;
+		this.dataPoints = dataPoints;
+		this.pointsBelow = pointsBelow;
+		this.pointsAbove = pointsAbove;
+		this.stats = stats;
+	}
+
+	public double[] getUpperBounds(HistType type) {
+		return upperBounds[type.ordinal()].clone();
+	}
+
+	public long[] getFrequencies(HistType type) {
+		return frequencies[type.ordinal()].clone();
+	}
+
+	public long getDataPoints(HistType type) {
+		return dataPoints[type.ordinal()];
+	}
+
+	public long getPointsBelow(HistType type) {
+		return pointsBelow[type.ordinal()];
+	}
+
+	public long getPointsAbove(HistType type) {
+		return pointsAbove[type.ordinal()];
+	}
+
+	public long getPointsOutside(HistType type) {
+		return pointsBelow[type.ordinal()] + pointsAbove[type.ordinal()];
+	}
+
+	public double getMean(HistType type) {
+		return stats[type.ordinal()][0];
+	}
+
+	public double getStdDev(HistType type) {
+		return stats[type.ordinal()][1];
+	}
+
+	public double getVariance(HistType type) {
+		return stats[type.ordinal()][2];
+	}
+
+	public double getPopVariance(HistType type) {
+		return stats[type.ordinal()][3];
+	}
+
+	public double getMaximum(HistType type) {
+		return stats[type.ordinal()][4];
+	}
+
+	public double getMinimum(HistType type) {
+		return stats[type.ordinal()][5];
+	}
+}
@@ -0,0 +1,152 @@
+package model;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Counts calls into the mprobe library and their latency, per function.
+ * Enabled with -Dmprobe.instrument=true, see MProbeBinding. The counters are
+ * lock-free so that recording does not serialize the calling threads.
+ */
+public final class InstrumentedMProbeLib implements InvocationHandler {
+	// Latencies are kept in power of two nanosecond buckets
+	private static final int buckets = 64;
+
+	private static final class CallStats {
+		final String name;
+		final LongAdder edtCalls = new LongAdder();
+		final LongAdder workerCalls = new LongAdder();
+		final LongAdder totalNanos = new LongAdder();
+		final LongAdder[] latencies = new LongAdder[buckets];
+
+		CallStats(String name) {
+			this.name = name;
+			for (int i = 0; i < buckets; ++i)
+				latencies[i] = new LongAdder();
+		}
+
+		void record(long nanos) {
+			if (SwingUtilities.isEventDispatchThread())
+				edtCalls.increment();
+			else
+				workerCalls.increment();
+			totalNanos.add(nanos);
+			latencies[nanos <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(nanos)].increment();
+		}
+
+		long calls() {
+			return edtCalls.sum() + workerCalls.sum();
+		}
+
+		/**
+		 * @return Upper bound of the bucket holding the given fraction of calls.
+		 */
+		long percentile(double fraction) {
+			long[] counts = new long[buckets];
+			long total = 0;
+			for (int i = 0; i < buckets; ++i)
+				total += counts[i] = latencies[i].sum();
+			long rank = (long) Math.ceil(fraction * total);
+			long seen = 0;
+			for (int i = 0; i < buckets; ++i) {
+				seen += counts[i];
+				if (seen >= rank && counts[i] > 0)
+					return i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : 1L << i);
+			}
+			return 0;
+		}
+
+		void reset() {
+			edtCalls.reset();
+			workerCalls.reset();
+			totalNanos.reset();
+			for (LongAdder l : latencies)
+				l.reset();
+		}
+	}
+
+	private final MProbeLib delegate;
+	// Filled once in the constructor, only read afterwards
+	private final Map<Method, CallStats> stats = new HashMap<Method, CallStats>();
+
+	private InstrumentedMProbeLib(MProbeLib delegate) {
+		this.delegate = delegate;
+		for (Method m : MProbeLib.class.getMethods())
+			stats.put(m, new CallStats(m.getName()));
+	}
+
+	/**
+	 * @return A library forwarding to delegate and recording every call.
+	 */
+	public static MProbeLib wrap(MProbeLib delegate) {
+		return (MProbeLib) Proxy.newProxyInstance(MProbeLib.class.getClassLoader(),
+				new Class<?>[] { MProbeLib.class }, new InstrumentedMProbeLib(delegate));
+	}
+
+	/**
+	 * @return The instrumentation of lib, or null if it isn't instrumented.
+	 */
+	public static InstrumentedMProbeLib of(MProbeLib lib) {
+		if (!Proxy.isProxyClass(lib.getClass()))
+			return null;
+		InvocationHandler handler = Proxy.getInvocationHandler(lib);
+		return handler instanceof InstrumentedMProbeLib ? (InstrumentedMProbeLib) handler : null;
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		CallStats s = stats.get(method);
+		if (s == null) // Object methods
+			return method.invoke(delegate, args);
+
+		long start = System.nanoTime();
+		try {
+			return method.invoke(delegate, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			s.record(System.nanoTime() - start);
+		}
+	}
+
+	public void reset() {
+		for (CallStats s : stats.values())
+			s.reset();
+	}
+
+	/**
+	 * Prints the called functions, most total time first.
+	 */
+	public void dump(PrintStream out) {
+		List<CallStats> called = new ArrayList<CallStats>();
+		for (CallStats s : stats.values())
+			if (s.calls() > 0)
+				called.add(s);
+		Collections.sort(called, new Comparator<CallStats>() {
+			@Override
+			public int compare(CallStats a, CallStats b) {
+				return Long.compare(b.totalNanos.sum(), a.totalNanos.sum());
+			}
+		});
+
+		out.printf("%-32s %10s %10s %12s %10s %10s %10s%n", "function", "EDT calls",
+				"other", "total us", "p50 ns<=", "p90 ns<=", "p99 ns<=");
+		for (CallStats s : called)
+			out.printf("%-32s %10d %10d %12d %10d %10d %10d%n", s.name,
+					s.edtCalls.sum(), s.workerCalls.sum(), s.totalNanos.sum() / 1000,
+					s.percentile(0.5), s.percentile(0.9), s.percentile(0.99));
+		out.flush();
+	}
+}
@@ -0,0 +1,72 @@
+package model;
+
+/**
+ * Selects the binding of the mprobe library used by the model.
+ * The choice is made once, from the "mprobe.binding" system property:
+ *  - "direct" (default): direct-mapped per-row getters, see DirectMProbeLib.
+ *  - "proxy": the interface-mapped MProbeLib.INSTANCE only.
+ *  - "foreign": downcall handles from java.lang.foreign, see ForeignMProbeLib
+ *    in src/javagui-foreign. Falls back to the direct binding when the class
+ *    wasn't built or the running Java lacks the API.
+ * With -Dmprobe.instrument=true the chosen binding is wrapped in an
+ * InstrumentedMProbeLib recording the native calls.
+ */
+public final class MProbeBinding {
+	public static final String bindingProperty = "mprobe.binding";
+	public static final String instrumentProperty = "mprobe.instrument";
+
+	private static MProbeLib library;
+
+	private MProbeBinding() {
+	}
+
+	public static synchronized MProbeLib library() {
+		if (library == null) {
+			library = createLibrary(System.getProperty(bindingProperty, "direct"));
+			if (Boolean.getBoolean(instrumentProperty))
+				library = InstrumentedMProbeLib.wrap(library);
+		}
+		return library;
+	}
+
+	/**
+	 * Binds lib instead of the native library, for harnesses running the
+	 * models without it, see adapter.CellAllocationCheck. Must come before
+	 * the first call to library.
+	 */
+	public static synchronized void install(MProbeLib lib) {
+		if (library != null)
+			throw new IllegalStateException("The mprobe library is already bound.");
+		library = lib;
+	}
+
+	/**
+	 * @return The call statistics of the library, or null if not instrumented.
+	 */
+	public static InstrumentedMProbeLib instrumentation() {
+		return InstrumentedMProbeLib.of(library());
+	}
+
+	private static MProbeLib createLibrary(String binding) {
+		if (binding.equalsIgnoreCase("proxy"))
+			return MProbeLib.INSTANCE;
+
+		if (binding.equalsIgnoreCase("foreign")) {
+			try {
+				// Loaded by name, the class needs a newer Java than the rest of the GUI
+				return (MProbeLib) Class.forName("model.ForeignMProbeLib")
+						.getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				System.err.println("Foreign binding unavailable, falling back to direct: " + e);
+			}
+		} else if (!binding.equalsIgnoreCase("direct"))
+			System.err.println("Unknown " + bindingProperty + " \"" + binding + "\", using direct binding.");
+
+		try {
+			return new DirectMProbeLib(MProbeLib.INSTANCE);
+		} catch (UnsatisfiedLinkError e) {
+			System.err.println("Direct binding unavailable, falling back to proxy: " + e.getMessage());
+			return MProbeLib.INSTANCE;
+		}
+	}
+}
@@ -1,9 +1,12 @@
 package model;
 
+import com.sun.jna.Callback;
 import com.sun.jna.Library;
 import com.sun.jna.Native;
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.DoubleByReference;
+import com.sun.jna.ptr.IntByReference;
+import com.sun.jna.ptr.PointerByReference;
 
 public interface MProbeLib extends Library {
 	MProbeLib INSTANCE = (MProbeLib) Native.loadLibrary("mprobe", MProbeLib.class);
@@ -11,8 +14,6 @@ public interface MProbeLib extends Library {
 	// *******************************************************************
 	// declare all function names here i.e getVariableNames()
 	// ////////////////////////////////////////////////////////////////
-	char[] getVariableName(); // example
-
 	void mprobe_init();
 
 	void mprobe_deinit();
@@ -76,6 +77,37 @@ public interface MProbeLib extends Library {
 
 	int mp_functionType(Pointer pHandle, int type, int function);
 
+	// Bulk getters, bounds are interleaved lower/upper pairs
+	int mp_variableTypesBulk(Pointer pHandle, int first, int count, byte[] types);
+
+	int mp_variableBoundsBulk(Pointer pHandle, int first, int count, double[] bounds);
+
+	int mp_objectiveTypesBulk(Pointer pHandle, int first, int count, byte[] types);
+
+	int mp_constraintTypesBulk(Pointer pHandle, int first, int count, byte[] types);
+
+	int mp_constraintBoundsBulk(Pointer pHandle, int first, int count, double[] bounds);
+
+	int mp_functionTypesBulk(Pointer pHandle, int type, int first, int count, byte[] types);
+
+	int mp_namesToBuf(Pointer pHandle, int type, int[] offsets, int maxLen, byte[] buf);
+
+	int mp_nonzeros(Pointer pHandle, int type);
+
+	int mp_sparsityPattern(Pointer pHandle, int type, int[] rowStarts, int maxLen, int[] columns);
+
+	// Batched evaluation, results are function major
+	int mp_evaluateFunctionsVal(Pointer pHandle, int type, int numFuncs, int[] funcs,
+			int numPoints, double[] points, double[] results, byte[] errors);
+
+	int mp_evaluateFunctionsGrad(Pointer pHandle, int type, int numFuncs, int[] funcs,
+			int numPoints, double[] points, double[] results, byte[] errors);
+
+	// Latest error of the calling thread, the string is released with mp_ReleaseErrorStr
+	int mp_GetLastError(Pointer pHandle, PointerByReference error);
+
+	void mp_ReleaseErrorStr(Pointer pHandle, Pointer error);
+
 	// Analysis functions
 	Pointer mp_createAnalysis(Pointer pHandle);
 	void mp_releaseAnalysis(Pointer pHandle);
@@ -83,6 +115,18 @@ public interface MProbeLib extends Library {
 	void mp_aVariableBoundLineSample(Pointer pHandle, int funcType, int func,
 			int extraHistsBool);
 
+	// Called from the native analysis threads, one call at a time, as each
+	// function of mp_aAnalyzeFunctions is done. Non-zero stops the batch.
+	// Must not throw.
+	interface AnalyzeCallback extends Callback {
+		int invoke(int funcType, int func);
+	}
+
+	// Samples the functions on up to threads threads (0 for one per core) if
+	// the reader plugin is thread-safe, returns how many were analysed
+	int mp_aAnalyzeFunctions(Pointer aHandle, int funcType, int[] funcs, int numFuncs,
+			int threads, AnalyzeCallback callback);
+
 	void mp_aBounds(Pointer aHandle, int var, DoubleByReference lower,
 			DoubleByReference upper);
 
@@ -159,11 +203,17 @@ public interface MProbeLib extends Library {
 				return description;
 		}
 		
+		// Codes are ASCII or small ints, looked up without values() copying
+		private static final ResultStatus[] byValue = new ResultStatus[128];
+		static {
+			for (ResultStatus rStat : values())
+				byValue[rStat.value] = rStat;
+		}
+
 		static public ResultStatus fromValue(int value) {
-			for (ResultStatus rStat : ResultStatus.values())
-				if (rStat.value == value)
-					return rStat;
+			if (value < 0 || value >= byValue.length)
 				return null;
+			return byValue[value];
 		}
 	};
 
@@ -213,6 +263,10 @@ public interface MProbeLib extends Library {
 	void mp_aSetHistogramBins(Pointer aHandle, int hist, int bins,
 			double firstBinWidth, double[] upperBounds);
 
+	// Histograms in HistType order, see mprobe.h for the layout
+	int mp_aGetHistogramSnapshot(Pointer aHandle, int maxBins, long[] counts,
+			double[] stats);
+
 	enum EmpiricalShape {
 		ESShapeError(ResultStatus.InsufficientDataPoints.value, "Shape Error"),
 		ESTooManyMathErrors(ResultStatus.TooManyErrors.value, "Too many math errors"),
@@ -239,11 +293,16 @@ public interface MProbeLib extends Library {
 				return description;
 		}
 		
+		private static final EmpiricalShape[] byValue = new EmpiricalShape[128];
+		static {
+			for (EmpiricalShape eShape : values())
+				byValue[eShape.value] = eShape;
+		}
+
 		static public EmpiricalShape fromValue(int value) {
-			for (EmpiricalShape eShape : EmpiricalShape.values())
-				if (eShape.value == value)
-					return eShape;
-			return null;
+			if (value < 0 || value >= byValue.length)
+				return null;
+			return byValue[value];
 		}
 		
 		public int toInt()
@@ -274,11 +333,16 @@ public interface MProbeLib extends Library {
 				return description;
 		}
 		
+		private static final OptimumEffect[] byValue = new OptimumEffect[128];
+		static {
+			for (OptimumEffect oEff : values())
+				byValue[oEff.value] = oEff;
+		}
+
 		static public OptimumEffect fromValue(int value) {
-			for (OptimumEffect oEff : OptimumEffect.values())
-				if (oEff.value == value)
-					return oEff;
-			return null;
+			if (value < 0 || value >= byValue.length)
+				return null;
+			return byValue[value];
 		}
 		
 		public int toInt()
@@ -309,11 +373,16 @@ public interface MProbeLib extends Library {
 				return description;
 		}
 		
+		private static final RegionEffect[] byValue = new RegionEffect[128];
+		static {
+			for (RegionEffect rEff : values())
+				byValue[rEff.value] = rEff;
+		}
+
 		static public RegionEffect fromValue(int value) {
-			for (RegionEffect rEff : RegionEffect.values())
-				if (rEff.value == value)
-					return rEff;
-			return null;
+			if (value < 0 || value >= byValue.length)
+				return null;
+			return byValue[value];
 		}
 		public int toInt()
 		{
@@ -323,4 +392,12 @@ public interface MProbeLib extends Library {
 
 	byte mp_aGetRegionEffect(Pointer aHandle, int constraint);
 
+	// Result arrays owned by the analysis, see ResultArray in mprobe.h
+	Pointer mp_aResultArray(Pointer aHandle, int which, IntByReference length);
+
+	long mp_aResultsVersion(Pointer aHandle);
+
+	int mp_aResultsRange(Pointer aHandle, int funcType, int first, int count,
+			byte[] status, byte[] shapes, byte[] effects, double[] values);
+
 }
@@ -0,0 +1,198 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Names of all variables, constraints or objectives of a problem instance.
+ * The names are kept packed as one utf-8 buffer with offsets, as returned by
+ * mp_namesToBuf. Only the most recently used names are kept decoded, names
+ * are compared on their bytes without decoding them.
+ */
+public class NameDictionary {
+	public static final int defaultCacheSize = 4096;
+
+	private final byte[] names;
+	private final int[] offsets;
+	private final Map<Integer, String> decoded;
+	private NameIndex index;
+	private int[] ranks;
+
+	public NameDictionary(byte[] names, int[] offsets) {
+		this(names, offsets, defaultCacheSize);
+	}
+
+	public NameDictionary(byte[] names, int[] offsets, final int cacheSize) {
+		this.names = names;
+		this.offsets = offsets;
+		this.decoded = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	byte[] bytes() {
+		return names;
+	}
+
+	int offset(int i) {
+		return offsets[i];
+	}
+
+	int length(int i) {
+		return offsets[i + 1] - offsets[i];
+	}
+
+	/**
+	 * @return Search index of the names, built on first use.
+	 */
+	public synchronized NameIndex index() {
+		if (index == null)
+			index = new NameIndex(this);
+		return index;
+	}
+
+	/**
+	 * @return Rank of each name in byte order, equal names share a rank.
+	 * Computed on first use, not to be modified.
+	 */
+	public synchronized int[] ranks() {
+		if (ranks == null) {
+			int n = size();
+			int[] order = new int[n];
+			for (int i = 0; i < n; ++i)
+				order[i] = i;
+			mergeSort(order, new int[n], 0, n);
+
+			int[] r = new int[n];
+			int rank = 0;
+			for (int i = 0; i < n; ++i) {
+				if (i > 0 && compare(order[i - 1], order[i]) != 0)
+					++rank;
+				r[order[i]] = rank;
+			}
+			ranks = r;
+		}
+		return ranks;
+	}
+
+	// Sorts names [from, to) of order by their bytes, using buffer as scratch
+	private void mergeSort(int[] order, int[] buffer, int from, int to) {
+		if (to - from < 2)
+			return;
+		int mid = (from + to) >>> 1;
+		mergeSort(order, buffer, from, mid);
+		mergeSort(order, buffer, mid, to);
+		if (compare(order[mid - 1], order[mid]) <= 0)
+			return;
+		System.arraycopy(order, from, buffer, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to)
+			order[k++] = compare(buffer[j], buffer[i]) < 0 ? buffer[j++] : buffer[i++];
+		while (i < mid)
+			order[k++] = buffer[i++];
+		while (j < to)
+			order[k++] = buffer[j++];
+	}
+
+	/**
+	 * @return Name stored as length utf-8 bytes of buf from offset.
+	 */
+	static String decode(byte[] buf, int offset, int length) {
+		return new String(buf, offset, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return Bytes text is stored as, for comparing with stored names.
+	 */
+	static byte[] encode(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public String get(int i) {
+		synchronized (decoded) {
+			String name = decoded.get(i);
+			if (name == null) {
+				name = decode(names, offsets[i], offsets[i + 1] - offsets[i]);
+				decoded.put(i, name);
+			}
+			return name;
+		}
+	}
+
+	/**
+	 * Compares two names by their utf-8 bytes, which orders them by code point.
+	 */
+	public int compare(int a, int b) {
+		return compare(names, offsets[a], offsets[a + 1], names, offsets[b], offsets[b + 1]);
+	}
+
+	// Compares bytes [i, endA) of a with [j, endB) of b
+	private static int compare(byte[] a, int i, int endA, byte[] b, int j, int endB) {
+		for (; i < endA && j < endB; ++i, ++j) {
+			int diff = (a[i] & 0xff) - (b[j] & 0xff);
+			if (diff != 0)
+				return diff;
+		}
+		return (endA - i) - (endB - j);
+	}
+
+	/**
+	 * @return Handle of name i, sorting without decoding.
+	 */
+	public Name name(int i) {
+		return new Name(this, i);
+	}
+
+	/**
+	 * Table cell value for a name, decoded only when displayed. Names are
+	 * ordered by their bytes, that is by code point, whichever dictionaries
+	 * they come from.
+	 */
+	public static final class Name implements Comparable<Name> {
+		private final NameDictionary dictionary;
+		private final int index;
+
+		Name(NameDictionary dictionary, int index) {
+			this.dictionary = dictionary;
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		@Override
+		public int compareTo(Name other) {
+			NameDictionary a = dictionary, b = other.dictionary;
+			return compare(a.names, a.offsets[index], a.offsets[index + 1],
+					b.names, b.offsets[other.index], b.offsets[other.index + 1]);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Name))
+				return false;
+			return compareTo((Name) other) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return toString().hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return dictionary.get(index);
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Trigram index over the names of a NameDictionary, answering prefix,
+ * substring and wildcard queries with the sorted indexes of the matching
+ * names. Candidates are looked up by the trigrams of the longest literal
+ * part of the query and then checked on their bytes, names are never decoded.
+ * Queries with no literal part of three bytes scan all names.
+ */
+public class NameIndex {
+	private final NameDictionary names;
+	private final byte[] bytes;
+
+	// Distinct trigrams, sorted, and the names containing each, in CSR form
+	private final int[] trigrams;
+	private final int[] starts;
+	private final int[] postings;
+
+	NameIndex(NameDictionary names) {
+		this.names = names;
+		this.bytes = names.bytes();
+		int count = names.size();
+
+		int total = 0;
+		for (int i = 0; i < count; ++i)
+			total += Math.max(names.length(i) - 2, 0);
+
+		// Distinct trigrams, sorted in place
+		int[] all = new int[total];
+		int n = 0;
+		for (int i = 0; i < count; ++i) {
+			int end = names.offset(i + 1);
+			for (int j = names.offset(i); j + 2 < end; ++j)
+				all[n++] = trigram(bytes, j);
+		}
+		Arrays.sort(all);
+		int distinct = 0;
+		for (int k = 0; k < n; ++k)
+			if (k == 0 || all[k] != all[k - 1])
+				all[distinct++] = all[k];
+		trigrams = Arrays.copyOf(all, distinct);
+		all = null;
+
+		// Postings are counted, then filled going through the names in order
+		// so that each list comes out sorted. last is the latest name seen
+		// with each trigram, a name is listed once however often it has one.
+		starts = new int[distinct + 1];
+		int[] last = new int[distinct];
+		Arrays.fill(last, -1);
+		for (int i = 0; i < count; ++i) {
+			int end = names.offset(i + 1);
+			for (int j = names.offset(i); j + 2 < end; ++j) {
+				int t = Arrays.binarySearch(trigrams, trigram(bytes, j));
+				if (last[t] != i) {
+					last[t] = i;
+					++starts[t + 1];
+				}
+			}
+		}
+		for (int t = 0; t < distinct; ++t)
+			starts[t + 1] += starts[t];
+		postings = new int[starts[distinct]];
+		int[] next = Arrays.copyOf(starts, distinct);
+		Arrays.fill(last, -1);
+		for (int i = 0; i < count; ++i) {
+			int end = names.offset(i + 1);
+			for (int j = names.offset(i); j + 2 < end; ++j) {
+				int t = Arrays.binarySearch(trigrams, trigram(bytes, j));
+				if (last[t] != i) {
+					last[t] = i;
+					postings[next[t]++] = i;
+				}
+			}
+		}
+	}
+
+	private static int trigram(byte[] b, int i) {
+		return ((b[i] & 0xff) << 16) | ((b[i + 1] & 0xff) << 8) | (b[i + 2] & 0xff);
+	}
+
+	/**
+	 * Names containing text.
+	 */
+	public int[] substring(String text) {
+		final byte[] needle = NameDictionary.encode(text);
+		return search(needle, new Matcher() {
+			@Override
+			public boolean matches(int start, int end) {
+				return indexOf(needle, start, end) >= 0;
+			}
+		});
+	}
+
+	/**
+	 * Names starting with text.
+	 */
+	public int[] prefix(String text) {
+		final byte[] needle = NameDictionary.encode(text);
+		return search(needle, new Matcher() {
+			@Override
+			public boolean matches(int start, int end) {
+				return end - start >= needle.length && regionMatches(needle, 0, start, needle.length);
+			}
+		});
+	}
+
+	/**
+	 * Names matching a whole name pattern where '*' stands for any run of
+	 * characters and '?' for exactly one character.
+	 */
+	public int[] wildcard(String pattern) {
+		final byte[] pat = NameDictionary.encode(pattern);
+
+		// Longest literal part, all matching names contain it
+		int bestStart = 0, bestLength = 0;
+		for (int i = 0; i < pat.length; ) {
+			int j = i;
+			while (j < pat.length && pat[j] != '*' && pat[j] != '?')
+				++j;
+			if (j - i > bestLength) {
+				bestStart = i;
+				bestLength = j - i;
+			}
+			i = j + 1;
+		}
+		return search(Arrays.copyOfRange(pat, bestStart, bestStart + bestLength), new Matcher() {
+			@Override
+			public boolean matches(int start, int end) {
+				return wildcardMatches(pat, start, end);
+			}
+		});
+	}
+
+	/**
+	 * Wildcard query if text contains '*' or '?', substring query otherwise.
+	 */
+	public int[] find(String text) {
+		if (text.indexOf('*') >= 0 || text.indexOf('?') >= 0)
+			return wildcard(text);
+		return substring(text);
+	}
+
+	private interface Matcher {
+		boolean matches(int start, int end);
+	}
+
+	private int[] search(byte[] literal, Matcher matcher) {
+		int[] candidates = candidates(literal);
+		int[] result = new int[candidates == null ? names.size() : candidates.length];
+		int n = 0;
+		if (candidates == null) {
+			for (int i = 0; i < names.size(); ++i)
+				if (matcher.matches(names.offset(i), names.offset(i + 1)))
+					result[n++] = i;
+		} else {
+			for (int i : candidates)
+				if (matcher.matches(names.offset(i), names.offset(i + 1)))
+					result[n++] = i;
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	// Names having all trigrams of literal, null if literal has none
+	private int[] candidates(byte[] literal) {
+		if (literal.length < 3)
+			return null;
+
+		int[] lists = new int[literal.length - 2];
+		for (int i = 0; i + 2 < literal.length; ++i) {
+			int t = Arrays.binarySearch(trigrams, trigram(literal, i));
+			if (t < 0)
+				return new int[0];
+			lists[i] = t;
+		}
+		// Intersect starting from the shortest list
+		int shortest = lists[0];
+		for (int t : lists)
+			if (starts[t + 1] - starts[t] < starts[shortest + 1] - starts[shortest])
+				shortest = t;
+		int[] result = Arrays.copyOfRange(postings, starts[shortest], starts[shortest + 1]);
+		int n = result.length;
+		for (int t : lists) {
+			if (t == shortest)
+				continue;
+			int kept = 0;
+			for (int k = 0; k < n; ++k)
+				if (Arrays.binarySearch(postings, starts[t], starts[t + 1], result[k]) >= 0)
+					result[kept++] = result[k];
+			n = kept;
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	private boolean regionMatches(byte[] needle, int from, int at, int length) {
+		for (int k = 0; k < length; ++k)
+			if (bytes[at + k] != needle[from + k])
+				return false;
+		return true;
+	}
+
+	private int indexOf(byte[] needle, int start, int end) {
+		for (int i = start; i + needle.length <= end; ++i)
+			if (regionMatches(needle, 0, i, needle.length))
+				return i;
+		return -1;
+	}
+
+	// Length of the utf-8 character starting with byte b
+	private static int charLength(byte b) {
+		if ((b & 0x80) == 0)
+			return 1;
+		if ((b & 0xe0) == 0xc0)
+			return 2;
+		if ((b & 0xf0) == 0xe0)
+			return 3;
+		return 4;
+	}
+
+	private boolean wildcardMatches(byte[] pat, int start, int end) {
+		int p = 0, s = start;
+		int starP = -1, starS = -1;
+		while (s < end) {
+			if (p < pat.length && pat[p] == '?') {
+				++p;
+				s += charLength(bytes[s]);
+			} else if (p < pat.length && pat[p] == '*') {
+				starP = ++p;
+				starS = s;
+			} else if (p < pat.length && pat[p] == bytes[s]) {
+				++p;
+				++s;
+			} else if (starP >= 0) {
+				// Let the last '*' take one more character
+				starS += charLength(bytes[starS]);
+				s = starS;
+				p = starP;
+			} else
+				return false;
+		}
+		while (p < pat.length && pat[p] == '*')
+			++p;
+		return p == pat.length && s == end;
+	}
+}
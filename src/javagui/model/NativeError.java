@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * Error reported by the mprobe library through mp_GetLastError.
+ * The library keeps the latest error per thread, so it has to be taken on the
+ * thread that made the failing call, see ProblemInstance.takeLatestError.
+ */
+public class NativeError extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	public enum Type {
+		NoError,
+		NullArgument,
+		InvalidArgument,
+		IndexOutOfBounds,
+		InternalError;
+
+		private static final Type[] byValue = values();
+
+		static public Type fromValue(int value) {
+			if (value >= 0 && value < byValue.length)
+				return byValue[value];
+			return InternalError;
+		}
+	}
+
+	private final Type type;
+
+	public NativeError(Type type, String message) {
+		super(message);
+		this.type = type;
+	}
+
+	public Type getType() {
+		return type;
+	}
+}
@@ -0,0 +1,128 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Runs the native calls of one problem instance, and of the analyses created
+ * from it, on a single owner thread. Reader plugins that are not thread safe
+ * (no RP_THREADSAFE) are then only ever entered from that thread.
+ *
+ * Reads submitted back to back share one queue entry, so a burst of reads
+ * costs a single wake-up of the owner. Any other submission ends the batch,
+ * reads never overtake a submission made before them.
+ *
+ * Calls made from the owner thread itself run immediately.
+ */
+public final class NativeExecutor {
+	private final Thread owner;
+	private final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
+	private final Object batchLock = new Object();
+	// Reads waiting in the last queue entry, null once that entry started
+	private List<Runnable> pendingReads;
+
+	public NativeExecutor(String name) {
+		owner = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				for (;;) {
+					try {
+						queue.take().run();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}, name);
+		owner.setDaemon(true);
+		owner.start();
+	}
+
+	public boolean isOwnerThread() {
+		return Thread.currentThread() == owner;
+	}
+
+	private static <T> Runnable task(final Callable<T> call, final CompletableFuture<T> result) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					result.complete(call.call());
+				} catch (Throwable t) {
+					result.completeExceptionally(t);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Queues a call which may change native state.
+	 */
+	public <T> CompletableFuture<T> submit(Callable<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		Runnable task = task(call, result);
+		if (isOwnerThread()) {
+			task.run();
+			return result;
+		}
+		synchronized (batchLock) {
+			pendingReads = null;
+			queue.add(task);
+		}
+		return result;
+	}
+
+	/**
+	 * Queues a call which only reads native state, batched with the reads
+	 * queued right before it.
+	 */
+	public <T> CompletableFuture<T> read(Callable<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		Runnable task = task(call, result);
+		if (isOwnerThread()) {
+			task.run();
+			return result;
+		}
+		synchronized (batchLock) {
+			if (pendingReads == null) {
+				final List<Runnable> batch = new ArrayList<Runnable>();
+				pendingReads = batch;
+				queue.add(new Runnable() {
+					@Override
+					public void run() {
+						synchronized (batchLock) {
+							if (pendingReads == batch)
+								pendingReads = null;
+						}
+						for (Runnable r : batch)
+							r.run();
+					}
+				});
+			}
+			pendingReads.add(task);
+		}
+		return result;
+	}
+
+	/**
+	 * Runs a call on the owner thread and waits for it.
+	 */
+	public <T> T call(Callable<T> call) throws Exception {
+		if (isOwnerThread())
+			return call.call();
+		try {
+			return submit(call).get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw e;
+		}
+	}
+}
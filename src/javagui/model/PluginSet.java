@@ -38,7 +38,7 @@ public class PluginSet extends Observable {
 		
 		try {
 			System.load(plugin.getAbsolutePath());
-			MProbeLib.INSTANCE.mp_loadPlugins(plugin.getAbsolutePath());		
+			MProbeBinding.library().mp_loadPlugins(plugin.getAbsolutePath());		
 			pluginPaths.add(plugin);
 			/*
 			 *  Can't unload the library from the system, otherwise we'd do it here
@@ -77,7 +77,7 @@ public class PluginSet extends Observable {
 			return true;
 		}
 		pluginPaths.remove(plugin); // Just in case
-		MProbeLib.INSTANCE.mp_unloadPlugins(plugin.getAbsolutePath());
+		MProbeBinding.library().mp_unloadPlugins(plugin.getAbsolutePath());
 		setChanged();
 		notifyObservers();
 		return true;
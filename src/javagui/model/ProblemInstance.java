@@ -1,27 +1,136 @@
 package model;
 
 import java.io.File;
-import java.util.Observable;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.SwingUtilities;
 
 import com.sun.jna.Pointer;
 import com.sun.jna.ptr.DoubleByReference;
-
-public class ProblemInstance extends Observable {
-	private Pointer handle;
+import com.sun.jna.ptr.PointerByReference;
+
+public class ProblemInstance extends EdtObservable {
+	private final MProbeLib lib = MProbeBinding.library();
+	// Owns every call that may enter the reader plugin
+	private final NativeExecutor executor = new NativeExecutor("mprobe-native");
+	private volatile Pointer handle;
+	// Name read on the executor at load, the file name if the instance has none
+	private volatile String name;
 	private String secondaryName;
+	private NameDictionary variableNames;
+	private NameDictionary constraintNames;
+	private NameDictionary objectiveNames;
+	// Static description of the loaded instance, null while not loaded
+	private volatile ProblemSnapshot snapshot;
+	private final CopyOnWriteArrayList<RowPages.Listener> rowsListeners = new CopyOnWriteArrayList<RowPages.Listener>();
 
 	public ProblemInstance() {
 		secondaryName = new String();
 	}
 
-	public void load(String[] files) throws Exception {
-		handle = MProbeLib.INSTANCE.mp_load(files.length, files);
+	/**
+	 * Takes the latest error the library raised for this instance on the
+	 * calling thread, clearing it.
+	 * @return The error, or null if there was none.
+	 */
+	public NativeError takeLatestError() {
+		if (!loaded())
+			return null;
+		PointerByReference str = new PointerByReference();
+		int type = lib.mp_GetLastError(handle, str);
+		if (type == 0)
+			return null;
+		String message = null;
+		Pointer strPtr = str.getValue();
+		if (strPtr != null) {
+			message = strPtr.getString(0);
+			lib.mp_ReleaseErrorStr(handle, strPtr);
+		}
+		return new NativeError(NativeError.Type.fromValue(type), message);
+	}
+
+	// Failure of a call made on this thread, with the library's reason if any
+	NativeError failure(String what) {
+		NativeError error = takeLatestError();
+		if (error == null)
+			return new NativeError(NativeError.Type.InternalError, what);
+		return new NativeError(error.getType(), error.getMessage() == null ? what
+				: what + " " + error.getMessage());
+	}
+
+	/**
+	 * Registers a listener told when rows of paged instances are loaded, for
+	 * this and every later load.
+	 */
+	public void addRowsListener(RowPages.Listener listener) {
+		rowsListeners.add(listener);
+	}
+
+	void rowsLoaded(final RowPages.Kind kind, final int first, final int last) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				for (RowPages.Listener listener : rowsListeners)
+					listener.rowsLoaded(kind, first, last);
+			}
+		});
+	}
+
+	void columnLoaded(final RowPages.Kind kind, final boolean upper) {
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				for (RowPages.Listener listener : rowsListeners)
+					listener.columnLoaded(kind, upper);
+			}
+		});
+	}
+
+	/**
+	 * @return Executor serializing the calls into the reader plugin of this
+	 * instance, shared with the analyses created from it.
+	 */
+	public NativeExecutor executor() {
+		return executor;
+	}
+
+	public void load(final String[] files) throws Exception {
+		executor.call(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				loadOnOwner(files);
+				return null;
+			}
+		});
+		buildNameIndexes();
+		notifyOnEdt(null);
+	}
+
+	// Builds the search indexes of the names on the executor ahead of the
+	// first search, rather than on the event dispatch thread when it comes
+	private void buildNameIndexes() {
+		final NameDictionary[] dictionaries = { variableNames, constraintNames, objectiveNames };
+		executor.read(new Callable<Void>() {
+			@Override
+			public Void call() {
+				for (NameDictionary names : dictionaries)
+					if (names != null)
+						names.index();
+				return null;
+			}
+		});
+	}
+
+	private void loadOnOwner(String[] files) throws Exception {
+		handle = lib.mp_load(files.length, files);
 		if (handle == Pointer.NULL)
 			throw new Exception("Couldn't load problem instance."); // TODO:
 																	// Proper
 																	// exception
 																	// hierarchy
-		if (instanceName().isEmpty())
+		String instanceName = lib.mp_instanceName(handle);
+		if (instanceName.isEmpty())
 		{
 			if (files.length > 0)
 			{
@@ -32,10 +141,13 @@ public class ProblemInstance extends Observable {
 			{
 				secondaryName = "";
 			}
+			instanceName = secondaryName;
 		}
-			
-		setChanged();
-		notifyObservers(null);
+		name = instanceName;
+		variableNames = loadNames('v', variables());
+		constraintNames = loadNames('c', constraints());
+		objectiveNames = loadNames('o', objectives());
+		snapshot = new ProblemSnapshot(this);
 	}
 
 	public boolean loaded() {
@@ -44,41 +156,114 @@ public class ProblemInstance extends Observable {
 	}
 
 	public void unload() {
-		MProbeLib.INSTANCE.mp_unload(handle);
+		// Pages still queued must not read from the unloaded instance
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			s.clearPages();
+		try {
+			executor.call(new Callable<Void>() {
+				@Override
+				public Void call() {
+					lib.mp_unload(handle);
+					return null;
+				}
+			});
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
 		handle = Pointer.NULL;
-		setChanged();
-		notifyObservers(null);
+		name = null;
+		snapshot = null;
+		variableNames = null;
+		constraintNames = null;
+		objectiveNames = null;
+		notifyOnEdt(null);
+	}
+
+	/**
+	 * Creates an analysis of this instance on the executor.
+	 * @return The analysis handle, null if it couldn't be created.
+	 */
+	public Pointer createAnalysis(AnalysisInstance aInst) throws Exception {
+		return executor.call(new Callable<Pointer>() {
+			@Override
+			public Pointer call() {
+				Pointer ptr = lib.mp_createAnalysis(handle);
+				if (ptr != Pointer.NULL)
+					return ptr;
+				return null;
+			}
+		});
 	}
 
-	public Pointer createAnalysis(AnalysisInstance aInst) {
-		Pointer ptr = MProbeLib.INSTANCE.mp_createAnalysis(handle);
-		if (ptr != Pointer.NULL)
-			return ptr;
-		return null;
+	private NameDictionary loadNames(int type, int count) throws Exception {
+		int[] offsets = new int[count + 1];
+		int size = lib.mp_namesToBuf(handle, type, null, 0, null);
+		byte[] names = new byte[Math.max(size, 0)];
+		if (size < 0 || lib.mp_namesToBuf(handle, type, offsets, names.length, names) != size)
+			throw failure("Couldn't get names from the problem instance.");
+		return new NameDictionary(names, offsets);
+	}
+
+	SparsityPattern loadPattern(int type, int count, byte[] varTypes) throws Exception {
+		int[] rowStarts = new int[count + 1];
+		int nnz = lib.mp_nonzeros(handle, type);
+		int[] columns = new int[Math.max(nnz, 0)];
+		if (nnz < 0 || lib.mp_sparsityPattern(handle, type, rowStarts, columns.length, columns) != nnz)
+			throw failure("Couldn't get sparsity pattern from the problem instance.");
+		return new SparsityPattern(rowStarts, columns, varTypes);
+	}
+
+	/**
+	 * @return Types, bounds, shapes and sparsity of the loaded instance, or
+	 * null if none is loaded.
+	 */
+	public ProblemSnapshot snapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return Sparsity of the constraints, empty if no instance is loaded.
+	 */
+	public SparsityPattern constraintPattern() {
+		ProblemSnapshot s = snapshot;
+		if (s == null)
+			return SparsityPattern.empty;
+		return s.constraintPattern();
+	}
+
+	/**
+	 * @return Sparsity of the objectives, empty if no instance is loaded.
+	 */
+	public SparsityPattern objectivePattern() {
+		ProblemSnapshot s = snapshot;
+		if (s == null)
+			return SparsityPattern.empty;
+		return s.objectivePattern();
 	}
 
 	protected void releaseName(Pointer cstrptr) {
-		MProbeLib.INSTANCE.mp_releaseName(handle, cstrptr);
+		lib.mp_releaseName(handle, cstrptr);
 	}
 
 	public String instanceName() {
-		String name = MProbeLib.INSTANCE.mp_instanceName(handle);
-		if (name.isEmpty())
-		{
-			return secondaryName;
-		}
-		return name;
+		String n = name;
+		return n == null ? "" : n;
 	}
 
 	public int variables() {// how many variable we have
-		return MProbeLib.INSTANCE.mp_variables(handle);
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			return s.variables();
+		return lib.mp_variables(handle);
 	}
 
 	public String variableName(int i) {
-		Pointer cstr = MProbeLib.INSTANCE.mp_variableName(handle, i);
-		String jstr = cstr.getString(0);
-		releaseName(cstr);
-		return jstr;
+		return variableNames.get(i);
+	}
+
+	public NameDictionary variableNames() {
+		return variableNames;
 	}
 
 	public void variablePresence(int variable, int[] constraints,
@@ -93,7 +278,7 @@ public class ProblemInstance extends Observable {
 					"constraints array must be greater or equal to "
 							+ (objectives() + 1)); // TODO: proper exception
 													// hierarchy
-		MProbeLib.INSTANCE.mp_variablePresence(handle, variable, constraints,
+		lib.mp_variablePresence(handle, variable, constraints,
 				objectives);
 	}
 	
@@ -114,7 +299,13 @@ public class ProblemInstance extends Observable {
 	}
 
 	public VariableType variableType(int var) throws Exception {
-		int varType = MProbeLib.INSTANCE.mp_variableType(handle, var);
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			return s.variableType(var);
+		return toVariableType(lib.mp_variableType(handle, var));
+	}
+
+	public static VariableType toVariableType(int varType) throws Exception {
 		switch (varType) {
 		case 'r':
 			return VariableType.Real;
@@ -130,10 +321,17 @@ public class ProblemInstance extends Observable {
 
 	public void variableBounds(int x, DoubleByReference lower,
 			DoubleByReference upper) {
-		MProbeLib.INSTANCE.mp_variableBounds(handle, x, lower, upper);
+		lib.mp_variableBounds(handle, x, lower, upper);
 	}
 
 	public double[] variableBounds(int x) {
+		ProblemSnapshot s = snapshot;
+		if (s != null) {
+			double[] bounds = { s.variableLowerBound(x), s.variableUpperBound(x) };
+			// Page not loaded yet, ask for this variable alone
+			if (!Double.isNaN(bounds[0]) && !Double.isNaN(bounds[1]))
+				return bounds;
+		}
 		DoubleByReference lowerBound = new DoubleByReference();
 		DoubleByReference upperBound = new DoubleByReference();
 		double[] retVal = new double[2];
@@ -143,15 +341,53 @@ public class ProblemInstance extends Observable {
 		return retVal;
 	}
 
+	/**
+	 * Gets the type codes ('r', 'i' or 'b') of a range of variables in one call.
+	 * @param first	First variable.
+	 * @param types	Receives one type per element.
+	 */
+	public void variableTypes(int first, byte[] types) throws Exception {
+		if (lib.mp_variableTypesBulk(handle, first, types.length, types) < 0)
+			throw failure("Couldn't get types of variables " + first
+					+ " to " + (first + types.length - 1) + ".");
+	}
+
+	public byte[] variableTypes() throws Exception {
+		byte[] types = new byte[variables()];
+		variableTypes(0, types);
+		return types;
+	}
+
+	/**
+	 * Gets the bounds of a range of variables in one call.
+	 * @param first		First variable.
+	 * @param bounds	Receives interleaved lower and upper bounds, two elements per variable.
+	 */
+	public void variableBounds(int first, double[] bounds) throws Exception {
+		if (lib.mp_variableBoundsBulk(handle, first, bounds.length / 2, bounds) < 0)
+			throw failure("Couldn't get bounds of variables " + first
+					+ " to " + (first + bounds.length / 2 - 1) + ".");
+	}
+
+	public double[] variableBounds() throws Exception {
+		double[] bounds = new double[2 * variables()];
+		variableBounds(0, bounds);
+		return bounds;
+	}
+
 	public int objectives() {
-		return MProbeLib.INSTANCE.mp_objectives(handle);
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			return s.objectives();
+		return lib.mp_objectives(handle);
 	}
 
 	public String objectiveName(int x) {
-		Pointer cstr = MProbeLib.INSTANCE.mp_objectiveName(handle, x);
-		String jstr = cstr.getString(0);
-		releaseName(cstr);
-		return jstr;
+		return objectiveNames.get(x);
+	}
+
+	public NameDictionary objectiveNames() {
+		return objectiveNames;
 	}
 
 	public enum ObjectiveType {
@@ -159,7 +395,14 @@ public class ProblemInstance extends Observable {
 	}
 
 	public ObjectiveType objectiveType(int obj) throws Exception {
-		switch (MProbeLib.INSTANCE.mp_objectiveType(handle, obj)) {
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			return s.objectiveType(obj);
+		return toObjectiveType(lib.mp_objectiveType(handle, obj));
+	}
+
+	public static ObjectiveType toObjectiveType(int objType) throws Exception {
+		switch (objType) {
 		case 'M':
 			return ObjectiveType.Maximize;
 		case 'm':
@@ -169,24 +412,36 @@ public class ProblemInstance extends Observable {
 		}
 	}
 
+	/**
+	 * Gets the type codes ('m' or 'M') of a range of objectives in one call.
+	 */
+	public void objectiveTypes(int first, byte[] types) throws Exception {
+		if (lib.mp_objectiveTypesBulk(handle, first, types.length, types) < 0)
+			throw failure("Couldn't get types of objectives " + first
+					+ " to " + (first + types.length - 1) + ".");
+	}
+
 	public int objectiveVariables(int objective, int[] variables)
 			throws Exception {
 		if (variables.length < variables())
 			throw new Exception("Array must be greater or equal to "
 					+ (variables())); // TODO: proper exception hierarchy
-		return MProbeLib.INSTANCE
-				.mp_objectiveVariables(handle, objective, variables);
+		return lib.mp_objectiveVariables(handle, objective, variables);
 	}
 
 	public int constraints() {
-		return MProbeLib.INSTANCE.mp_constraints(handle);
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			return s.constraints();
+		return lib.mp_constraints(handle);
 	}
 
 	public String constraintName(int x) {
-		Pointer cstr = MProbeLib.INSTANCE.mp_constraintName(handle, x);
-		String jstr = cstr.getString(0);
-		releaseName(cstr);
-		return jstr;
+		return constraintNames.get(x);
+	}
+
+	public NameDictionary constraintNames() {
+		return constraintNames;
 	}
 
 	public enum ConstraintType {
@@ -211,7 +466,14 @@ public class ProblemInstance extends Observable {
 	}
 
 	public ConstraintType constraintType(int constraint) throws Exception {
-		switch (MProbeLib.INSTANCE.mp_constraintType(handle, constraint)) {
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			return s.constraintType(constraint);
+		return toConstraintType(lib.mp_constraintType(handle, constraint));
+	}
+
+	public static ConstraintType toConstraintType(int constrType) throws Exception {
+		switch (constrType) {
 		case 'r':
 			return ConstraintType.Range;
 		case 'e':
@@ -227,11 +489,27 @@ public class ProblemInstance extends Observable {
 		}
 	}
 
+	/**
+	 * Gets the type codes ('r', 'e', 'u', 'l' or 'g') of a range of constraints in one call.
+	 */
+	public void constraintTypes(int first, byte[] types) throws Exception {
+		if (lib.mp_constraintTypesBulk(handle, first, types.length, types) < 0)
+			throw failure("Couldn't get types of constraints " + first
+					+ " to " + (first + types.length - 1) + ".");
+	}
+
 	public void constraintBounds(int x, DoubleByReference a, DoubleByReference b) {
-		MProbeLib.INSTANCE.mp_constraintBounds(handle, x, a, b);
+		lib.mp_constraintBounds(handle, x, a, b);
 	}
 
 	public double[] constraintBounds(int x) {
+		ProblemSnapshot s = snapshot;
+		if (s != null) {
+			double[] bounds = { s.constraintLowerBound(x), s.constraintUpperBound(x) };
+			// Page not loaded yet, ask for this constraint alone
+			if (!Double.isNaN(bounds[0]) && !Double.isNaN(bounds[1]))
+				return bounds;
+		}
 		DoubleByReference lowerBound = new DoubleByReference();
 		DoubleByReference upperBound = new DoubleByReference();
 		double[] retVal = new double[2];
@@ -241,12 +519,23 @@ public class ProblemInstance extends Observable {
 		return retVal;
 	}
 
+	/**
+	 * Gets the bounds of a range of constraints in one call.
+	 * @param first		First constraint.
+	 * @param bounds	Receives interleaved lower and upper bounds, two elements per constraint.
+	 */
+	public void constraintBounds(int first, double[] bounds) throws Exception {
+		if (lib.mp_constraintBoundsBulk(handle, first, bounds.length / 2, bounds) < 0)
+			throw failure("Couldn't get bounds of constraints " + first
+					+ " to " + (first + bounds.length / 2 - 1) + ".");
+	}
+
 	public int constraintVariables(int constraint, int[] variables)
 			throws Exception {
 		if (variables.length < variables())
 			throw new Exception("Array must be greater or equal to "
 					+ (variables())); // TODO: proper exception hierarchy
-		return MProbeLib.INSTANCE.mp_constraintVariables(handle, constraint,
+		return lib.mp_constraintVariables(handle, constraint,
 				variables);
 	}
 
@@ -258,20 +547,105 @@ public class ProblemInstance extends Observable {
 		Nonlinear, Quadratic, Linear
 	}
 
-	public FunctionShape functionType(FunctionType funcType, int function)
-			throws Exception {
-		int type;
+	static int toTypeCode(FunctionType funcType) throws Exception {
 		switch (funcType) {
 		case Objective:
-			type = 'o';
-			break;
+			return 'o';
 		case Constraint:
-			type = 'c';
-			break;
+			return 'c';
 		default:
 			throw new Exception("Invalid function type.");
 		}
-		switch (MProbeLib.INSTANCE.mp_functionType(handle, type, function)) {
+	}
+
+	public FunctionShape functionType(FunctionType funcType, int function)
+			throws Exception {
+		ProblemSnapshot s = snapshot;
+		if (s != null)
+			return s.functionShape(funcType, function);
+		return toFunctionShape(lib.mp_functionType(handle, toTypeCode(funcType), function));
+	}
+
+	/**
+	 * Gets the algebraic shape codes ('l', 'q' or 'n') of a range of functions in one call.
+	 */
+	public void functionTypes(FunctionType funcType, int first, byte[] types)
+			throws Exception {
+		if (lib.mp_functionTypesBulk(handle, toTypeCode(funcType), first, types.length, types) < 0)
+			throw failure("Couldn't get shapes of functions " + first
+					+ " to " + (first + types.length - 1) + ".");
+	}
+
+	/**
+	 * Evaluates functions at several points with one native call.
+	 * @param funcType	Constraints or objectives.
+	 * @param functions	Functions to evaluate.
+	 * @param points	Points to evaluate at, variables() consecutive values each.
+	 * @param results	Receives one value per function and point, the value of
+	 * 					functions[i] at point k is at results[i*(number of points)+k].
+	 * @param errors	Receives non-zero where an evaluation failed (may be null).
+	 * @return Number of failed evaluations.
+	 */
+	public int evaluate(FunctionType funcType, final int[] functions, final double[] points,
+			final double[] results, final byte[] errors) throws Exception {
+		final int numPoints = checkEvaluation(functions, points, results, errors, 1);
+		final int type = toTypeCode(funcType);
+		return executor.call(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				int failures = lib.mp_evaluateFunctionsVal(handle, type,
+						functions.length, functions, numPoints, points, results, errors);
+				// The error is only visible on the thread that made the call
+				if (failures < 0)
+					throw failure("Couldn't evaluate functions.");
+				return failures;
+			}
+		});
+	}
+
+	/**
+	 * Evaluates the gradients of functions at several points with one native call.
+	 * Same as evaluate, except that each result is a dense gradient of
+	 * variables() values, the gradient of functions[i] at point k starts at
+	 * results[(i*(number of points)+k)*variables()].
+	 * @return Number of failed evaluations.
+	 */
+	public int evaluateGradients(FunctionType funcType, final int[] functions, final double[] points,
+			final double[] results, final byte[] errors) throws Exception {
+		final int numPoints = checkEvaluation(functions, points, results, errors, variables());
+		final int type = toTypeCode(funcType);
+		return executor.call(new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				int failures = lib.mp_evaluateFunctionsGrad(handle, type,
+						functions.length, functions, numPoints, points, results, errors);
+				// The error is only visible on the thread that made the call
+				if (failures < 0)
+					throw failure("Couldn't evaluate gradients.");
+				return failures;
+			}
+		});
+	}
+
+	private int checkEvaluation(int[] functions, double[] points,
+			double[] results, byte[] errors, int resultSize) throws Exception {
+		int vars = variables();
+		if (vars == 0 || points.length % vars != 0)
+			throw new Exception("Points array length must be a multiple of "
+					+ vars); // TODO: proper exception hierarchy
+		int numPoints = points.length / vars;
+		long evaluations = (long) functions.length * numPoints;
+		if (results.length < evaluations * resultSize)
+			throw new Exception("Results array must be greater or equal to "
+					+ (evaluations * resultSize)); // TODO: proper exception hierarchy
+		if (errors != null && errors.length < evaluations)
+			throw new Exception("Errors array must be greater or equal to "
+					+ evaluations); // TODO: proper exception hierarchy
+		return numPoints;
+	}
+
+	public static FunctionShape toFunctionShape(int shape) throws Exception {
+		switch (shape) {
 		case 'n':
 			return FunctionShape.Nonlinear;
 		case 'q':
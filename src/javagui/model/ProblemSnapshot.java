@@ -0,0 +1,275 @@
+package model;
+
+import model.ProblemInstance.ConstraintType;
+import model.ProblemInstance.FunctionShape;
+import model.ProblemInstance.FunctionType;
+import model.ProblemInstance.ObjectiveType;
+import model.ProblemInstance.VariableType;
+
+/**
+ * Static description of a problem instance, copied from the library once
+ * right after loading. Reading it never calls into the library.
+ * Types and shapes are the library's type codes, bounds are interleaved
+ * lower/upper pairs.
+ *
+ * Instances with more rows than -Dmprobe.pagedRows (2M by default) keep
+ * their bounds out of here, they are read through RowPages. Types and shapes
+ * take a byte per row and are always kept. Reading a bound of a paged
+ * instance never waits for the library: it is NaN until its page is loaded,
+ * see RowPages.Listener. Sorting and filtering on bounds take whole columns,
+ * which are read once per instance and kept, see boundColumn.
+ */
+public final class ProblemSnapshot {
+	public static final String pagedRowsProperty = "mprobe.pagedRows";
+	public static final int defaultPagedRows = 1 << 21;
+
+	private final int variables;
+	private final int constraints;
+	private final int objectives;
+
+	private final byte[] variableTypes;
+	private final double[] variableBounds;
+	private final byte[] constraintTypes;
+	private final double[] constraintBounds;
+	private final byte[] constraintShapes;
+	private final byte[] objectiveTypes;
+	private final byte[] objectiveShapes;
+	// Set instead of the bounds above for large instances
+	private final RowPages pages;
+
+	// Also hold the per function real/integer/binary variable counts
+	private final SparsityPattern constraintPattern;
+	private final SparsityPattern objectivePattern;
+
+	// Number of variables of each type
+	private final int realVariables;
+	private final int integerVariables;
+	private final int binaryVariables;
+
+	ProblemSnapshot(ProblemInstance inst) throws Exception {
+		variables = inst.variables();
+		constraints = inst.constraints();
+		objectives = inst.objectives();
+
+		// The patterns count the variables of each type
+		byte[] varTypes = inst.variableTypes();
+		constraintPattern = inst.loadPattern('c', constraints, varTypes);
+		objectivePattern = inst.loadPattern('o', objectives, varTypes);
+
+		variableTypes = varTypes;
+		constraintTypes = new byte[constraints];
+		inst.constraintTypes(0, constraintTypes);
+		constraintShapes = new byte[constraints];
+		inst.functionTypes(FunctionType.Constraint, 0, constraintShapes);
+		objectiveTypes = new byte[objectives];
+		inst.objectiveTypes(0, objectiveTypes);
+		objectiveShapes = new byte[objectives];
+		inst.functionTypes(FunctionType.Objective, 0, objectiveShapes);
+
+		long rows = (long) variables + constraints + objectives;
+		if (rows > Integer.getInteger(pagedRowsProperty, defaultPagedRows)) {
+			pages = new RowPages(inst, variables, constraints);
+			variableBounds = null;
+			constraintBounds = null;
+		} else {
+			pages = null;
+			variableBounds = inst.variableBounds();
+			constraintBounds = new double[2 * constraints];
+			inst.constraintBounds(0, constraintBounds);
+		}
+
+		int real = 0, integer = 0, binary = 0;
+		for (byte type : varTypes) {
+			switch (type) {
+			case 'r':
+				++real;
+				break;
+			case 'i':
+				++integer;
+				break;
+			case 'b':
+				++binary;
+				break;
+			}
+		}
+		realVariables = real;
+		integerVariables = integer;
+		binaryVariables = binary;
+	}
+
+	public int variables() {
+		return variables;
+	}
+
+	public int constraints() {
+		return constraints;
+	}
+
+	public int objectives() {
+		return objectives;
+	}
+
+	public int functions(FunctionType funcType) {
+		return funcType == FunctionType.Constraint ? constraints : objectives;
+	}
+
+	public int realVariables() {
+		return realVariables;
+	}
+
+	public int integerVariables() {
+		return integerVariables;
+	}
+
+	public int binaryVariables() {
+		return binaryVariables;
+	}
+
+	/**
+	 * @return Whether bounds are read through pages.
+	 */
+	public boolean paged() {
+		return pages != null;
+	}
+
+	/**
+	 * Starts loading the pages holding the given rows, see RowPages.prefetch.
+	 * Does nothing if the snapshot isn't paged.
+	 */
+	public void prefetch(RowPages.Kind kind, int[] rows) {
+		if (pages != null)
+			pages.prefetch(kind, rows);
+	}
+
+	/**
+	 * Drops the loaded pages and columns, if paged, for good.
+	 */
+	void clearPages() {
+		if (pages != null)
+			pages.clear();
+	}
+
+	/**
+	 * @return Type code of every row of kind, not to be modified.
+	 */
+	public byte[] types(RowPages.Kind kind) {
+		switch (kind) {
+		case Variables:
+			return variableTypes;
+		case Constraints:
+			return constraintTypes;
+		default:
+			return objectiveTypes;
+		}
+	}
+
+	/**
+	 * @return Shape code of every function of funcType, not to be modified.
+	 */
+	public byte[] shapes(FunctionType funcType) {
+		return funcType == FunctionType.Constraint ? constraintShapes : objectiveShapes;
+	}
+
+	/**
+	 * @return Lower or upper bound of every variable or constraint. A new
+	 * array for instances that aren't paged. Paged instances keep the column
+	 * once read, it is not to be modified, and null is returned while it is
+	 * read on the executor, the instance's row listeners are told when done.
+	 */
+	public double[] boundColumn(RowPages.Kind kind, boolean upper) throws Exception {
+		if (kind == RowPages.Kind.Objectives)
+			throw new Exception("Objectives have no bounds.");
+		if (pages != null)
+			return pages.column(kind, upper);
+		double[] bounds = kind == RowPages.Kind.Variables ? variableBounds : constraintBounds;
+		int side = upper ? 1 : 0;
+		double[] column = new double[bounds.length / 2];
+		for (int i = 0; i < column.length; ++i)
+			column[i] = bounds[2 * i + side];
+		return column;
+	}
+
+	/**
+	 * @return Whether boundColumn was called for the column of a paged
+	 * instance, its rows are then updated all at once when it is read.
+	 */
+	public boolean boundColumnRequested(RowPages.Kind kind, boolean upper) {
+		return pages != null && pages.columnRequested(kind, upper);
+	}
+
+	// Bound of a paged instance, NaN until its page is loaded
+	private double pagedBound(RowPages.Kind kind, int row, boolean upper) {
+		double[] column = pages.columnIfRead(kind, upper);
+		if (column != null)
+			return column[row];
+		RowPages.Page page = pages.held(kind, row);
+		if (page == null)
+			return Double.NaN;
+		return page.bounds[2 * (row - page.first) + (upper ? 1 : 0)];
+	}
+
+	public VariableType variableType(int variable) throws Exception {
+		return ProblemInstance.toVariableType(variableTypes[variable]);
+	}
+
+	/**
+	 * @return NaN if paged and the bound isn't loaded yet, see RowPages.Listener.
+	 */
+	public double variableLowerBound(int variable) {
+		if (pages != null)
+			return pagedBound(RowPages.Kind.Variables, variable, false);
+		return variableBounds[2 * variable];
+	}
+
+	/**
+	 * @return NaN if paged and the bound isn't loaded yet, see RowPages.Listener.
+	 */
+	public double variableUpperBound(int variable) {
+		if (pages != null)
+			return pagedBound(RowPages.Kind.Variables, variable, true);
+		return variableBounds[2 * variable + 1];
+	}
+
+	public ConstraintType constraintType(int constraint) throws Exception {
+		return ProblemInstance.toConstraintType(constraintTypes[constraint]);
+	}
+
+	/**
+	 * @return NaN if paged and the bound isn't loaded yet, see RowPages.Listener.
+	 */
+	public double constraintLowerBound(int constraint) {
+		if (pages != null)
+			return pagedBound(RowPages.Kind.Constraints, constraint, false);
+		return constraintBounds[2 * constraint];
+	}
+
+	/**
+	 * @return NaN if paged and the bound isn't loaded yet, see RowPages.Listener.
+	 */
+	public double constraintUpperBound(int constraint) {
+		if (pages != null)
+			return pagedBound(RowPages.Kind.Constraints, constraint, true);
+		return constraintBounds[2 * constraint + 1];
+	}
+
+	public ObjectiveType objectiveType(int objective) throws Exception {
+		return ProblemInstance.toObjectiveType(objectiveTypes[objective]);
+	}
+
+	public FunctionShape functionShape(FunctionType funcType, int function) throws Exception {
+		return ProblemInstance.toFunctionShape(funcType == FunctionType.Constraint
+				? constraintShapes[function] : objectiveShapes[function]);
+	}
+
+	public SparsityPattern pattern(FunctionType funcType) {
+		return funcType == FunctionType.Constraint ? constraintPattern : objectivePattern;
+	}
+
+	public SparsityPattern constraintPattern() {
+		return constraintPattern;
+	}
+
+	public SparsityPattern objectivePattern() {
+		return objectivePattern;
+	}
+}
@@ -0,0 +1,35 @@
+package model;
+
+import model.ProblemInstance.FunctionType;
+
+/**
+ * Observer argument of AnalysisInstance naming the one function whose results
+ * changed. Observers are notified with null when anything else changed.
+ */
+public final class ResultChange {
+	private final FunctionType funcType;
+	private final int function;
+	private final long generation;
+
+	ResultChange(FunctionType funcType, int function, long generation) {
+		this.funcType = funcType;
+		this.function = function;
+		this.generation = generation;
+	}
+
+	public FunctionType getFunctionType() {
+		return funcType;
+	}
+
+	public int getFunction() {
+		return function;
+	}
+
+	/**
+	 * @return Generation of the function's results after the change, see
+	 * AnalysisInstance.generation.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+}
@@ -0,0 +1,272 @@
+package model;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import model.ProblemInstance.FunctionType;
+
+/**
+ * Bounds of the variables and constraints of a problem instance too large
+ * to copy whole, see ProblemSnapshot. Rows are loaded a page at a time with
+ * the bulk getters on the instance's executor, and the pages are kept in an
+ * LRU bounded by a memory budget. Reading a row never waits: a row whose
+ * page isn't held is queued and the instance's row listeners are told once
+ * it is, see held and prefetch.
+ *
+ * Sorting and filtering on bounds need a whole column. It is read once
+ * per instance, a page at a time on the executor without going through the
+ * LRU, and kept, see column.
+ *
+ * The budget is set in megabytes with -Dmprobe.pageBudget, 64 by default.
+ */
+public final class RowPages {
+	public static final String budgetProperty = "mprobe.pageBudget";
+	public static final int defaultBudgetMB = 64;
+	public static final int pageRows = 4096;
+
+	public enum Kind {
+		Variables, Constraints, Objectives
+	}
+
+	/**
+	 * Told on the event dispatch thread when rows become readable without
+	 * waiting, see ProblemInstance.addRowsListener.
+	 */
+	public interface Listener {
+		/**
+		 * The bounds of rows first to last of kind were loaded.
+		 */
+		void rowsLoaded(Kind kind, int first, int last);
+
+		/**
+		 * The whole lower or upper bound column of kind was read.
+		 */
+		void columnLoaded(Kind kind, boolean upper);
+	}
+
+	/**
+	 * One page of rows, bounds are interleaved lower/upper pairs.
+	 */
+	static final class Page {
+		final int first;
+		final double[] bounds;
+
+		Page(int first, double[] bounds) {
+			this.first = first;
+			this.bounds = bounds;
+		}
+
+		long bytes() {
+			return 64 + 8L * bounds.length;
+		}
+	}
+
+	private final ProblemInstance inst;
+	private final int[] rows = new int[Kind.values().length];
+	private final long budget;
+
+	// Access ordered, keyed by kind and page number, see key
+	private final LinkedHashMap<Long, Page> pages = new LinkedHashMap<Long, Page>(16, 0.75f, true);
+	private final Set<Long> loading = new HashSet<Long>();
+	private long used;
+	// Whole bound columns by kind and side, see column
+	private final double[][] columns = new double[2 * Kind.values().length][];
+	private final boolean[] requested = new boolean[columns.length];
+	// Set once the instance is unloaded, queued reads are then dropped
+	private volatile boolean released;
+
+	RowPages(ProblemInstance inst, int variables, int constraints) {
+		this(inst, variables, constraints,
+				(long) Integer.getInteger(budgetProperty, defaultBudgetMB) << 20);
+	}
+
+	RowPages(ProblemInstance inst, int variables, int constraints, long budget) {
+		this.inst = inst;
+		rows[Kind.Variables.ordinal()] = variables;
+		rows[Kind.Constraints.ordinal()] = constraints;
+		this.budget = budget;
+	}
+
+	public static Kind kind(FunctionType funcType) {
+		return funcType == FunctionType.Constraint ? Kind.Constraints : Kind.Objectives;
+	}
+
+	private static long key(Kind kind, int page) {
+		return ((long) kind.ordinal() << 32) | page;
+	}
+
+	private static int slot(Kind kind, boolean upper) {
+		return 2 * kind.ordinal() + (upper ? 1 : 0);
+	}
+
+	/**
+	 * @return Page holding row, or null if it isn't held, its load is then
+	 * queued.
+	 */
+	Page held(Kind kind, int row) {
+		long key = key(kind, row / pageRows);
+		synchronized (pages) {
+			Page page = pages.get(key);
+			if (page != null)
+				return page;
+		}
+		queue(kind, row / pageRows);
+		return null;
+	}
+
+	/**
+	 * Loads the pages of the given rows which aren't held yet, without
+	 * waiting for them.
+	 */
+	public void prefetch(Kind kind, int[] rowsToLoad) {
+		int last = -1;
+		for (int row : rowsToLoad) {
+			int page = row / pageRows;
+			if (page == last)
+				continue;
+			last = page;
+			queue(kind, page);
+		}
+	}
+
+	private void queue(final Kind kind, final int page) {
+		if (rows[kind.ordinal()] == 0)
+			return;
+		final long key = key(kind, page);
+		synchronized (pages) {
+			if (pages.containsKey(key) || !loading.add(key))
+				return;
+		}
+		inst.executor().read(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					if (released)
+						return null;
+					Page loaded = store(key, read(kind, page));
+					inst.rowsLoaded(kind, loaded.first, loaded.first + loaded.bounds.length / 2 - 1);
+				} finally {
+					synchronized (pages) {
+						loading.remove(key);
+					}
+				}
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * @return Lower or upper bound of every row of kind, not to be modified,
+	 * or null while it is being read. The first call queues the read, the
+	 * instance's row listeners are told once the column is kept.
+	 */
+	double[] column(final Kind kind, final boolean upper) {
+		final int c = slot(kind, upper);
+		synchronized (pages) {
+			if (columns[c] != null || requested[c])
+				return columns[c];
+			requested[c] = true;
+		}
+		inst.executor().read(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				if (released)
+					return null;
+				int count = rows[kind.ordinal()];
+				double[] values = new double[count];
+				int side = upper ? 1 : 0;
+				try {
+					for (int first = 0; first < count; first += pageRows) {
+						Page page = read(kind, first / pageRows);
+						for (int i = 0; i < page.bounds.length / 2; ++i)
+							values[first + i] = page.bounds[2 * i + side];
+					}
+				} catch (Exception e) {
+					// Asked for again by the next sort or filter
+					synchronized (pages) {
+						requested[c] = false;
+					}
+					throw e;
+				}
+				synchronized (pages) {
+					columns[c] = values;
+				}
+				inst.columnLoaded(kind, upper);
+				return null;
+			}
+		});
+		return null;
+	}
+
+	/**
+	 * @return Whether the whole column was asked for, it is then kept once read.
+	 */
+	boolean columnRequested(Kind kind, boolean upper) {
+		synchronized (pages) {
+			return requested[slot(kind, upper)];
+		}
+	}
+
+	/**
+	 * @return Whole column if it was read already, null otherwise.
+	 */
+	double[] columnIfRead(Kind kind, boolean upper) {
+		synchronized (pages) {
+			return columns[slot(kind, upper)];
+		}
+	}
+
+	/**
+	 * Drops all pages and columns for good, the instance is unloaded. Reads
+	 * still queued do nothing.
+	 */
+	public void clear() {
+		released = true;
+		synchronized (pages) {
+			pages.clear();
+			used = 0;
+			for (int c = 0; c < columns.length; ++c)
+				columns[c] = null;
+		}
+	}
+
+	// On the executor, the plugin is only entered from there
+	private Page read(Kind kind, int page) throws Exception {
+		int first = page * pageRows;
+		int count = Math.min(pageRows, rows[kind.ordinal()] - first);
+		double[] bounds = new double[2 * count];
+		switch (kind) {
+		case Variables:
+			inst.variableBounds(first, bounds);
+			break;
+		case Constraints:
+			inst.constraintBounds(first, bounds);
+			break;
+		default:
+			throw new Exception("Objectives have no bounds.");
+		}
+		return new Page(first, bounds);
+	}
+
+	private Page store(long key, Page page) {
+		synchronized (pages) {
+			Page held = pages.get(key);
+			if (held != null)
+				return held;
+			pages.put(key, page);
+			used += page.bytes();
+			// Evict least recently used pages, never the one just stored
+			Iterator<Map.Entry<Long, Page>> it = pages.entrySet().iterator();
+			while (used > budget && pages.size() > 1) {
+				Page eldest = it.next().getValue();
+				it.remove();
+				used -= eldest.bytes();
+			}
+			return page;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Function by variable incidence of either the constraints or the objectives
+ * of a problem instance, as exported by mp_sparsityPattern. The pattern is
+ * kept in compressed sparse row form along with its transpose, so that both
+ * the variables of a function and the functions of a variable are available
+ * without calling into the native library.
+ */
+public class SparsityPattern {
+	// Pattern of no functions over no variables
+	public static final SparsityPattern empty = new SparsityPattern(new int[1], new int[0], new byte[0]);
+
+	// Function -> variables
+	private final int[] rowStarts;
+	private final int[] columns;
+	// Variable -> functions
+	private final int[] colStarts;
+	private final int[] rows;
+	// Variables of each type per function, see mp_variableType
+	private final int[] realCounts;
+	private final int[] integerCounts;
+	private final int[] binaryCounts;
+
+	public SparsityPattern(int[] rowStarts, int[] columns, byte[] variableTypes) {
+		this.rowStarts = rowStarts;
+		this.columns = columns;
+		int functions = rowStarts.length - 1;
+		int variables = variableTypes.length;
+
+		colStarts = new int[variables + 1];
+		for (int k = 0; k < columns.length; ++k)
+			++colStarts[columns[k] + 1];
+		for (int v = 0; v < variables; ++v)
+			colStarts[v + 1] += colStarts[v];
+
+		rows = new int[columns.length];
+		int[] next = Arrays.copyOf(colStarts, variables);
+		realCounts = new int[functions];
+		integerCounts = new int[functions];
+		binaryCounts = new int[functions];
+		for (int f = 0; f < functions; ++f) {
+			for (int k = rowStarts[f]; k < rowStarts[f + 1]; ++k) {
+				int var = columns[k];
+				rows[next[var]++] = f;
+				switch (variableTypes[var]) {
+				case 'r':
+					++realCounts[f];
+					break;
+				case 'i':
+					++integerCounts[f];
+					break;
+				case 'b':
+					++binaryCounts[f];
+					break;
+				}
+			}
+		}
+	}
+
+	public int functions() {
+		return rowStarts.length - 1;
+	}
+
+	public int variables() {
+		return colStarts.length - 1;
+	}
+
+	public int nonzeros() {
+		return columns.length;
+	}
+
+	public int functionDegree(int function) {
+		return rowStarts[function + 1] - rowStarts[function];
+	}
+
+	public int variableDegree(int variable) {
+		return colStarts[variable + 1] - colStarts[variable];
+	}
+
+	public int[] functionVariables(int function) {
+		return Arrays.copyOfRange(columns, rowStarts[function],
+				rowStarts[function + 1]);
+	}
+
+	public int[] variableFunctions(int variable) {
+		return Arrays.copyOfRange(rows, colStarts[variable],
+				colStarts[variable + 1]);
+	}
+
+	/**
+	 * Sets into to the variables of any of functions, in time proportional
+	 * to their degrees. into is cleared first and returned.
+	 */
+	public BitSet functionVariables(int[] functions, BitSet into) {
+		into.clear();
+		for (int f : functions)
+			for (int k = rowStarts[f]; k < rowStarts[f + 1]; ++k)
+				into.set(columns[k]);
+		return into;
+	}
+
+	/**
+	 * Sets into to the functions of any of variables, in time proportional
+	 * to their degrees. into is cleared first and returned.
+	 */
+	public BitSet variableFunctions(int[] variables, BitSet into) {
+		into.clear();
+		for (int v : variables)
+			for (int k = colStarts[v]; k < colStarts[v + 1]; ++k)
+				into.set(rows[k]);
+		return into;
+	}
+
+	public int realVariables(int function) {
+		return realCounts[function];
+	}
+
+	public int integerVariables(int function) {
+		return integerCounts[function];
+	}
+
+	public int binaryVariables(int function) {
+		return binaryCounts[function];
+	}
+}
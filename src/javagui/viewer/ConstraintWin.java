@@ -9,6 +9,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.util.BitSet;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -18,19 +19,23 @@ import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.RowFilter;
 import javax.swing.SwingWorker;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.TableRowSorter;
 
 import misc.CollapsingNotFilter;
 import misc.EveryRowFilter;
 import misc.FreezeHandle;
+import misc.PrimitiveRowSorter;
+import misc.ViewportPrefetch;
+import model.FilterExpression;
 import model.MProbeLib.EmpiricalShape;
 import model.ProblemInstance.FunctionShape;
 import adapter.ConstraintTableModel;
@@ -41,11 +46,13 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
 	private static final String[] ACTIONS = {"analyze selected functions",
 										"analyze selected function (with extra histograms)",
 										"analyze all functions",
-										"show variables in the selected constraint"};
+										"show variables in the selected constraints"};
 
 	private JLabel showOnly;
 	private JComboBox showOnlyContent;
 	private JCheckBox RSelection; // reverse selection
+	private JTextField findField;
+	private JTextField filterField;
 	private JLabel constraintNum;
 
 	private JTable constraintTable;
@@ -58,7 +65,7 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
 	private ConstraintTableModel model;
 	private ConstraintControl control;
 
-	TableRowSorter<ConstraintTableModel> sorter;
+	PrimitiveRowSorter<ConstraintTableModel> sorter;
 	private FreezeHandle freezeHandle;
 	
 	static final String[] showOnlys = { "all",
@@ -92,6 +99,12 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
 
 		RSelection = new JCheckBox("reverse selection");
 		RSelection.addActionListener(this);
+		findField = new JTextField(15);
+		findField.setToolTipText("Part of a name, or a whole name with * and ? wildcards");
+		findField.addActionListener(this);
+		filterField = new JTextField(25);
+		filterField.setToolTipText("Filter expression, e.g. algShape=nonlinear and totalEff>0.5 and name~\"cap*\"");
+		filterField.addActionListener(this);
 		constraintNum = new JLabel(
 				"this field indicates how many constraints are visible");
 		Upanel.add(showOnly);
@@ -100,12 +113,20 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
 		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
 		Upanel.add(RSelection);
 		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
+		Upanel.add(new JLabel("Find:"));
+		Upanel.add(Box.createRigidArea(new Dimension(20, 0)));
+		Upanel.add(findField);
+		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
+		Upanel.add(new JLabel("Filter:"));
+		Upanel.add(Box.createRigidArea(new Dimension(20, 0)));
+		Upanel.add(filterField);
+		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
 		Upanel.add(constraintNum);
 		content.add(Upanel, BorderLayout.NORTH);
 
 		// set the mid area of the window(i.e the table for variables)
 		constraintTable = new JTable(model);
-		sorter = new TableRowSorter<ConstraintTableModel>(model);
+		sorter = new PrimitiveRowSorter<ConstraintTableModel>(model);
 		sorter.setRowFilter(new EveryRowFilter());
 		constraintTable.setRowSorter(sorter);
 		constraintTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
@@ -115,6 +136,7 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
 		scroll.setPreferredSize(new Dimension(300, 300));
 		content.add(scroll, BorderLayout.CENTER);
 		freezeHandle = new FreezeHandle(constraintTable, scroll);
+		new ViewportPrefetch(constraintTable, scroll, model);
 
 		// set the down area of the window
 		JPanel Dpanel = new JPanel();
@@ -198,6 +220,28 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
         updateConstraintNumberLabel();
 	};
 
+	public void showOnlySelectedConstraints(BitSet constraints) {
+        showOnlyContent.setSelectedIndex(showOnlyContent.getItemCount()-1);
+        sorter.setRowFilter(model.new ConstraintRowFilter(constraints));
+        updateConstraintNumberLabel();
+	};
+
+	private void setExpressionFilter(String text) {
+		ConstraintTableModel.ExpressionRowFilter expression;
+		try {
+			expression = model.new ExpressionRowFilter(FilterExpression.parse(text));
+		} catch (Exception e) {
+			JOptionPane.showMessageDialog(this, e.getMessage());
+			return;
+		}
+		showOnlyContent.setSelectedIndex(showOnlyContent.getItemCount()-1);
+		RowFilter<? super ConstraintTableModel, ? super Integer> filter = expression;
+		if (RSelection.isSelected())
+			filter = new CollapsingNotFilter<ConstraintTableModel, Integer>(expression);
+		sorter.setRowFilter(filter);
+		updateConstraintNumberLabel();
+	}
+
 	private void updateConstraintNumberLabel() {
 		int total = constraintTable.getModel().getRowCount();
     	int shown = constraintTable.getRowCount();
@@ -261,8 +305,14 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
 		}
 		else if (src == (Object)rightClickActions[3])
 		{
-			if (constraintTable.getSelectedRow() >= 0)
-				control.showVariablesFromConstraint((Integer)constraintTable.getValueAt(constraintTable.getSelectedRow(), 1));
+			int [] selected = constraintTable.getSelectedRows();
+			
+			for (int i = 0; i < selected.length; i++)
+			{
+				selected[i] = (Integer)constraintTable.getValueAt(selected[i], 1);
+			}
+			if (selected.length > 0)
+				control.showVariablesFromConstraints(selected);
 		}
 		else if (src == freeze)
 		{
@@ -282,6 +332,20 @@ public class ConstraintWin extends JFrame implements WindowListener, ActionListe
 			}
 			control.trace(modelRowIndexes);
 		}
+		else if (src == filterField)
+		{
+			if (filterField.getText().trim().isEmpty())
+				setFilter(showOnlyContent.getSelectedIndex());
+			else
+				setExpressionFilter(filterField.getText());
+		}
+		else if (src == findField)
+		{
+			if (findField.getText().isEmpty())
+				setFilter(showOnlyContent.getSelectedIndex());
+			else
+				showOnlySelectedConstraints(control.findConstraints(findField.getText()));
+		}
 		else if (src == RSelection)
 		{
 			if (sorter.getRowFilter() != null)
@@ -17,6 +17,7 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 
+import model.MProbeBinding;
 import model.ProblemInstance;
 import controller.MProbeController;
 
@@ -34,6 +35,7 @@ public class MainWin extends JFrame implements ActionListener, WindowListener, O
 	private JMenuItem about;
 	private JMenuItem close;
 	private JMenuItem filepath;
+	private JMenuItem nativeCalls;
 	private JButton statisticSummary;
 	private JButton variableWorkshop;
 	private JButton constraintWorkshop;
@@ -77,6 +79,11 @@ public class MainWin extends JFrame implements ActionListener, WindowListener, O
 		about = new JMenuItem("about MProbe");
 		help.add(helpinfo);
 		help.add(about);
+		if (MProbeBinding.instrumentation() != null) {
+			nativeCalls = new JMenuItem("dump native call statistics");
+			nativeCalls.addActionListener(this);
+			help.add(nativeCalls);
+		}
 		// add the menus to menuBar
 		MainMenu.add(file);
 		MainMenu.add(help);
@@ -145,6 +152,8 @@ public class MainWin extends JFrame implements ActionListener, WindowListener, O
 			control.showVariableWorkshop();
 		else if (source == analysisSettings)
 			control.showAnalysisSettings();
+		else if (source == nativeCalls)
+			control.dumpNativeCalls();
 		/*
 		 * TODO helpinfo; about;
 		 */
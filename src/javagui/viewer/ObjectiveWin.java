@@ -9,6 +9,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.util.BitSet;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -18,19 +19,23 @@ import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.RowFilter;
 import javax.swing.SwingWorker;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.TableRowSorter;
 
 import misc.CollapsingNotFilter;
 import misc.EveryRowFilter;
 import misc.FreezeHandle;
+import misc.PrimitiveRowSorter;
+import misc.ViewportPrefetch;
+import model.FilterExpression;
 import model.MProbeLib.EmpiricalShape;
 import model.ProblemInstance.FunctionShape;
 import adapter.ObjectiveTableModel;
@@ -41,11 +46,13 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 	private static final String[] ACTIONS = {"analyze selected functions",
 		"analyze selected function (with extra histograms)",
 		"analyze all functions",
-		"show variables in the selected objective"};
+		"show variables in the selected objectives"};
 
 	private JLabel showOnly;
 	private JComboBox showOnlyContent;
 	private JCheckBox RSelection; // reverse selection
+	private JTextField findField;
+	private JTextField filterField;
 	private JLabel objectiveNum;
 
 	private JTable objectiveTable;
@@ -59,7 +66,7 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 	private ObjectiveTableModel model;
 	private ObjectiveControl control;
 
-	TableRowSorter<ObjectiveTableModel> sorter;
+	PrimitiveRowSorter<ObjectiveTableModel> sorter;
 
 	static final String[] showOnlys = { "all",
 		"algebraic shape: linear",
@@ -91,6 +98,12 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 
 		RSelection = new JCheckBox("reverse selection");
 		RSelection.addActionListener(this);
+		findField = new JTextField(15);
+		findField.setToolTipText("Part of a name, or a whole name with * and ? wildcards");
+		findField.addActionListener(this);
+		filterField = new JTextField(25);
+		filterField.setToolTipText("Filter expression, e.g. empShape=convex or optEff=global");
+		filterField.addActionListener(this);
 		objectiveNum = new JLabel(
 				"this field indicates how many objectives are visible");
 		Upanel.add(showOnly);
@@ -99,13 +112,21 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
 		Upanel.add(RSelection);
 		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
+		Upanel.add(new JLabel("Find:"));
+		Upanel.add(Box.createRigidArea(new Dimension(20, 0)));
+		Upanel.add(findField);
+		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
+		Upanel.add(new JLabel("Filter:"));
+		Upanel.add(Box.createRigidArea(new Dimension(20, 0)));
+		Upanel.add(filterField);
+		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
 		Upanel.add(objectiveNum);
 		content.add(Upanel, BorderLayout.NORTH);
 
 		// set the mid area of the window (i.e the table for objective
 		// functions)
 		objectiveTable = new JTable(model);
-		sorter = new TableRowSorter<ObjectiveTableModel>(model);
+		sorter = new PrimitiveRowSorter<ObjectiveTableModel>(model);
 		sorter.setRowFilter(new EveryRowFilter());
 		objectiveTable.setRowSorter(sorter);
 		objectiveTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
@@ -115,6 +136,7 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 		scroll.setPreferredSize(new Dimension(300, 300));
 		content.add(scroll, BorderLayout.CENTER);
 		freezeHandle = new FreezeHandle(objectiveTable, scroll);
+		new ViewportPrefetch(objectiveTable, scroll, model);
 
 		// set the down area of the window
 		JPanel Dpanel = new JPanel();
@@ -196,6 +218,28 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 		updateObjectiveNumberLabel();
 	};
 
+	public void showOnlySelectedObjectives(BitSet objectives) {
+		showOnlyContent.setSelectedIndex(showOnlyContent.getItemCount()-1);
+		sorter.setRowFilter(model.new ObjectiveRowFilter(objectives));
+		updateObjectiveNumberLabel();
+	};
+
+	private void setExpressionFilter(String text) {
+		ObjectiveTableModel.ExpressionRowFilter expression;
+		try {
+			expression = model.new ExpressionRowFilter(FilterExpression.parse(text));
+		} catch (Exception e) {
+			JOptionPane.showMessageDialog(this, e.getMessage());
+			return;
+		}
+		showOnlyContent.setSelectedIndex(showOnlyContent.getItemCount()-1);
+		RowFilter<? super ObjectiveTableModel, ? super Integer> filter = expression;
+		if (RSelection.isSelected())
+			filter = new CollapsingNotFilter<ObjectiveTableModel, Integer>(expression);
+		sorter.setRowFilter(filter);
+		updateObjectiveNumberLabel();
+	}
+
 	private void updateObjectiveNumberLabel() {
 
 		int total = objectiveTable.getModel().getRowCount();
@@ -259,8 +303,14 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 		}
 		else if (src == (Object)rightClickActions[3])
 		{
-			if (objectiveTable.getSelectedRow() >= 0)
-				control.showVariablesFromObjective((Integer)objectiveTable.getValueAt(objectiveTable.getSelectedRow(), 1));
+			int [] selected = objectiveTable.getSelectedRows();
+			
+			for (int i = 0; i < selected.length; i++)
+			{
+				selected[i] = (Integer)objectiveTable.getValueAt(selected[i], 1);
+			}
+			if (selected.length > 0)
+				control.showVariablesFromObjectives(selected);
 		}
 		else if (src == freeze)
 		{
@@ -280,6 +330,20 @@ public class ObjectiveWin extends JFrame implements WindowListener, ActionListen
 			}
 			control.trace(modelRowIndexes);
 		}
+		else if (src == filterField)
+		{
+			if (filterField.getText().trim().isEmpty())
+				setFilter(showOnlyContent.getSelectedIndex());
+			else
+				setExpressionFilter(filterField.getText());
+		}
+		else if (src == findField)
+		{
+			if (findField.getText().isEmpty())
+				setFilter(showOnlyContent.getSelectedIndex());
+			else
+				showOnlySelectedObjectives(control.findObjectives(findField.getText()));
+		}
 		else if (src == RSelection)
 		{
 			if (sorter.getRowFilter() != null)
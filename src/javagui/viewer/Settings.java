@@ -26,6 +26,7 @@ import misc.SortedArrayListListModel;
 import model.AnalysisInstance;
 import model.MProbeLib.HistType;
 import model.PersistentSettings;
+import model.ResultChange;
 import controller.SettingsControl;
 
 public class Settings extends javax.swing.JFrame implements
@@ -762,7 +763,7 @@ public class Settings extends javax.swing.JFrame implements
 
 	@Override
 	public void update(Observable o, Object arg1) {
-		if (o == aModel)
+		if (o == aModel && !(arg1 instanceof ResultChange)) // settings don't change with results
 		{
 			if (aModel.loaded())
 			{
@@ -6,6 +6,7 @@ import java.util.Observable;
 import java.util.Observer;
 
 import model.ProblemInstance;
+import model.ProblemSnapshot;
 import model.ProblemInstance.ConstraintType;
 import model.ProblemInstance.FunctionShape;
 import model.ProblemInstance.FunctionType;
@@ -34,8 +35,9 @@ public class StatisticsDialog extends javax.swing.JDialog implements Observer, W
 	}
 
 	private void refreshView() {
+		ProblemSnapshot snapshot = model.snapshot();
 		
-		if (!model.loaded()) {
+		if (snapshot == null) {
 			setTitle("Statistics");
 			varTotField.setText("");
 			varRealField.setText("");
@@ -64,32 +66,14 @@ public class StatisticsDialog extends javax.swing.JDialog implements Observer, W
 		}
 		
 		setTitle("Statistics"+ (model.instanceName().isEmpty()?"":": " + model.instanceName()));
-		int v = model.variables();
-		int o = model.objectives();
-		int c = model.constraints();
+		int v = snapshot.variables();
+		int o = snapshot.objectives();
+		int c = snapshot.constraints();
 
 		// summary for variable
-		int r = 0;
-		int b = 0;
-		int other_int = 0;
-		for (int i = 0; i < v; i++) {
-			try {
-				switch (model.variableType(i)) {
-				case Real:
-					++r;
-					break;
-				case Binary:
-					++b;
-					break;
-				case Integer:
-					++other_int;
-					break;
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-				continue;
-			}
-		}
+		int r = snapshot.realVariables();
+		int b = snapshot.binaryVariables();
+		int other_int = snapshot.integerVariables();
 		varTotField.setText(Integer.toString(v));
 		varRealField.setText(Integer.toString(r));
 		varBinField.setText(Integer.toString(b));
@@ -99,11 +83,10 @@ public class StatisticsDialog extends javax.swing.JDialog implements Observer, W
 		int l = 0;
 		int q = 0;
 		int n = 0;
-		int obj_nonzero = 0;
-		int[] presences = new int[v + 1];
+		int obj_nonzero = snapshot.objectivePattern().nonzeros();
 		for (int i = 0; i < o; i++) {
 			try {
-				switch (model.functionType(FunctionType.Objective, i)) {
+				switch (snapshot.functionShape(FunctionType.Objective, i)) {
 				case Linear:
 					++l;
 					break;
@@ -114,7 +97,6 @@ public class StatisticsDialog extends javax.swing.JDialog implements Observer, W
 					++n;
 					break;
 				}
-				obj_nonzero += model.objectiveVariables(i, presences);
 			} catch (Exception e) {
 				e.printStackTrace();
 				continue;
@@ -130,13 +112,13 @@ public class StatisticsDialog extends javax.swing.JDialog implements Observer, W
 
 		// summary for constraint function
 		int constrL = 0, constrLI = 0, constrLR = 0, constrLE = 0, constrQ = 0, constrQI = 0, constrQR = 0, constrQE = 0, constrN = 0, constrNI = 0, constrNR = 0, constrNE = 0;
-		int constrnt_nonzero = 0;
+		int constrnt_nonzero = snapshot.constraintPattern().nonzeros();
 		for (int i = 0; i < c; i++) {
 			FunctionShape ftype;
 			ConstraintType constrtype;
 			try {
-				ftype = model.functionType(FunctionType.Constraint, i);
-				constrtype = model.constraintType(i);
+				ftype = snapshot.functionShape(FunctionType.Constraint, i);
+				constrtype = snapshot.constraintType(i);
 			} catch (Exception e) {
 				e.printStackTrace();
 				continue;
@@ -166,11 +148,6 @@ public class StatisticsDialog extends javax.swing.JDialog implements Observer, W
 				else if (constrtype != ConstraintType.Unconstraining)
 					constrNI++;
 			}
-			try {
-				constrnt_nonzero += model.constraintVariables(i, presences);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
 		}
 
 		constrTField.setText(Integer.toString(c));
@@ -6,42 +6,16 @@ package viewer;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Arrays;
 
 import model.AnalysisInstance;
+import model.HistogramSnapshot;
 import model.MProbeLib.HistType;
 
 public class UserHistograms extends javax.swing.JFrame implements ActionListener {
 
 	String functionName;
 
-	double[] shapeHistBins;
-	long[] shapeHistFrequencies;
-	long shapeDataPoints;
-	long shapePointsAbove;
-	long shapePointsBelow;
-	double shapeMean, shapeStdDev, shapeVariance, shapeMaximum, shapeMinimum;
-	
-	double[] slopeHistBins;
-	long[] slopeHistFrequencies;
-	long slopeDataPoints;
-	long slopePointsAbove;
-	long slopePointsBelow;
-	double slopeMean, slopeStdDev, slopeVariance, slopeMaximum, slopeMinimum;
-	
-	double[] fValHistBins;
-	long[] fValHistFrequencies;
-	long fValDataPoints;
-	long fValPointsAbove;
-	long fValPointsBelow;
-	double fValMean, fValStdDev, fValVariance, fValMaximum, fValMinimum;
-	
-	double[] lineLenHistBins;
-	long[] lineLenHistFrequencies;
-	long lineLenDataPoints;
-	long lineLenPointsAbove;
-	long lineLenPointsBelow;
-	double lineLenMean, lineLenStdDev, lineLenVariance, lineLenMaximum, lineLenMinimum;
+	HistogramSnapshot histograms;
 
     public UserHistograms(AnalysisInstance aInst, String functionName) {
         initComponents();
@@ -54,74 +28,11 @@ public class UserHistograms extends javax.swing.JFrame implements ActionListener
 		fValHistButton.addActionListener(this);
 		lineLenHistButton.addActionListener(this);
 		
-		cacheHistogramData(aInst);
-    }
-    
-    private void cacheHistogramData(AnalysisInstance aInst)
-    {
-    	shapeHistBins = aInst.getHistogramUpperBounds(HistType.Shape).clone();
-    	Arrays.sort(shapeHistBins);
-    	shapeHistFrequencies = new long[aInst.getHistogramNumBins(HistType.Shape)];
-    	for (int i = 0; i < shapeHistBins.length; ++i)
-    	{
-    		shapeHistFrequencies[i] = (int) aInst.getHistogramBin(HistType.Shape, i);
-    	}
-    	shapeDataPoints = aInst.getHistogramDataPoints(HistType.Shape);
-    	shapePointsAbove = aInst.getHistogramNumAboveRange(HistType.Shape);
-    	shapePointsBelow = aInst.getHistogramNumBelowRange(HistType.Shape);
-    	shapeMean = aInst.getHistogramMean(HistType.Shape);
-    	shapeStdDev = aInst.getHistogramStdDev(HistType.Shape);
-    	shapeVariance  = aInst.getHistogramVariance(HistType.Shape);
-    	shapeMaximum = aInst.getHistogramMaximum(HistType.Shape);
-    	shapeMinimum = aInst.getHistogramMinimum(HistType.Shape);
-    	
-    	slopeHistBins = aInst.getHistogramUpperBounds(HistType.Slope).clone();
-    	Arrays.sort(slopeHistBins);
-    	slopeHistFrequencies = new long[aInst.getHistogramNumBins(HistType.Slope)];
-    	for (int i = 0; i < slopeHistBins.length; ++i)
-    	{
-    		slopeHistFrequencies[i] = (int) aInst.getHistogramBin(HistType.Slope, i);
-    	}
-    	slopeDataPoints = aInst.getHistogramDataPoints(HistType.Slope);
-    	slopePointsAbove = aInst.getHistogramNumAboveRange(HistType.Slope);
-    	slopePointsBelow = aInst.getHistogramNumBelowRange(HistType.Slope);
-    	slopeMean = aInst.getHistogramMean(HistType.Slope);
-    	slopeStdDev = aInst.getHistogramStdDev(HistType.Slope);
-    	slopeVariance  = aInst.getHistogramVariance(HistType.Slope);
-    	slopeMaximum = aInst.getHistogramMaximum(HistType.Slope);
-    	slopeMinimum = aInst.getHistogramMinimum(HistType.Slope);
-  
-    	fValHistBins = aInst.getHistogramUpperBounds(HistType.FunctionValue).clone();
-    	Arrays.sort(fValHistBins);
-    	fValHistFrequencies = new long[aInst.getHistogramNumBins(HistType.FunctionValue)];
-    	for (int i = 0; i < fValHistBins.length; ++i)
-    	{
-    		fValHistFrequencies[i] = (int) aInst.getHistogramBin(HistType.FunctionValue, i);
-    	}
-    	fValDataPoints = aInst.getHistogramDataPoints(HistType.FunctionValue);
-    	fValPointsAbove = aInst.getHistogramNumAboveRange(HistType.FunctionValue);
-    	fValPointsBelow = aInst.getHistogramNumBelowRange(HistType.FunctionValue);
-    	fValMean = aInst.getHistogramMean(HistType.FunctionValue);
-    	fValStdDev = aInst.getHistogramStdDev(HistType.FunctionValue);
-    	fValVariance  = aInst.getHistogramVariance(HistType.FunctionValue);
-    	fValMaximum = aInst.getHistogramMaximum(HistType.FunctionValue);
-    	fValMinimum = aInst.getHistogramMinimum(HistType.FunctionValue);
-    	
-    	lineLenHistBins = aInst.getHistogramUpperBounds(HistType.LineLength).clone();
-    	Arrays.sort(lineLenHistBins);
-    	lineLenHistFrequencies = new long[aInst.getHistogramNumBins(HistType.LineLength)];
-    	for (int i = 0; i < lineLenHistBins.length; ++i)
-    	{
-    		lineLenHistFrequencies[i] = (int) aInst.getHistogramBin(HistType.LineLength, i);
-    	}
-    	lineLenDataPoints = aInst.getHistogramDataPoints(HistType.LineLength);
-    	lineLenPointsAbove = aInst.getHistogramNumAboveRange(HistType.LineLength);
-    	lineLenPointsBelow = aInst.getHistogramNumBelowRange(HistType.LineLength);
-    	lineLenMean = aInst.getHistogramMean(HistType.LineLength);
-    	lineLenStdDev = aInst.getHistogramStdDev(HistType.LineLength);
-    	lineLenVariance  = aInst.getHistogramVariance(HistType.LineLength);
-    	lineLenMaximum = aInst.getHistogramMaximum(HistType.LineLength);
-    	lineLenMinimum = aInst.getHistogramMinimum(HistType.LineLength);
+		try {
+			histograms = aInst.getHistogramSnapshot();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
     }
 
     /**
@@ -177,43 +88,32 @@ public class UserHistograms extends javax.swing.JFrame implements ActionListener
 	public void actionPerformed(ActionEvent e) {
 		Object src = e.getSource();
 		HistogramWin histWin = null;
+		if (histograms == null)
+			return;
 		if (src == shapeHistButton)
-		{
-			histWin = new HistogramWin(functionName + " Shape", shapeHistBins, shapeHistFrequencies);
-			histWin.setDataPoints(shapeDataPoints);
-			histWin.setPointsAbove(shapePointsAbove);
-			histWin.setPointsBelow(shapePointsBelow);
-			histWin.setExtraStats(shapeMean, shapeStdDev, shapeVariance, shapeMaximum, shapeMinimum);
-	
-		}
+			histWin = createHistogramWin(" Shape", HistType.Shape);
 		else if (src == slopeHistButton)
-		{
-			histWin = new HistogramWin(functionName + " Slope", slopeHistBins, slopeHistFrequencies);
-			histWin.setDataPoints(slopeDataPoints);
-			histWin.setPointsAbove(slopePointsAbove);
-			histWin.setPointsBelow(slopePointsBelow);
-			histWin.setExtraStats(slopeMean, slopeStdDev, slopeVariance, slopeMaximum, slopeMinimum);
-		}
+			histWin = createHistogramWin(" Slope", HistType.Slope);
 		else if (src == fValHistButton)
-		{
-			histWin = new HistogramWin(functionName + " Function Value", fValHistBins, fValHistFrequencies);
-			histWin.setDataPoints(fValDataPoints);
-			histWin.setPointsAbove(fValPointsAbove);
-			histWin.setPointsBelow(fValPointsBelow);
-			histWin.setExtraStats(fValMean, fValStdDev, fValVariance, fValMaximum, fValMinimum);
-		}
+			histWin = createHistogramWin(" Function Value", HistType.FunctionValue);
 		else if (src == lineLenHistButton)
-		{
-			histWin = new HistogramWin(functionName + " Line length", lineLenHistBins, lineLenHistFrequencies);
-			histWin.setDataPoints(lineLenDataPoints);
-			histWin.setPointsAbove(lineLenPointsAbove);
-			histWin.setPointsBelow(lineLenPointsBelow);
-			histWin.setExtraStats(lineLenMean, lineLenStdDev, lineLenVariance, lineLenMaximum, lineLenMinimum);
-		}
+			histWin = createHistogramWin(" Line length", HistType.LineLength);
 		if (histWin != null)
 		{
 			histWin.setVisible(true);
 			histWin.setLocationRelativeTo(this);
 		}
 	}
+
+	private HistogramWin createHistogramWin(String suffix, HistType type) {
+		HistogramWin histWin = new HistogramWin(functionName + suffix,
+				histograms.getUpperBounds(type), histograms.getFrequencies(type));
+		histWin.setDataPoints(histograms.getDataPoints(type));
+		histWin.setPointsAbove(histograms.getPointsAbove(type));
+		histWin.setPointsBelow(histograms.getPointsBelow(type));
+		histWin.setExtraStats(histograms.getMean(type), histograms.getStdDev(type),
+				histograms.getVariance(type), histograms.getMaximum(type),
+				histograms.getMinimum(type));
+		return histWin;
+	}
 }
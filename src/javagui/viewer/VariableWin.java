@@ -9,6 +9,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.util.BitSet;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -18,19 +19,22 @@ import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.JTextField;
 import javax.swing.RowFilter;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.TableModel;
-import javax.swing.table.TableRowSorter;
 
 import misc.CollapsingNotFilter;
 import misc.EveryRowFilter;
 import misc.FreezeHandle;
+import misc.PrimitiveRowSorter;
+import misc.ViewportPrefetch;
+import model.FilterExpression;
 import model.ProblemInstance.VariableType;
 import adapter.VariableTableModel;
 import controller.VariableControl;
@@ -38,12 +42,14 @@ import controller.VariableControl;
 public class VariableWin extends JFrame implements WindowListener, ActionListener, ListSelectionListener {
 	public static final String title = "Variable workshop";
 	private static final String[] ACTIONS = {"reset original bounds",
-											"show constraints containing selected variable",
-											"show objectives containing selected variable" };
+											"show constraints containing selected variables",
+											"show objectives containing selected variables" };
 
 	private JLabel showOnly;
 	private JComboBox showOnlyContent;
 	private JCheckBox RSelection; // reverse selection
+	private JTextField findField;
+	private JTextField filterField;
 	private JLabel variableNum;
 
 	private JTable variableTable;
@@ -58,7 +64,7 @@ public class VariableWin extends JFrame implements WindowListener, ActionListene
 	private VariableControl control;
 	private FreezeHandle freezeHandle;
 
-	TableRowSorter<VariableTableModel> sorter;
+	PrimitiveRowSorter<VariableTableModel> sorter;
 
 	
 	static final String[] showOnlys = { "all", "type: real",
@@ -85,6 +91,12 @@ public class VariableWin extends JFrame implements WindowListener, ActionListene
 		showOnlyContent.addActionListener(this);
 		RSelection = new JCheckBox("reverse selection");
 		RSelection.addActionListener(this);
+		findField = new JTextField(15);
+		findField.setToolTipText("Part of a name, or a whole name with * and ? wildcards");
+		findField.addActionListener(this);
+		filterField = new JTextField(25);
+		filterField.setToolTipText("Filter expression, e.g. type=binary and tmpSpan<1");
+		filterField.addActionListener(this);
 		variableNum = new JLabel(
 				"this field indicates how many variable are visible");
 		Upanel.add(showOnly);
@@ -93,12 +105,20 @@ public class VariableWin extends JFrame implements WindowListener, ActionListene
 		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
 		Upanel.add(RSelection);
 		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
+		Upanel.add(new JLabel("Find:"));
+		Upanel.add(Box.createRigidArea(new Dimension(20, 0)));
+		Upanel.add(findField);
+		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
+		Upanel.add(new JLabel("Filter:"));
+		Upanel.add(Box.createRigidArea(new Dimension(20, 0)));
+		Upanel.add(filterField);
+		Upanel.add(Box.createRigidArea(new Dimension(40, 0)));
 		Upanel.add(variableNum);
 		content.add(Upanel, BorderLayout.NORTH);
 
 		// set the mid area of the window(i.e the table for variables)
 		variableTable = new JTable(model);
-		sorter = new VariableRowSorter<VariableTableModel>(model);
+		sorter = new PrimitiveRowSorter<VariableTableModel>(model);
 		sorter.setRowFilter(new EveryRowFilter());
 		variableTable.setRowSorter(sorter);
 		variableTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
@@ -107,6 +127,7 @@ public class VariableWin extends JFrame implements WindowListener, ActionListene
 		scroll.setPreferredSize(new Dimension(300, 300));
 		content.add(scroll, BorderLayout.CENTER);
 		freezeHandle = new FreezeHandle(variableTable, scroll);
+		new ViewportPrefetch(variableTable, scroll, model);
 
 		variableTable.getSelectionModel().addListSelectionListener(this);
 		
@@ -205,36 +226,51 @@ public class VariableWin extends JFrame implements WindowListener, ActionListene
 	public void windowOpened(WindowEvent e) {
 	}
 	
-	class VariableRowSorter<M extends TableModel> extends TableRowSorter<M> {
-		
-		VariableRowSorter() {
-			super();
-		}
-		
-		VariableRowSorter(M model)
-		{
-			super(model);
-		}
-
-		protected boolean 	useToString(int column) {
-			if (column == 8)
-				return true;
-			return false;
-		}
-	}
-
 	public void showOnlySelectedVariables(int[] variables) {
 		showOnlyContent.setSelectedIndex(showOnlyContent.getItemCount()-1);
 		sorter.setRowFilter(model.new VariableRowFilter(variables));
         updateVariableNumberLabel();
 	};
 
+	public void showOnlySelectedVariables(BitSet variables) {
+		showOnlyContent.setSelectedIndex(showOnlyContent.getItemCount()-1);
+		sorter.setRowFilter(model.new VariableRowFilter(variables));
+        updateVariableNumberLabel();
+	};
+
+	private void setExpressionFilter(String text) {
+		VariableTableModel.ExpressionRowFilter expression;
+		try {
+			expression = model.new ExpressionRowFilter(FilterExpression.parse(text));
+		} catch (Exception e) {
+			JOptionPane.showMessageDialog(this, e.getMessage());
+			return;
+		}
+		showOnlyContent.setSelectedIndex(showOnlyContent.getItemCount()-1);
+		RowFilter<? super VariableTableModel, ? super Integer> filter = expression;
+		if (RSelection.isSelected())
+			filter = new CollapsingNotFilter<VariableTableModel, Integer>(expression);
+		sorter.setRowFilter(filter);
+		updateVariableNumberLabel();
+	}
+
 	private void updateVariableNumberLabel() {
 		int total = variableTable.getModel().getRowCount();
     	int shown = variableTable.getRowCount();
     	variableNum.setText(shown + " of " + total + " variables visible");
 	}
 
+	// Variables of the selected rows
+	private int[] selectedVariables() {
+		int [] selected = variableTable.getSelectedRows();
+		
+		for (int i = 0; i < selected.length; i++)
+		{
+			selected[i] = (Integer)variableTable.getValueAt(selected[i], 1);
+		}
+		return selected;
+	}
+
 	@Override
 	public void actionPerformed(ActionEvent arg0) {
 		Object src = arg0.getSource();
@@ -245,11 +281,15 @@ public class VariableWin extends JFrame implements WindowListener, ActionListene
 		}
 		else if (src == rightClickActions[1])
 		{
-			control.showConstraintsfromVariable((Integer) model.getValueAt(variableTable.getSelectedRow(), 1));
+			int[] selected = selectedVariables();
+			if (selected.length > 0)
+				control.showConstraintsfromVariables(selected);
 		}
 		else if (src == rightClickActions[2])
 		{
-			control.showObjectivesfromVariable((Integer) model.getValueAt(variableTable.getSelectedRow(), 1));
+			int[] selected = selectedVariables();
+			if (selected.length > 0)
+				control.showObjectivesfromVariables(selected);
 		}
 		else if (src == trace)
 		{
@@ -269,6 +309,20 @@ public class VariableWin extends JFrame implements WindowListener, ActionListene
 		{
 			freezeHandle.freeze();
 		}
+		else if (src == filterField)
+		{
+			if (filterField.getText().trim().isEmpty())
+				setFilter(showOnlyContent.getSelectedIndex());
+			else
+				setExpressionFilter(filterField.getText());
+		}
+		else if (src == findField)
+		{
+			if (findField.getText().isEmpty())
+				setFilter(showOnlyContent.getSelectedIndex());
+			else
+				showOnlySelectedVariables(control.findVariables(findField.getText()));
+		}
 		else if (src == RSelection)
 		{
 			if (sorter.getRowFilter() != null)
@@ -18,13 +18,21 @@
 
 #include "analysis.h"
 
+#include <algorithm>
 #include <limits>
+#include <vector>
 #include <ctime>
+#include <exception>
+#include <sstream>
 
 #include <boost/random/uniform_real.hpp>
 #include <boost/random/variate_generator.hpp>
 #include <boost/math/special_functions/sign.hpp>
 #include <boost/smart_ptr/scoped_array.hpp>
+#include <boost/bind.hpp>
+#include <boost/ref.hpp>
+#include <boost/thread/thread.hpp>
+#include <Poco/AtomicCounter.h>
 
 #include <mprobe.h>
 
@@ -45,7 +53,8 @@ Analysis::Analysis(SharedPtr< ProblemInstance >& p)
 	m_lineSegments(10000),
 	m_interiorLinePts(7),
 	m_minPointsNeeded(25),
-	m_snap(true)
+	m_snap(true),
+	m_resultsVersion(0)
 {
 	m_bounds = new Real[p->variables()*2];
 	for (int i = 0; i < p->variables(); ++i)
@@ -411,12 +420,23 @@ void Analysis::accumulateEffectiveness(int constraint, Real value, uint64_t& eff
 
 void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 {
-	variate_generator<mt19937&, uniform_real<Real> > variateGen(m_rng, uniform_real<Real>());
+	const int vars = m_problem->variables();
+	scoped_array<Real> endPt1(new Real[vars]);
+	scoped_array<Real> endPt2(new Real[vars]);
+	scoped_array<Real> tempPoint(new Real[vars]);
+	std::fill(endPt1.get(), &endPt1[vars], 0.0);
+	std::fill(endPt2.get(), &endPt2[vars], 0.0);
+	std::fill(tempPoint.get(), &tempPoint[vars], 0.0);
+
+	lineSample(funcType, func, extraHists, m_rng, endPt1.get(), endPt2.get(), tempPoint.get());
+}
+
+void Analysis::lineSample(int funcType, int func, bool extraHists, mt19937& rng, Real* endPt1, Real* endPt2, Real* tempPoint)
+{
+	variate_generator<mt19937&, uniform_real<Real> > variateGen(rng, uniform_real<Real>());
 	int (ProblemInstance::*evalFuncVal)(int,Real*,Real*); // A little C++ magic to remove some duplication
 	uint64_t effTotal = 0, effLowerB = 0, effUpperB = 0; // Effectiveness accumulators
 	int totalVars, realVars, binaryVars, integerVars;
-	scoped_array<Real> endPt1, endPt2;
-	scoped_array<Real> tempPoint;
 	const int* variablePresences;
 	Real endPt1Val, endPt2Val;
 	unsigned lineErrors = 0;
@@ -426,15 +446,6 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 
 	initShapeHist(shape);
 
-	endPt1.reset(new Real[m_problem->variables()]);
-	std::fill(endPt1.get(), &endPt1[m_problem->variables()], 0.0);
-
-	endPt2.reset(new Real[m_problem->variables()]);
-	std::fill(endPt2.get(), &endPt2[m_problem->variables()], 0.0);
-
-	tempPoint.reset(new Real[m_problem->variables()]);
-	std::fill(tempPoint.get(), &tempPoint[m_problem->variables()], 0.0);
-
 	if (funcType == Objective)
 	{
 		evalFuncVal = &ProblemInstance::evaluateObjectiveVal;
@@ -498,13 +509,13 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 			continue;
 		}
 
-		if (!(m_problem->*evalFuncVal)(func, endPt1.get(), &endPt1Val))
+		if (!(m_problem->*evalFuncVal)(func, endPt1, &endPt1Val))
 		{
 			++lineErrors;
 			++mathErrors;
 			continue;
 		}
-		if (!(m_problem->*evalFuncVal)(func, endPt2.get(), &endPt2Val))
+		if (!(m_problem->*evalFuncVal)(func, endPt2, &endPt2Val))
 		{
 			++lineErrors;
 			++mathErrors;
@@ -520,8 +531,8 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 
 		if (funcType == Objective)
 		{
-			updateExtremum(func, endPt1Val, endPt1.get());
-			updateExtremum(func, endPt2Val, endPt2.get());
+			updateExtremum(func, endPt1Val, endPt1);
+			updateExtremum(func, endPt2Val, endPt2);
 		}
 		else
 		{
@@ -529,17 +540,17 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 			{
 				Real snappedVal;
 
-				snapPoint(totalVars, variablePresences, endPt1.get(), tempPoint.get());
+				snapPoint(totalVars, variablePresences, endPt1, tempPoint);
 
-				if ((m_problem->*evalFuncVal)(func, tempPoint.get(), &snappedVal)
+				if ((m_problem->*evalFuncVal)(func, tempPoint, &snappedVal)
 					&& std::abs(snappedVal) < m_inf)
 				{
 					accumulateEffectiveness(func, snappedVal, effTotal, effLowerB, effUpperB);
 				}
 
-				snapPoint(totalVars, variablePresences, endPt2.get(), tempPoint.get());
+				snapPoint(totalVars, variablePresences, endPt2, tempPoint);
 
-				if ((m_problem->*evalFuncVal)(func, tempPoint.get(), &snappedVal)
+				if ((m_problem->*evalFuncVal)(func, tempPoint, &snappedVal)
 					&& std::abs(snappedVal) < m_inf)
 				{
 					accumulateEffectiveness(func, snappedVal, effTotal, effLowerB, effUpperB);
@@ -564,8 +575,8 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 		 * endPt1 will become the interior point
 		 * endPt2 will become the increment
 		 */
-		scoped_array<Real>& interiorPt = endPt1;
-		scoped_array<Real>& increment = endPt2;
+		Real* const interiorPt = endPt1;
+		Real* const increment = endPt2;
 
 		for (int j = 0; j < totalVars; ++j)
 		{
@@ -589,7 +600,7 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 
 			// Evaluate
 			Real interiorPtVal;
-			if (!(m_problem->*evalFuncVal)(func, interiorPt.get(), &interiorPtVal) || std::abs(interiorPtVal) >= m_inf)
+			if (!(m_problem->*evalFuncVal)(func, interiorPt, &interiorPtVal) || std::abs(interiorPtVal) >= m_inf)
 			{
 				++mathErrors;
 				continue;
@@ -603,7 +614,7 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 
 			if (funcType == Objective)
 			{
-				updateExtremum(func, interiorPtVal, interiorPt.get());
+				updateExtremum(func, interiorPtVal, interiorPt);
 			}
 		}
 	}
@@ -661,6 +672,162 @@ void Analysis::variableBoundLineSample(int funcType, int func, bool extraHists)
 			m_optimumEffects[func] = OETooManyMathErrors;
 		}
 	}
+
+	// Leave the scratch points zero for the next function
+	for (int j = 0; j < totalVars; ++j)
+	{
+		const int var = variablePresences[j]; // shorthand
+		endPt1[var] = endPt2[var] = tempPoint[var] = 0.0;
+	}
+
+	boost::mutex::scoped_lock lock(m_resultsVersionMutex);
+	++m_resultsVersion;
+}
+
+uint64_t Analysis::resultsVersion() const
+{
+	// A 64 bit read isn't atomic everywhere, and lineSample may be writing it
+	boost::mutex::scoped_lock lock(m_resultsVersionMutex);
+	return m_resultsVersion;
+}
+
+// Functions of an analyzeFunctions call, taken in turn by the worker threads
+struct Analysis::Batch
+{
+	int funcType;
+	std::vector<int> funcs;
+	MPAnalyzeCallback callback;
+	Poco::AtomicCounter next; // Index of the next function to take
+	Poco::AtomicCounter done;
+	Poco::AtomicCounter stop; // Set when the callback asks to stop or a function fails
+	boost::mutex callbackMutex;
+	// First error raised on a worker thread, handed back to the calling thread
+	int errorType;
+	std::string errorStr;
+	boost::mutex errorMutex;
+
+	Batch() : errorType(NoError) {}
+	void fail(int type, const std::string& str)
+	{
+		boost::mutex::scoped_lock lock(errorMutex);
+		if (errorType == NoError)
+		{
+			errorType = type;
+			errorStr = str;
+		}
+		++stop;
+	}
+};
+
+int Analysis::analyzeFunctions(int funcType, const int* funcs, int numFuncs, int threads, MPAnalyzeCallback callback)
+{
+	if (funcType != Constraint && funcType != Objective)
+	{
+		m_problem->setLatestError(InvalidArgument, "Function type must be one of 'c' or 'o'.");
+		return -1;
+	}
+	if (numFuncs < 0 || (numFuncs > 0 && !funcs))
+	{
+		m_problem->setLatestError(InvalidArgument, "Invalid list of functions.");
+		return -1;
+	}
+
+	const int count = funcType == Constraint ? m_problem->constraints() : m_problem->objectives();
+	Batch batch;
+	batch.funcType = funcType;
+	batch.callback = callback;
+	batch.funcs.reserve(numFuncs);
+	// Results are stored per function, so a function must not be taken by two threads
+	std::vector<bool> seen(count, false);
+	for (int i = 0; i < numFuncs; ++i)
+	{
+		if (funcs[i] < 0 || funcs[i] >= count)
+		{
+			m_problem->setLatestError(IndexOutOfBounds, "Function index out of bounds.");
+			return -1;
+		}
+		if (!seen[funcs[i]])
+		{
+			seen[funcs[i]] = true;
+			batch.funcs.push_back(funcs[i]);
+		}
+	}
+
+	if (threads <= 0)
+		threads = std::max(1u, boost::thread::hardware_concurrency());
+	if (!m_problem->threadSafe())
+		threads = 1;
+	threads = std::min(threads, static_cast<int>(batch.funcs.size()));
+
+	if (threads <= 1)
+	{
+		// The batch runs on this thread, so an older error would look like its own
+		m_problem->clearLatestError();
+		analyzeBatch(batch, m_rng());
+	}
+	else
+	{
+		// One random number stream per thread, seeded from the analysis' own
+		boost::thread_group pool;
+		for (int t = 0; t < threads; ++t)
+			pool.create_thread(boost::bind(&Analysis::analyzeBatch, this, boost::ref(batch), m_rng()));
+		pool.join_all();
+	}
+	// Errors are kept per thread, the caller only sees the ones set on its own
+	if (batch.errorType != NoError)
+	{
+		m_problem->setLatestError(batch.errorType, batch.errorStr);
+		return -1;
+	}
+	return batch.done.value();
+}
+
+void Analysis::analyzeBatch(Batch& batch, unsigned seed)
+{
+	mt19937 rng(seed);
+	const int vars = m_problem->variables();
+	std::vector<Real> scratch(3*vars, 0.0);
+	Real* endPt1 = vars ? &scratch[0] : 0;
+
+	for (;;)
+	{
+		if (batch.stop.value())
+			return;
+		const int i = (++batch.next) - 1;
+		if (i >= static_cast<int>(batch.funcs.size()))
+			return;
+
+		try
+		{
+			lineSample(batch.funcType, batch.funcs[i], false, rng, endPt1, endPt1 + vars, endPt1 + 2*vars);
+		}
+		catch (std::exception& e)
+		{
+			batch.fail(InternalError, e.what());
+			return;
+		}
+		catch (...)
+		{
+			batch.fail(InternalError, "Unknown error while analysing a function.");
+			return;
+		}
+		// Anything the plugin reported went to this thread's own error slot
+		std::string errorStr;
+		const int errorType = m_problem->getLatestError(errorStr);
+		if (errorType != NoError)
+		{
+			batch.fail(errorType, errorStr);
+			return;
+		}
+		++batch.done;
+
+		if (batch.callback)
+		{
+			boost::mutex::scoped_lock lock(batch.callbackMutex);
+			if (!batch.stop.value() && batch.callback(batch.funcType, batch.funcs[i]))
+				++batch.stop;
+		}
+	}
 }
 
 uint8_t Analysis::deduceFunctionShape(const Histogram& shapeHist)
@@ -835,3 +1002,81 @@ uint8_t Analysis::getRegionEffect(int constraint)
 	return m_regionEffects[constraint];
 }
 
+
+const void* Analysis::resultArray(int which, int& length) const
+{
+	const int constraints = m_problem->constraints();
+	const int objectives = m_problem->objectives();
+	switch (which) {
+		case RAShapes:
+			length = constraints + objectives;
+			return m_shapes;
+		case RAEffectivenessStatus:
+			length = constraints;
+			return m_effStatus;
+		case RAEffectiveness:
+			length = 2*constraints;
+			return m_effectiveness;
+		case RARegionEffects:
+			length = constraints;
+			return m_regionEffects;
+		case RAExtremumStatus:
+			length = objectives;
+			return m_extrStatus;
+		case RAExtrema:
+			length = objectives;
+			return m_objExtrema;
+		case RAExtremumPoints:
+			length = objectives * m_problem->variables();
+			return m_objExtremumPoints;
+		case RAOptimumEffects:
+			length = objectives;
+			return m_optimumEffects;
+		default:
+			length = 0;
+			return 0;
+	}
+}
+
+bool Analysis::resultsRange(int funcType, int first, int count, uint8_t* status, uint8_t* shapes, uint8_t* effects, Real* values) const
+{
+	if (funcType != Constraint && funcType != Objective)
+	{
+		m_problem->setLatestError(InvalidArgument, "Function type must be one of 'c' or 'o'.");
+		return false;
+	}
+	const int functions = (funcType == Constraint ? m_problem->constraints() : m_problem->objectives());
+	if (first < 0 || count < 0 || first > functions - count)
+	{
+		std::ostringstream ss;
+		ss << "Function range [" << first << "," << (long)first + count << ") is out of bounds [" << 0 << "," << functions << ").";
+		m_problem->setLatestError(IndexOutOfBounds, ss.str());
+		return false;
+	}
+
+	const int last = first + count;
+	if (funcType == Constraint)
+	{
+		if (status)
+			std::copy(&m_effStatus[first], &m_effStatus[last], status);
+		if (shapes)
+			std::copy(&m_shapes[first], &m_shapes[last], shapes);
+		if (effects)
+			std::copy(&m_regionEffects[first], &m_regionEffects[last], effects);
+		if (values)
+			std::copy(&m_effectiveness[2*first], &m_effectiveness[2*last], values);
+	}
+	else
+	{
+		const int offset = m_problem->constraints();
+		if (status)
+			std::copy(&m_extrStatus[first], &m_extrStatus[last], status);
+		if (shapes)
+			std::copy(&m_shapes[offset+first], &m_shapes[offset+last], shapes);
+		if (effects)
+			std::copy(&m_optimumEffects[first], &m_optimumEffects[last], effects);
+		if (values)
+			std::copy(&m_objExtrema[first], &m_objExtrema[last], values);
+	}
+	return true;
+}
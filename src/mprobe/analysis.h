@@ -22,8 +22,11 @@
 #include <stdint.h>
 
 #include <boost/random/mersenne_twister.hpp>
+#include <boost/thread/mutex.hpp>
 #include <Poco/SharedPtr.h>
 
+#include <mprobe.h>
+
 #include "histogram.h"
 #include "probleminstance.h"
 #include "types.h"
@@ -37,8 +40,11 @@ public:
 	Analysis(SharedPtr<ProblemInstance>&);
 	virtual ~Analysis();
 
+	inline ProblemInstance& problem() const { return *m_problem; }
+
 	// Analysis functions
 	void variableBoundLineSample(int funcType, int func, bool extraHists);
+	int analyzeFunctions(int funcType, const int* funcs, int numFuncs, int threads, MPAnalyzeCallback callback);
 
 	// Settings
 	void bounds(int var, Real& lower, Real& upper) const;
@@ -139,11 +145,20 @@ public:
 
 	};
 	uint8_t getRegionEffect(int constraint);
+
+	// Direct access to the result arrays, see mp_aResultArray
+	const void* resultArray(int which, int& length) const;
+	bool resultsRange(int funcType, int first, int count, uint8_t* status, uint8_t* shapes, uint8_t* effects, Real* values) const;
+	uint64_t resultsVersion() const;
 	
 protected:
 	inline Real& lowerBound(int var) { return m_bounds[2*var]; }
 	inline Real& upperBound(int var) { return m_bounds[2*var+1]; }
 
+	// Samples func with the given generator and scratch points, which hold a
+	// value per variable and are all zero on entry and on return
+	void lineSample(int funcType, int func, bool extraHists, mt19937& rng, Real* endPt1, Real* endPt2, Real* tempPoint);
+
 	void snapPoint(int vars, const int* presences, const Real* point, Real* snappedPoint);
 	void setExtremum(int objective, uint8_t status, Real val, const Real* point);
 	void updateExtremum(int objective, Real val, const Real* point);
@@ -154,6 +169,8 @@ protected:
 	uint8_t deduceRegionEffect(int constrType, uint8_t shape);
 	uint8_t deduceOptimumEffect(int objType, uint8_t shape);
 private:
+	struct Batch;
+	void analyzeBatch(Batch& batch, unsigned seed);
 
 	SharedPtr<ProblemInstance> m_problem;
 
@@ -187,6 +204,9 @@ private:
 	Real* m_objExtremumPoints;
 	uint8_t* m_optimumEffects;
 
+	uint64_t m_resultsVersion; // Incremented whenever the results above change
+	mutable boost::mutex m_resultsVersionMutex; // Analyses may conclude on several threads
+
 	// Extra histograms
 	Histogram m_fvalHist;
 	Histogram m_lineLenHist;
@@ -18,6 +18,7 @@
 
 #include "mprobe.h"
 
+#include <algorithm>
 #include <vector>
 #include <string>
 #include <iterator>
@@ -160,7 +161,7 @@ const char* mp_pluginName(int plugin)
 		{
 			char* nameCStr = new char[name.size()+1];
 			std::copy(name.begin(), name.end(), nameCStr);
-			nameCStr[name.size()] = '0';
+			nameCStr[name.size()] = '\0';
 			return nameCStr;
 		}
 	}
@@ -194,7 +195,10 @@ void mp_unload(MPHandle h)
 {
 	SharedPtr<ProblemInstance>* ppi;
 	if (convertSharedHandle(h, ppi))
+	{
+		(*ppi)->clearLatestError();
 		delete  ppi;
+	}
 }
 
 int mp_compatibleFiles(int numFiles, const char** files)
@@ -387,12 +391,12 @@ int mp_evaluateObjectiveVal(MPHandle h, int o, Real* point, Real* result)
 	SharedPtr<ProblemInstance>* ppi;
 
 	if (!convertSharedHandle(h, ppi))
-		return 1;
+		return 0;
 
 	ProblemInstance* pi = *ppi;
 	if (checkObjBounds(pi, o) && checkPtr(pi, point) && checkPtr(pi, result))
 		return pi->evaluateObjectiveVal(o, point, result);
-	return 1;
+	return 0;
 }
 
 int mp_evaluateObjectiveGrad(MPHandle h, int o, Real* point, Real* result)
@@ -400,12 +404,12 @@ int mp_evaluateObjectiveGrad(MPHandle h, int o, Real* point, Real* result)
 	SharedPtr<ProblemInstance>* ppi;
 
 	if (!convertSharedHandle(h, ppi))
-		return 1;
+		return 0;
 
 	ProblemInstance* pi = *ppi;
 	if (checkObjBounds(pi, o) && checkPtr(pi, point) && checkPtr(pi, result))
 		return pi->evaluateObjectiveGrad(o, point, result);
-	return 1;
+	return 0;
 }
 
 int mp_constraints(MPHandle h)
@@ -488,12 +492,12 @@ int mp_evaluateConstraintVal(MPHandle h, int c, Real* point, Real* result)
 	SharedPtr<ProblemInstance>* ppi;
 
 	if (!convertSharedHandle(h, ppi))
-		return 1;
+		return 0;
 
 	ProblemInstance* pi = *ppi;
-	if (checkObjBounds(pi, c) && checkPtr(pi, point) && checkPtr(pi, result))
+	if (checkConBounds(pi, c) && checkPtr(pi, point) && checkPtr(pi, result))
 		return pi->evaluateConstraintVal(c, point, result);
-	return 1;
+	return 0;
 }
 
 int mp_evaluateConstraintGrad(MPHandle h, int c, Real* point, Real* result)
@@ -501,12 +505,12 @@ int mp_evaluateConstraintGrad(MPHandle h, int c, Real* point, Real* result)
 	SharedPtr<ProblemInstance>* ppi;
 
 	if (!convertSharedHandle(h, ppi))
-		return 1;
+		return 0;
 
 	ProblemInstance* pi = *ppi;
-	if (checkObjBounds(pi, c) && checkPtr(pi, point) && checkPtr(pi, result))
+	if (checkConBounds(pi, c) && checkPtr(pi, point) && checkPtr(pi, result))
 		return pi->evaluateConstraintGrad(c, point, result);
-	return 1;
+	return 0;
 }
 
 int mp_functionType(MPHandle h, int t, int w)
@@ -525,6 +529,267 @@ int mp_functionType(MPHandle h, int t, int w)
 	return 0;
 }
 
+static inline bool checkRange(ProblemInstance* h, const char* what, int first, int count, int size)
+{
+#ifndef NOCHECKING
+	if (first >= 0 && count >= 0 && first <= size - count)
+	{
+		return true;
+	}
+	else
+	{
+		std::ostringstream ss;
+		ss << what << " range [" << first << "," << first << "+" << count << ") is out of bounds [" << 0 << "," << size <<").";
+		h->setLatestError(IndexOutOfBounds, ss.str());
+		return false;
+	}
+#else
+	return true;
+#endif
+}
+
+int mp_variableTypesBulk(MPHandle h, int first, int count, char* types)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+	if (checkRange(pi, "Variable", first, count, pi->variables()) && checkPtr(pi, types))
+	{
+		pi->variableTypes(first, count, types);
+		return count;
+	}
+	return -1;
+}
+
+int mp_variableBoundsBulk(MPHandle h, int first, int count, Real* bounds)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+	if (checkRange(pi, "Variable", first, count, pi->variables()) && checkPtr(pi, bounds))
+	{
+		pi->variableBounds(first, count, bounds);
+		return count;
+	}
+	return -1;
+}
+
+int mp_objectiveTypesBulk(MPHandle h, int first, int count, char* types)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+	if (checkRange(pi, "Objective", first, count, pi->objectives()) && checkPtr(pi, types))
+	{
+		pi->objectiveTypes(first, count, types);
+		return count;
+	}
+	return -1;
+}
+
+int mp_constraintTypesBulk(MPHandle h, int first, int count, char* types)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+	if (checkRange(pi, "Constraint", first, count, pi->constraints()) && checkPtr(pi, types))
+	{
+		pi->constraintTypes(first, count, types);
+		return count;
+	}
+	return -1;
+}
+
+int mp_constraintBoundsBulk(MPHandle h, int first, int count, Real* bounds)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+	if (checkRange(pi, "Constraint", first, count, pi->constraints()) && checkPtr(pi, bounds))
+	{
+		pi->constraintBounds(first, count, bounds);
+		return count;
+	}
+	return -1;
+}
+
+int mp_functionTypesBulk(MPHandle h, int t, int first, int count, char* types)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+
+	if (((t == 'o' && checkRange(pi, "Objective", first, count, pi->objectives()))
+		||  (t == 'c' && checkRange(pi, "Constraint", first, count, pi->constraints())))
+		&& checkPtr(pi, types))
+	{
+		pi->functionTypes(t, first, count, types);
+		return count;
+	}
+	return -1;
+}
+
+int mp_namesToBuf(MPHandle h, int t, int* offsets, int maxLen, char* buf)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+
+	if (t != 'v' && t != 'c' && t != 'o')
+	{
+		pi->setLatestError(InvalidArgument, "Name type must be one of 'v', 'c' or 'o'.");
+		return -1;
+	}
+
+	const std::vector<int>& offs = pi->nameOffsets(t);
+	const std::vector<char>& names = pi->names(t);
+	int size = (int)names.size();
+	if (buf)
+	{
+		if (maxLen < size)
+		{
+			std::ostringstream ss;
+			ss << "Name buffer of " << maxLen << " bytes is smaller than the " << size << " required.";
+			pi->setLatestError(InvalidArgument, ss.str());
+			return -1;
+		}
+		std::copy(names.begin(), names.end(), buf);
+	}
+	if (offsets)
+	{
+		std::copy(offs.begin(), offs.end(), offsets);
+	}
+	return size;
+}
+
+int mp_nonzeros(MPHandle h, int t)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+
+	if (t != 'c' && t != 'o')
+	{
+		pi->setLatestError(InvalidArgument, "Function type must be one of 'c' or 'o'.");
+		return -1;
+	}
+	return pi->nonzeros(t);
+}
+
+int mp_sparsityPattern(MPHandle h, int t, int* rowStarts, int maxLen, int* columns)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+
+	if (t != 'c' && t != 'o')
+	{
+		pi->setLatestError(InvalidArgument, "Function type must be one of 'c' or 'o'.");
+		return -1;
+	}
+	if (!checkPtr(pi, rowStarts) || !checkPtr(pi, columns))
+		return -1;
+
+	int nnz = pi->nonzeros(t);
+	if (maxLen < nnz)
+	{
+		std::ostringstream ss;
+		ss << "Column array of " << maxLen << " elements is smaller than the " << nnz << " nonzeros.";
+		pi->setLatestError(InvalidArgument, ss.str());
+		return -1;
+	}
+	pi->sparsityPattern(t, rowStarts, columns);
+	return nnz;
+}
+
+static int evaluateFunctions(MPHandle h, int t, int numFuncs, const int* funcs, int numPoints, Real* points, Real* results, char* errors, bool gradient)
+{
+	SharedPtr<ProblemInstance>* ppi;
+
+	if (!convertSharedHandle(h, ppi))
+		return -1;
+
+	ProblemInstance* pi = *ppi;
+
+	if (t != 'c' && t != 'o')
+	{
+		pi->setLatestError(InvalidArgument, "Function type must be one of 'c' or 'o'.");
+		return -1;
+	}
+	if (numFuncs < 0 || numPoints < 0)
+	{
+		pi->setLatestError(InvalidArgument, "Number of functions and points must not be negative.");
+		return -1;
+	}
+	if (!checkPtr(pi, (void*)funcs) || !checkPtr(pi, points) || !checkPtr(pi, results))
+		return -1;
+	for (int i = 0; i < numFuncs; ++i)
+	{
+		if (!(t == 'c' ? checkConBounds(pi, funcs[i]) : checkObjBounds(pi, funcs[i])))
+			return -1;
+	}
+
+	int (ProblemInstance::*eval)(int, Real*, Real*);
+	if (t == 'c')
+		eval = gradient ? &ProblemInstance::evaluateConstraintGrad : &ProblemInstance::evaluateConstraintVal;
+	else
+		eval = gradient ? &ProblemInstance::evaluateObjectiveGrad : &ProblemInstance::evaluateObjectiveVal;
+
+	const int vars = pi->variables();
+	const int resultSize = gradient ? vars : 1;
+	int failures = 0;
+	for (int i = 0; i < numFuncs; ++i)
+	{
+		for (int k = 0; k < numPoints; ++k)
+		{
+			const int index = i*numPoints + k;
+			bool failed = !(pi->*eval)(funcs[i], &points[k*vars], &results[index*resultSize]);
+			if (failed)
+				++failures;
+			if (errors)
+				errors[index] = failed;
+		}
+	}
+	return failures;
+}
+
+int mp_evaluateFunctionsVal(MPHandle h, int t, int numFuncs, const int* funcs, int numPoints, Real* points, Real* results, char* errors)
+{
+	return evaluateFunctions(h, t, numFuncs, funcs, numPoints, points, results, errors, false);
+}
+
+int mp_evaluateFunctionsGrad(MPHandle h, int t, int numFuncs, const int* funcs, int numPoints, Real* points, Real* results, char* errors)
+{
+	return evaluateFunctions(h, t, numFuncs, funcs, numPoints, points, results, errors, true);
+}
+
 int mp_GetLastError(MPHandle h, const char** err)
 {
 	SharedPtr<ProblemInstance>* ppi;
@@ -543,7 +808,7 @@ int mp_GetLastError(MPHandle h, const char** err)
 		{
 			char* str = new char[errStr.size()+1];
 			int copied = errStr.copy(str, errStr.size());
-			str[copied] = '0';
+			str[copied] = '\0';
 			*err = str;
 		}
 		else
@@ -573,6 +838,8 @@ MPHandle mp_createAnalysis(MPHandle h)
 void mp_releaseAnalysis(MPHandle h)
 {
 	Analysis* a = (Analysis*)h;
+	if (a)
+		a->problem().clearLatestError();
 	delete a;
 }
 
@@ -582,6 +849,12 @@ void mp_aVariableBoundLineSample(MPHandle h, int funcType, int func, int extraHi
 	a->variableBoundLineSample(funcType, func, extraHists);
 }
 
+int mp_aAnalyzeFunctions(MPHandle h, int funcType, const int* funcs, int numFuncs, int threads, MPAnalyzeCallback callback)
+{
+	Analysis* a = (Analysis*)h;
+	return a->analyzeFunctions(funcType, funcs, numFuncs, threads, callback);
+}
+
 void mp_aBounds(MPHandle h, int var, Real* lower, Real* upper)
 {
 	Analysis* a = (Analysis*)h;
@@ -853,6 +1126,40 @@ Real mp_aGetHistogramMinimum(MPHandle h, int histType)
 	return hist.minimumPoint();
 }
 
+int mp_aGetHistogramSnapshot(MPHandle h, int maxBins, uint64_t* counts, Real* stats)
+{
+	static const Analysis::ExtraHistType order[] = { Analysis::Shape, Analysis::Slope, Analysis::FunctionValue, Analysis::LineLength };
+	const int numHists = sizeof(order)/sizeof(order[0]);
+
+	Analysis* a = (Analysis*)h;
+	int requiredBins = 0;
+	for (int i = 0; i < numHists; ++i)
+		requiredBins = std::max(requiredBins, (int)a->getExtraHistogram(order[i]).numBins());
+	if (requiredBins > maxBins || !counts || !stats)
+		return requiredBins;
+
+	for (int i = 0; i < numHists; ++i)
+	{
+		const Histogram& hist = a->getExtraHistogram(order[i]);
+		uint64_t* c = &counts[i*(4+maxBins)];
+		c[0] = hist.numBins();
+		c[1] = hist.dataPoints();
+		c[2] = hist.numBelowHistRange();
+		c[3] = hist.numAboveHistRange();
+		for (unsigned bin = 0; bin < hist.numBins(); ++bin)
+			c[4+bin] = hist.getBin(bin);
+
+		Real* s = &stats[6*i];
+		s[0] = hist.mean();
+		s[1] = hist.stddev();
+		s[2] = hist.variance();
+		s[3] = hist.populationVariance();
+		s[4] = hist.maximumPoint();
+		s[5] = hist.minimumPoint();
+	}
+	return requiredBins;
+}
+
 void mp_aSetHistogramBins(MPHandle h, int which, int bins, Real firstBinWidth, Real* upperBounds)
 {
 	Analysis* a = (Analysis*)h;
@@ -881,3 +1188,27 @@ uint8_t mp_aGetRegionEffect(MPHandle h, int constraint)
 	Analysis* a = (Analysis*)h;
 	return a->getRegionEffect(constraint);
 }
+
+const void* mp_aResultArray(MPHandle h, int which, int* length)
+{
+	Analysis* a = (Analysis*)h;
+	int len = 0;
+	const void* arr = a->resultArray(which, len);
+	if (length)
+		*length = len;
+	return arr;
+}
+
+int mp_aResultsRange(MPHandle h, int funcType, int first, int count, uint8_t* status, uint8_t* shapes, uint8_t* effects, Real* values)
+{
+	Analysis* a = (Analysis*)h;
+	if (!a->resultsRange(funcType, first, count, status, shapes, effects, values))
+		return -1;
+	return count;
+}
+
+uint64_t mp_aResultsVersion(MPHandle h)
+{
+	Analysis* a = (Analysis*)h;
+	return a->resultsVersion();
+}
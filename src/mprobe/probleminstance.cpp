@@ -17,10 +17,14 @@
 
 #include "probleminstance.h"
 
+#include <cstring>
 #include <limits>
 
-ProblemInstance::ProblemInstance (RPHandle hndl, SharedPtr<ReaderPluginFunctionTable> functions)
-	: handle(hndl), ftable(functions)
+Poco::AtomicCounter ProblemInstance::s_serials;
+boost::thread_specific_ptr<ProblemInstance::ErrorMap> ProblemInstance::s_latestErrors;
+
+ProblemInstance::ProblemInstance (RPHandle hndl, SharedPtr<ReaderPluginFunctionTable> functions, unsigned flags)
+	: handle(hndl), ftable(functions), m_flags(flags), m_serial(++s_serials)
 {
 	int i;
 	m_variables = ftable->variables(handle);
@@ -136,8 +140,6 @@ ProblemInstance::ProblemInstance (RPHandle hndl, SharedPtr<ReaderPluginFunctionT
 				break;
 		}
 	}
-
-	latestErrorType = 0;
 }
 
 ProblemInstance::~ProblemInstance()
@@ -147,6 +149,8 @@ ProblemInstance::~ProblemInstance()
 	delete [] m_presenceIndexes;
 	delete [] m_variableTypes;
 	ftable->releaseInstance(handle);
+	// Errors left on other threads are under a serial no instance gets again
+	clearLatestError();
 }
 
 void ProblemInstance::releaseName(const char* str)
@@ -331,17 +335,134 @@ int ProblemInstance::functionType(int type, int func) const
 	return m_functionTypes[index];
 }
 
-void ProblemInstance::setLatestError(int type, const std::string& errorStr)
+void ProblemInstance::variableTypes(int first, int count, char* types) const
+{
+	std::copy(&m_variableTypes[first], &m_variableTypes[first+count], types);
+}
+
+void ProblemInstance::variableBounds(int first, int count, Real* bounds) const
+{
+	std::copy(&m_varBounds[2*first], &m_varBounds[2*(first+count)], bounds);
+}
+
+void ProblemInstance::objectiveTypes(int first, int count, char* types) const
+{
+	std::copy(&m_objectiveTypes[first], &m_objectiveTypes[first+count], types);
+}
+
+void ProblemInstance::constraintTypes(int first, int count, char* types) const
+{
+	std::copy(&m_constraintTypes[first], &m_constraintTypes[first+count], types);
+}
+
+void ProblemInstance::constraintBounds(int first, int count, Real* bounds) const
+{
+	std::copy(&m_constrBounds[2*first], &m_constrBounds[2*(first+count)], bounds);
+}
+
+void ProblemInstance::functionTypes(int type, int first, int count, char* types) const
+{
+	int index = first + (type == 'c' ? 0 : constraints());
+	std::copy(&m_functionTypes[index], &m_functionTypes[index+count], types);
+}
+
+int ProblemInstance::nonzeros(int type) const
+{
+	int functions = (type == 'c' ? constraints() : objectives());
+	int nnz = 0;
+	for (int i = 0; i < functions; ++i)
+	{
+		const int* vars;
+		nnz += (type == 'c' ? constraintVariables(i, &vars) : objectiveVariables(i, &vars));
+	}
+	return nnz;
+}
+
+void ProblemInstance::sparsityPattern(int type, int* rowStarts, int* columns) const
+{
+	int functions = (type == 'c' ? constraints() : objectives());
+	int nnz = 0;
+	rowStarts[0] = 0;
+	for (int i = 0; i < functions; ++i)
+	{
+		const int* vars;
+		int count = (type == 'c' ? constraintVariables(i, &vars) : objectiveVariables(i, &vars));
+		std::copy(vars, vars+count, &columns[nnz]);
+		nnz += count;
+		rowStarts[i+1] = nnz;
+	}
+}
+
+const std::vector<char>& ProblemInstance::names(int type)
+{
+	packNames(type);
+	return m_names[nameIndex(type)];
+}
+
+const std::vector<int>& ProblemInstance::nameOffsets(int type)
+{
+	packNames(type);
+	return m_nameOffsets[nameIndex(type)];
+}
+
+void ProblemInstance::packNames(int type)
+{
+	std::vector<char>& names = m_names[nameIndex(type)];
+	std::vector<int>& offsets = m_nameOffsets[nameIndex(type)];
+	if (!offsets.empty())
+		return;
+
+	int count = (type == 'v' ? variables() : (type == 'c' ? constraints() : objectives()));
+	offsets.reserve(count+1);
+	offsets.push_back(0);
+	for (int i = 0; i < count; ++i)
+	{
+		const char* name;
+		switch (type) {
+			case 'v': name = variableName(i); break;
+			case 'c': name = constraintName(i); break;
+			default: name = objectiveName(i); break;
+		}
+		if (name)
+		{
+			names.insert(names.end(), name, name+std::strlen(name));
+			releaseName(name);
+		}
+		offsets.push_back((int)names.size());
+	}
+}
+
+void ProblemInstance::setLatestError(int type, const std::string& errorStr) const
 {
-	latestErrorType = type;
-	latestErrorStr = errorStr;
+	ErrorMap* errors = s_latestErrors.get();
+	if (!errors)
+	{
+		errors = new ErrorMap;
+		s_latestErrors.reset(errors);
+	}
+	ErrorState& error = (*errors)[m_serial];
+	error.type = type;
+	error.str = errorStr;
+}
+
+void ProblemInstance::clearLatestError() const
+{
+	ErrorMap* errors = s_latestErrors.get();
+	if (errors)
+		errors->erase(m_serial);
 }
 
 int ProblemInstance::getLatestError(std::string& errorStr)
 {
-	int tmp = latestErrorType;
-	latestErrorType = 0;
-	errorStr = latestErrorStr;
-	latestErrorStr.clear();
+	ErrorMap* errors = s_latestErrors.get();
+	ErrorMap::iterator error;
+	if (!errors || (error = errors->find(m_serial)) == errors->end())
+	{
+		errorStr.clear();
+		return 0;
+	}
+	int tmp = error->second.type;
+	errorStr.swap(error->second.str);
+	errors->erase(error);
 	return tmp;
 }
@@ -19,9 +19,13 @@
 #ifndef PROBLEMINSTANCE_H_
 #define PROBLEMINSTANCE_H_
 
+#include <map>
+#include <string>
 #include <vector>
 
+#include <Poco/AtomicCounter.h>
 #include <Poco/SharedPtr.h>
+#include <boost/thread/tss.hpp>
 
 #include "readerplugininterface.h"
 #include "readerplugin.h"
@@ -36,7 +40,7 @@ using Poco::SharedPtr;
 class ProblemInstance
 {
 public:
-	ProblemInstance (RPHandle, SharedPtr<ReaderPluginFunctionTable>);
+	ProblemInstance (RPHandle, SharedPtr<ReaderPluginFunctionTable>, unsigned flags = 0);
 	~ProblemInstance();
 
 	void releaseName(const char* name);
@@ -72,12 +76,48 @@ public:
 
 	int functionType(int type, int function) const;
 
-	void setLatestError(int type, const std::string& errorStr);
+	// Whether the plugin may be called from several threads at once, see RP_THREADSAFE
+	inline bool threadSafe() const { return (m_flags & RP_THREADSAFE) != 0; }
+
+	// Bulk getters, ranges are assumed to be valid
+	void variableTypes(int first, int count, char* types) const;
+	void variableBounds(int first, int count, Real* bounds) const;
+	void objectiveTypes(int first, int count, char* types) const;
+	void constraintTypes(int first, int count, char* types) const;
+	void constraintBounds(int first, int count, Real* bounds) const;
+	void functionTypes(int type, int first, int count, char* types) const;
+
+	// Function by variable incidence in compressed sparse row form
+	int nonzeros(int type) const;
+	void sparsityPattern(int type, int* rowStarts, int* columns) const;
+
+	// Packed names (see mp_namesToBuf), built from the plugin on first use
+	const std::vector<char>& names(int type);
+	const std::vector<int>& nameOffsets(int type);
+
+	// The latest error is kept per thread, so that threads sharing an instance
+	// only ever see their own errors
+	void setLatestError(int type, const std::string& errorStr) const;
 	int getLatestError(std::string& errorStr);
+	// Drops the calling thread's latest error of this instance, done when a
+	// handle is released
+	void clearLatestError() const;
 private:
+	struct ErrorState
+	{
+		int type;
+		std::string str;
+	};
+	// Latest error of each instance on one thread, by instance serial
+	typedef std::map<int, ErrorState> ErrorMap;
 
 	RPHandle handle;
 	SharedPtr<ReaderPluginFunctionTable> ftable;
+	unsigned m_flags; // Plugin flags
+	// Keys the errors instead of the address, which a later instance may
+	// reuse while other threads still hold errors of this one
+	const int m_serial;
+	static Poco::AtomicCounter s_serials;
 
 	char* m_variableTypes;
 	char* m_functionTypes;
@@ -88,14 +128,15 @@ private:
 	Real* m_varBounds;
 	Real* m_constrBounds;
 	std::vector<int> m_presences;
-	std::string latestErrorStr;
+	std::vector<char> m_names[3];
+	std::vector<int> m_nameOffsets[3];
+	static boost::thread_specific_ptr<ErrorMap> s_latestErrors;
 	int m_variables;
 	int m_constraints;
 	int m_objectives;
 	int bVars;
 	int iVars;
 	int nlVars;
-	int latestErrorType;
 
 	inline unsigned varConstrPresenceIndex(int var) const {
 		return m_presenceIndexes[2*var];
@@ -121,5 +162,9 @@ private:
 	inline unsigned& objectivePresenceIndex(int obj) {
 		return m_presenceIndexes[2*variables()+constraints()+obj];
 	}
+	inline int nameIndex(int type) const {
+		return type == 'v' ? 0 : (type == 'c' ? 1 : 2);
+	}
+	void packNames(int type);
 };
 #endif // PROBLEMINSTANCE_H_
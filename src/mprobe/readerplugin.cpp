@@ -33,7 +33,7 @@ using Poco::NotFoundException;
 const std::string ReaderPlugin::PluginTypeStr = "readerplugin";
 
 ReaderPlugin::ReaderPlugin(const Details& details)
-	: functions(details.ftable), pluginName(details.name), ftablePtr(&functions)
+	: functions(details.ftable), pluginName(details.name), flags(details.flags), ftablePtr(&functions)
 {
 }
 
@@ -183,7 +183,7 @@ ProblemInstance* ReaderPlugin::read(int numFiles, const char** files)
 	}
 	else
 	{
-		return new ProblemInstance(handle, ftablePtr);
+		return new ProblemInstance(handle, ftablePtr, flags);
 	}
 }
 